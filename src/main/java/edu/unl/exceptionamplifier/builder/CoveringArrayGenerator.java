@@ -0,0 +1,342 @@
+package edu.unl.exceptionamplifier.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * t-wise 覆盖数组生成器（IPOG 算法）
+ * Builds a covering array in which, for every choice of t parameters (API call positions), every
+ * combination of their values (states) appears in at least one row. Parameters are added one at a
+ * time: the first t are enumerated exhaustively, then each new parameter is handled by horizontal
+ * growth (pick the value for each existing row that covers the most missing tuples) followed by
+ * vertical growth (add rows, using don't-care slots where possible, for the tuples still missing).
+ * Values are plain ints in [0, domainSize); remaining don't-care slots are filled with {@code fillValue}.
+ * An optional {@link ValueConflict} forbids two values from sharing a row: tuples containing a
+ * conflicting pair are not required, and no row ever gets one. {@code fillValue} must not conflict
+ * with anything. When a value means different things at different parameters (e.g. each position
+ * has its own list of legal states), use a {@link PositionalConflict} instead.
+ */
+public class CoveringArrayGenerator {
+    private static final int DONT_CARE = -1;
+
+    private final int[] domainSizes;
+    private final int strength;
+    private final int fillValue;
+    private final PositionalConflict conflict; // null: 没有约束
+
+    @FunctionalInterface
+    public interface ValueConflict {
+        boolean conflicts(int a, int b);
+    }
+
+    /**
+     * 按参数位置判断冲突：value a 位于参数 paramA，value b 位于参数 paramB
+     */
+    @FunctionalInterface
+    public interface PositionalConflict {
+        boolean conflicts(int paramA, int a, int paramB, int b);
+    }
+
+    public CoveringArrayGenerator(int[] domainSizes, int strength, int fillValue) {
+        this(domainSizes, strength, fillValue, (PositionalConflict) null);
+    }
+
+    /**
+     * @param domainSizes Number of values of each parameter.
+     * @param strength t; clamped to [1, number of parameters].
+     * @param fillValue Value used for don't-care slots left at the end (e.g. the id of "normal");
+     *                  must lie in the domain of every parameter.
+     * @param conflict Pairs of values that may not appear in the same row; null for none.
+     * @throws IllegalArgumentException if fillValue is outside the domain of some parameter.
+     */
+    public CoveringArrayGenerator(int[] domainSizes, int strength, int fillValue, ValueConflict conflict) {
+        this(domainSizes, strength, fillValue,
+                conflict == null ? null : (PositionalConflict) (paramA, a, paramB, b) -> conflict.conflicts(a, b));
+    }
+
+    /**
+     * @param conflict Pairs of (parameter, value) that may not appear in the same row; null for none.
+     */
+    public CoveringArrayGenerator(int[] domainSizes, int strength, int fillValue, PositionalConflict conflict) {
+        for (int i = 0; i < domainSizes.length; i++) {
+            if (fillValue < 0 || fillValue >= domainSizes[i]) {
+                throw new IllegalArgumentException("fillValue " + fillValue + " is outside the domain [0, "
+                        + domainSizes[i] + ") of parameter " + i);
+            }
+        }
+        this.domainSizes = domainSizes.clone();
+        this.strength = Math.max(1, Math.min(strength, domainSizes.length));
+        this.fillValue = fillValue;
+        this.conflict = conflict;
+    }
+
+    public List<int[]> generate() {
+        List<int[]> rows = new ArrayList<>();
+        int n = domainSizes.length;
+        if (n == 0) {
+            return rows;
+        }
+
+        // 1. 前 t 个参数穷举
+        int[] leading = new int[strength - 1];
+        for (int p = 0; p < leading.length; p++) {
+            leading[p] = p;
+        }
+        tupleCount(leading, strength - 1); // 溢出时在分配之前失败
+        int[] initial = new int[n];
+        Arrays.fill(initial, DONT_CARE);
+        enumerateInitial(rows, initial, 0);
+
+        // 2. 逐个加入剩余参数
+        for (int param = strength; param < n; param++) {
+            List<int[]> combinations = combinations(param, strength - 1);
+            boolean[][] uncovered = new boolean[combinations.size()][];
+            int remaining = 0;
+            int[] values = new int[strength];
+            for (int c = 0; c < combinations.size(); c++) {
+                uncovered[c] = new boolean[tupleCount(combinations.get(c), param)];
+                for (int tuple = 0; tuple < uncovered[c].length; tuple++) {
+                    // 含冲突值对的元组不需要覆盖
+                    decodeTuple(tuple, combinations.get(c), param, values);
+                    uncovered[c][tuple] = !hasConflict(combinations.get(c), param, values);
+                    remaining += uncovered[c][tuple] ? 1 : 0;
+                }
+            }
+
+            remaining = growHorizontally(rows, param, combinations, uncovered, remaining);
+            if (remaining > 0) {
+                growVertically(rows, param, combinations, uncovered);
+            }
+        }
+
+        for (int[] row : rows) {
+            for (int i = 0; i < n; i++) {
+                if (row[i] == DONT_CARE) {
+                    row[i] = fillValue;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private void enumerateInitial(List<int[]> rows, int[] current, int index) {
+        if (index == strength) {
+            rows.add(current.clone());
+            return;
+        }
+        for (int value = 0; value < domainSizes[index]; value++) {
+            if (conflictsWithRow(current, index, value)) {
+                continue;
+            }
+            current[index] = value;
+            enumerateInitial(rows, current, index + 1);
+        }
+        current[index] = DONT_CARE;
+    }
+
+    private int growHorizontally(List<int[]> rows, int param, List<int[]> combinations,
+                                 boolean[][] uncovered, int remaining) {
+        for (int[] row : rows) {
+            if (remaining == 0) {
+                // 所有元组已覆盖：新参数留作 don't-care，最后统一填充
+                break;
+            }
+            int bestValue = DONT_CARE;
+            int bestGain = -1;
+            for (int value = 0; value < domainSizes[param]; value++) {
+                if (conflictsWithRow(row, param, value)) {
+                    continue;
+                }
+                row[param] = value;
+                int gain = 0;
+                for (int c = 0; c < combinations.size(); c++) {
+                    int tuple = tupleIndex(row, combinations.get(c), param);
+                    if (tuple >= 0 && uncovered[c][tuple]) {
+                        gain++;
+                    }
+                }
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestValue = value;
+                }
+            }
+            row[param] = bestValue;
+            remaining -= markCovered(row, param, combinations, uncovered);
+        }
+        return remaining;
+    }
+
+    private void growVertically(List<int[]> rows, int param, List<int[]> combinations, boolean[][] uncovered) {
+        int[] values = new int[strength];
+        for (int c = 0; c < combinations.size(); c++) {
+            int[] combination = combinations.get(c);
+            for (int tuple = 0; tuple < uncovered[c].length; tuple++) {
+                if (!uncovered[c][tuple]) {
+                    continue;
+                }
+                decodeTuple(tuple, combination, param, values);
+                int[] target = null;
+                for (int[] row : rows) {
+                    if (isCompatible(row, combination, param, values)) {
+                        target = row;
+                        break;
+                    }
+                }
+                if (target == null) {
+                    target = new int[domainSizes.length];
+                    Arrays.fill(target, DONT_CARE);
+                    rows.add(target);
+                }
+                for (int j = 0; j < combination.length; j++) {
+                    target[combination[j]] = values[j];
+                }
+                target[param] = values[combination.length];
+                markCovered(target, param, combinations, uncovered);
+            }
+        }
+    }
+
+    private int markCovered(int[] row, int param, List<int[]> combinations, boolean[][] uncovered) {
+        int newlyCovered = 0;
+        for (int c = 0; c < combinations.size(); c++) {
+            int tuple = tupleIndex(row, combinations.get(c), param);
+            if (tuple >= 0 && uncovered[c][tuple]) {
+                uncovered[c][tuple] = false;
+                newlyCovered++;
+            }
+        }
+        return newlyCovered;
+    }
+
+    private boolean isCompatible(int[] row, int[] combination, int param, int[] values) {
+        for (int j = 0; j < combination.length; j++) {
+            int current = row[combination[j]];
+            if (current != DONT_CARE && current != values[j]) {
+                return false;
+            }
+        }
+        if (row[param] != DONT_CARE && row[param] != values[combination.length]) {
+            return false;
+        }
+        if (conflict != null) {
+            // 元组的值不能与该行其他位置已有的值冲突
+            for (int p = 0; p <= param; p++) {
+                if (row[p] == DONT_CARE || p == param || contains(combination, p)) {
+                    continue;
+                }
+                for (int j = 0; j < values.length; j++) {
+                    int position = j < combination.length ? combination[j] : param;
+                    if (conflict.conflicts(p, row[p], position, values[j])) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(int[] combination, int p) {
+        for (int c : combination) {
+            if (c == p) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasConflict(int[] combination, int param, int[] values) {
+        if (conflict == null) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            int positionI = i < combination.length ? combination[i] : param;
+            for (int j = i + 1; j < values.length; j++) {
+                int positionJ = j < combination.length ? combination[j] : param;
+                if (conflict.conflicts(positionI, values[i], positionJ, values[j])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether value at param conflicts with a value already set at an earlier position of the row.
+     */
+    private boolean conflictsWithRow(int[] row, int param, int value) {
+        if (conflict == null) {
+            return false;
+        }
+        for (int p = 0; p < param; p++) {
+            if (row[p] != DONT_CARE && conflict.conflicts(p, row[p], param, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mixed-radix index of the row's values on (combination, param), or -1 if any of them is a don't-care.
+     * The index is below {@link #tupleCount}, which is checked for overflow, so it fits in an int.
+     */
+    private int tupleIndex(int[] row, int[] combination, int param) {
+        int index = 0;
+        for (int p : combination) {
+            if (row[p] == DONT_CARE) {
+                return -1;
+            }
+            index = index * domainSizes[p] + row[p];
+        }
+        if (row[param] == DONT_CARE) {
+            return -1;
+        }
+        return index * domainSizes[param] + row[param];
+    }
+
+    private void decodeTuple(int tuple, int[] combination, int param, int[] values) {
+        values[combination.length] = tuple % domainSizes[param];
+        tuple /= domainSizes[param];
+        for (int j = combination.length - 1; j >= 0; j--) {
+            values[j] = tuple % domainSizes[combination[j]];
+            tuple /= domainSizes[combination[j]];
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the number of value tuples does not fit in an int.
+     */
+    private int tupleCount(int[] combination, int param) {
+        try {
+            int count = domainSizes[param];
+            for (int p : combination) {
+                count = Math.multiplyExact(count, domainSizes[p]);
+            }
+            return count;
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Too many " + strength + "-wise value tuples for parameters "
+                    + Arrays.toString(combination) + " and " + param + "; lower the strength or the domain sizes", e);
+        }
+    }
+
+    /**
+     * All size-r subsets of {0, ..., n-1}, each in ascending order.
+     */
+    private static List<int[]> combinations(int n, int r) {
+        List<int[]> result = new ArrayList<>();
+        int[] current = new int[r];
+        collectCombinations(result, current, 0, 0, n);
+        return result;
+    }
+
+    private static void collectCombinations(List<int[]> result, int[] current, int depth, int start, int n) {
+        if (depth == current.length) {
+            result.add(current.clone());
+            return;
+        }
+        for (int i = start; i < n; i++) {
+            current[depth] = i;
+            collectCombinations(result, current, depth + 1, i + 1, n);
+        }
+    }
+}
@@ -1,19 +1,31 @@
 package edu.unl.exceptionamplifier.builder;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.HashMap;
-import com.openai.client.OpenAIClient;
-import com.openai.client.okhttp.OpenAIOkHttpClient;
-import com.openai.models.chat.completions.ChatCompletion;
-import com.openai.models.chat.completions.ChatCompletionCreateParams;
-import io.github.cdimascio.dotenv.Dotenv; // 自动.env加载
-
-import com.alibaba.fastjson.JSONArray;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import edu.unl.exceptionamplifier.llm.LLMPatternProvider;
+import edu.unl.exceptionamplifier.llm.LLMPatternStream;
+import edu.unl.exceptionamplifier.llm.LLMResponseCache;
+import edu.unl.exceptionamplifier.llm.PatternValidator;
+import edu.unl.exceptionamplifier.llm.StreamingPatternParser;
+import edu.unl.exceptionamplifier.model.ExceptionDependencyMatrix;
+import edu.unl.exceptionamplifier.model.PatternSpace;
+import edu.unl.exceptionamplifier.util.ExceptionReflectionUtils;
 
 public class ExceptionalSpaceBuilder {
     // Define an enum for generation strategies
@@ -21,11 +33,28 @@ public class ExceptionalSpaceBuilder {
         EXHAUSTIVE, // 穷尽式
         HIGH_RISK_SELECTIVE, // 由HighRisk参与的选择性生成
         LLM_BASED, // LLM参与的所有可能的模拟模式组合
-        DEFAULT_RISK_BASED // 默认的基于风险的生成（结合了单一异常和高风险API对）
+        DEFAULT_RISK_BASED, // 默认的基于风险的生成（结合了单一异常和高风险API对）
+        T_WISE, // t-wise 覆盖数组：任意 t 个调用位置的所有状态组合至少出现一次
+        LLM_FEEDBACK // 多轮 LLM 生成，每轮根据执行结果反馈，见 explorer.LLMFeedbackLoop
     }
 
     private final Set<String> exceptionSpace = new HashSet<>();
     private final Map<String, Double> apiRiskScores = new HashMap<>(); // Example: apiRiskScores.put("api1", 1.5);
+    private final Map<Integer, Double> positionRiskScores = new HashMap<>(); // 按调用位置覆盖 apiRiskScores
+    private final Map<String, Double> exceptionWeights = new HashMap<>(); // 未设置的异常权重为 1.0
+    private double riskThreshold = 1.2; // 风险分高于该值的调用位置视为高风险
+    private double baseFailureOdds = 0.1; // 平均风险的调用失败的几率
+    private int selectionBudget = 100; // HIGH_RISK_SELECTIVE 默认选出的模式数
+    private boolean excludeDependentExceptions = true; // 不生成同时注入相互依赖异常的模式
+    private Map<String, String> serviceClasses; // 服务名 -> 被测类名；非 null 时排除方法未声明的受检异常
+
+    public static final String LLM_MODEL = "qwen-plus";
+    public static final String LLM_OFFLINE_PROPERTY = "exceptionamplifier.llm.offline";
+    private LLMResponseCache llmCache = new LLMResponseCache(); // null 表示不缓存
+    private boolean llmOffline = Boolean.getBoolean(LLM_OFFLINE_PROPERTY); // 只从缓存读取，不访问网络
+    private LLMPatternProvider llmProvider; // 首次调用 LLM 时按环境变量创建
+    private int llmParallelism = 4; // 同时进行的 LLM 请求数上限
+    private volatile Consumer<PatternValidator> validationSink; // null 表示不报告校验统计
 
     public ExceptionalSpaceBuilder() {
     }
@@ -38,13 +67,167 @@ public class ExceptionalSpaceBuilder {
         return new HashSet<>(exceptionSpace);
     }
 
-    // Method to set API risk scores, useful for HIGH_RISK_SELECTIVE
+    // Method to set API risk scores, used by DEFAULT_RISK_BASED pairs and HIGH_RISK_SELECTIVE scoring
     public void setApiRiskScore(String apiCall, double score) {
         this.apiRiskScores.put(apiCall, score);
     }
 
     /**
-     * 生成基于风险的测试用例 (can be used for DEFAULT_RISK_BASED and as a basis for HIGH_RISK_SELECTIVE)
+     * 为单个调用位置设置风险分，用于同一 API 在序列中多次出现但风险不同的情况
+     */
+    public void setPositionRiskScore(int position, double score) {
+        this.positionRiskScores.put(position, score);
+    }
+
+    /**
+     * 设置异常类型的相对权重（默认 1.0，须为正数），用于 HIGH_RISK_SELECTIVE 的评分
+     */
+    public void setExceptionWeight(String exceptionType, double weight) {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("Weight of " + exceptionType + " must be positive: " + weight);
+        }
+        this.exceptionWeights.put(exceptionType, weight);
+    }
+
+    public void setRiskThreshold(double riskThreshold) {
+        this.riskThreshold = riskThreshold;
+    }
+
+    /**
+     * 平均风险 (1.0) 的调用失败的几率，须为正数；越小越偏向少量异常的模式
+     */
+    public void setBaseFailureOdds(double baseFailureOdds) {
+        if (!(baseFailureOdds > 0)) {
+            throw new IllegalArgumentException("baseFailureOdds must be positive: " + baseFailureOdds);
+        }
+        this.baseFailureOdds = baseFailureOdds;
+    }
+
+    /**
+     * HIGH_RISK_SELECTIVE 在未指定数量时选出的模式数，通常与 TestExplorer 的执行预算一致
+     */
+    public void setSelectionBudget(int selectionBudget) {
+        this.selectionBudget = selectionBudget;
+    }
+
+    /**
+     * 是否排除同时注入相互依赖异常（按类层次判断，见 ExceptionDependencyMatrix）的模式，默认排除
+     */
+    public void setExcludeDependentExceptions(boolean excludeDependentExceptions) {
+        this.excludeDependentExceptions = excludeDependentExceptions;
+    }
+
+    /**
+     * 只在方法声明了对应受检异常的调用位置注入该异常（非受检异常不受限制）；null 关闭该限制
+     * Applies to EXHAUSTIVE, DEFAULT_RISK_BASED, HIGH_RISK_SELECTIVE and T_WISE.
+     *
+     * @param serviceKeyToClassNameMap Maps the part of an API call string before the first '.' to
+     *                                 the class declaring the method, as for
+     *                                 {@link ExceptionReflectionUtils#countDeclaredExceptions}.
+     */
+    public void setServiceClasses(Map<String, String> serviceKeyToClassNameMap) {
+        this.serviceClasses = serviceKeyToClassNameMap == null ? null : new HashMap<>(serviceKeyToClassNameMap);
+    }
+
+    /**
+     * @return the legal states per call position, or null when every state is legal everywhere.
+     */
+    private boolean[][] legalStatesOf(PatternSpace space, List<String> apiCalls) {
+        return serviceClasses == null ? null : ExceptionReflectionUtils.legalStates(space, apiCalls, serviceClasses);
+    }
+
+    /**
+     * @return the dependency matrix of the exception types, or null when dependent exceptions are not excluded.
+     */
+    private ExceptionDependencyMatrix dependenciesOf(List<String> exceptionTypes) {
+        return excludeDependentExceptions ? ExceptionDependencyMatrix.of(exceptionTypes) : null;
+    }
+
+    /**
+     * 可切分遍历器使用的过滤条件：模式由 space 紧凑编码，按状态 id 查合法状态表与依赖矩阵
+     */
+    private Predicate<List<String>> validPatterns(PatternSpace space, List<String> apiCalls, List<String> exceptionTypes) {
+        ExceptionDependencyMatrix dependencies = dependenciesOf(exceptionTypes);
+        boolean[][] legal = legalStatesOf(space, apiCalls);
+        if (dependencies == null && legal == null) {
+            return null;
+        }
+        int[] ids = dependencies != null ? dependencies.idsOf(space) : null;
+        return pattern -> {
+            PatternSpace.PatternView view = (PatternSpace.PatternView) pattern;
+            if (legal != null) {
+                for (int i = 0; i < legal.length; i++) {
+                    if (!legal[i][view.stateId(i)]) {
+                        return false;
+                    }
+                }
+            }
+            return dependencies == null || dependencies.isValid(view, ids);
+        };
+    }
+
+    /**
+     * 设置 LLM 响应缓存，传入 null 关闭缓存
+     */
+    public void setLLMCache(LLMResponseCache llmCache) {
+        this.llmCache = llmCache;
+    }
+
+    /**
+     * 每个 LLM 响应解析完后接收其校验统计（接受、修复、丢弃的行数）；null（默认）不报告
+     * Streamed responses are reported from the provider's threads, so the sink may be called
+     * concurrently.
+     */
+    public void setValidationSink(Consumer<PatternValidator> validationSink) {
+        this.validationSink = validationSink;
+    }
+
+    /**
+     * 离线模式：LLM 策略只回放缓存中的响应，缓存未命中时返回空列表。
+     * Also enabled with {@code -Dexceptionamplifier.llm.offline=true}.
+     */
+    public void setLLMOffline(boolean llmOffline) {
+        this.llmOffline = llmOffline;
+    }
+
+    /**
+     * 使用指定的 LLM 调用器（例如指向 LocalLLMStubServer），替代按环境变量创建的默认调用器
+     */
+    public synchronized void setLLMProvider(LLMPatternProvider llmProvider) {
+        this.llmProvider = llmProvider;
+    }
+
+    /**
+     * 默认调用器的并发上限，需在首次调用 LLM 之前设置
+     */
+    public void setLLMParallelism(int llmParallelism) {
+        this.llmParallelism = llmParallelism;
+    }
+
+    /**
+     * 请求实际使用的模型：设置了调用器时取它的模型，否则为默认调用器的 {@link #LLM_MODEL}
+     */
+    private synchronized String llmModel() {
+        return llmProvider != null ? llmProvider.getModel() : LLM_MODEL;
+    }
+
+    private synchronized LLMPatternProvider getLLMProvider() {
+        if (llmProvider == null) {
+            llmProvider = LLMPatternProvider.fromEnvironment(LLM_MODEL, llmParallelism);
+        }
+        return llmProvider;
+    }
+
+    private double riskOf(List<String> apiCalls, int position) {
+        Double score = positionRiskScores.get(position);
+        if (score != null) {
+            return score;
+        }
+        return apiRiskScores.getOrDefault(apiCalls.get(position), 1.0);
+    }
+
+    /**
+     * 生成基于风险的测试用例 (DEFAULT_RISK_BASED)
      */
     public List<List<String>> generateRiskBasedPatterns(List<String> apiCalls,
                                                       List<String> exceptionTypes) {
@@ -52,70 +235,78 @@ public class ExceptionalSpaceBuilder {
         if (apiCalls == null || apiCalls.isEmpty()) {
             return patterns;
         }
-//        List<String> allPossibleStates = new ArrayList<>(exceptionTypes);
-//        allPossibleStates.add("normal");
-
         // 1. Normal case (all calls are normal)
-        patterns.add(Collections.nCopies(apiCalls.size(), "normal"));
-
         // 2. Single exception patterns (one API call fails, others are normal)
-        for (int i = 0; i < apiCalls.size(); i++) {
-            for (String exception : exceptionTypes) {
-                List<String> pattern = new ArrayList<>(Collections.nCopies(apiCalls.size(), "normal"));
-                pattern.set(i, exception);
-                patterns.add(pattern);
-            }
-        }
-
         // 3. High-risk combinations (based on apiRiskScores)
-        // This part can be enhanced for a more sophisticated HIGH_RISK_SELECTIVE mode
-        generateHighRiskPatterns(apiCalls, exceptionTypes, patterns);
-
+        riskBasedSpliterator(apiCalls, exceptionTypes).forEachRemaining(patterns::add);
         return patterns;
     }
 
     /**
-     * 生成高风险组合的测试用例
-     * This is a helper for generateRiskBasedPatterns and can be expanded for HIGH_RISK_SELECTIVE
+     * 基于风险的模式空间的可切分遍历器，顺序与 generateRiskBasedPatterns 一致
      */
-    private void generateHighRiskPatterns(List<String> apiCalls,
-                                        List<String> exceptionTypes,
-                                        List<List<String>> patterns) {
-        // 识别高风险API组合
-        List<String> highRiskApis = new ArrayList<>();
-        // Example threshold, can be configurable
-        double riskThreshold = 1.2;
-        for (Map.Entry<String, Double> entry : apiRiskScores.entrySet()) {
-            if (entry.getValue() > riskThreshold && apiCalls.contains(entry.getKey())) {
-                highRiskApis.add(entry.getKey());
+    public Spliterator<List<String>> riskBasedSpliterator(List<String> apiCalls, List<String> exceptionTypes) {
+        if (apiCalls == null || apiCalls.isEmpty()) {
+            return Spliterators.emptySpliterator();
+        }
+        PatternSpace space = createPatternSpace(apiCalls, exceptionTypes);
+        RiskBasedPatternIndex index = new RiskBasedPatternIndex(
+                space,
+                new ArrayList<>(new LinkedHashSet<>(exceptionTypes)),
+                highRiskPositionPairs(apiCalls));
+        return new IndexedPatternSpliterator(index::patternAt, 0, index.size(), validPatterns(space, apiCalls, exceptionTypes));
+    }
+
+    /**
+     * 识别高风险API组合
+     * Returns every pair of call positions whose risk score exceeds the risk threshold. Positions
+     * are scanned directly, so an API that occurs several times in the sequence contributes each
+     * of its occurrences.
+     */
+    private int[][] highRiskPositionPairs(List<String> apiCalls) {
+        List<Integer> highRiskPositions = new ArrayList<>();
+        for (int i = 0; i < apiCalls.size(); i++) {
+            if (riskOf(apiCalls, i) > riskThreshold) {
+                highRiskPositions.add(i);
             }
         }
 
-        // 为高风险API生成异常组合 (currently pairs of high-risk APIs)
-        // This logic can be made more sophisticated for HIGH_RISK_SELECTIVE
-        if (highRiskApis.size() >= 2) {
-            for (int i = 0; i < highRiskApis.size(); i++) {
-                for (int j = i + 1; j < highRiskApis.size(); j++) {
-                    String highRiskApi1 = highRiskApis.get(i);
-                    String highRiskApi2 = highRiskApis.get(j);
-                    int index1 = apiCalls.indexOf(highRiskApi1);
-                    int index2 = apiCalls.indexOf(highRiskApi2);
-
-                    if (index1 == -1 || index2 == -1) continue; // Should not happen if highRiskApis are derived from apiCalls
-
-                    for (String ex1 : exceptionTypes) {
-                        for (String ex2 : exceptionTypes) {
-                            List<String> pattern = new ArrayList<>(Collections.nCopies(apiCalls.size(), "normal"));
-                            pattern.set(index1, ex1);
-                            pattern.set(index2, ex2);
-                            patterns.add(pattern);
-                        }
-                    }
-                }
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; i < highRiskPositions.size(); i++) {
+            for (int j = i + 1; j < highRiskPositions.size(); j++) {
+                pairs.add(new int[]{highRiskPositions.get(i), highRiskPositions.get(j)});
             }
         }
-        // Consider adding patterns for single high-risk APIs having an exception if not covered
-        // or if HIGH_RISK_SELECTIVE requires more focused single high-risk API patterns.
+        return pairs.toArray(new int[0][]);
+    }
+
+    /**
+     * 高风险选择性生成：按风险评分选出最优的 budget 个模式
+     * A pattern's score is the product over call positions of 1 for "normal" and
+     * {@code baseFailureOdds * risk(position) * weight(exception)} otherwise, where risk comes from
+     * {@link #setPositionRiskScore} or {@link #setApiRiskScore} (default 1.0) and exception weights are
+     * normalized to mean 1. Patterns are enumerated best-first, so the cost grows with the budget and
+     * not with the size of the space.
+     *
+     * @param budget Number of patterns to return, e.g. the explorer's execution budget.
+     */
+    public List<List<String>> generateHighRiskSelectivePatterns(List<String> apiCalls, List<String> exceptionTypes, int budget) {
+        if (apiCalls == null || apiCalls.isEmpty()) {
+            return new ArrayList<>();
+        }
+        PatternSpace space = createPatternSpace(apiCalls, exceptionTypes);
+        double[] positionRisk = new double[apiCalls.size()];
+        for (int i = 0; i < positionRisk.length; i++) {
+            positionRisk[i] = riskOf(apiCalls, i);
+        }
+        double[] weights = new double[space.radix()];
+        for (int id = 0; id < space.radix(); id++) {
+            weights[id] = exceptionWeights.getOrDefault(space.stateName(id), 1.0);
+        }
+        HighRiskPatternSelector selector = new HighRiskPatternSelector(space, positionRisk, weights, baseFailureOdds);
+        selector.setLegalStates(legalStatesOf(space, apiCalls));
+        selector.setDependencies(dependenciesOf(exceptionTypes));
+        return selector.selectTop(budget);
     }
 
     /**
@@ -123,6 +314,8 @@ public class ExceptionalSpaceBuilder {
      * Generates exhaustive patterns for the first k API calls.
      * For N calls and M exception types (+ "normal"), generates (M+1)^k patterns for the first k calls.
      * Remaining N-k calls are set to "normal".
+     * The whole space is materialized, so it is capped at 100,000 patterns; use
+     * {@link #iterateExhaustivePatterns(List, List, int)} to walk larger spaces lazily.
      *
      * @param apiCalls List of API call identifiers.
      * @param exceptionTypes List of possible exception types.
@@ -135,52 +328,180 @@ public class ExceptionalSpaceBuilder {
             return patterns;
         }
 
-        int n = apiCalls.size();
-        int numCallsToVary = Math.min(k, n);
-
-        List<String> possibleStates = new ArrayList<>(exceptionTypes);
-        possibleStates.add("normal"); // Add "normal" state
-
-        int numStates = possibleStates.size();
-        long totalPatternsToGenerate = (long) Math.pow(numStates, numCallsToVary);
+        int numCallsToVary = Math.min(k, apiCalls.size());
+        long totalPatternsToGenerate = countExhaustivePatterns(apiCalls, exceptionTypes, k);
 
         // To prevent generating an excessive number of patterns that might lead to memory issues.
         // This limit can be adjusted.
         if (totalPatternsToGenerate > 100000) { // Example limit
             System.err.println("Warning: Exhaustive pattern generation for k=" + numCallsToVary +
                                " would create " + totalPatternsToGenerate +
-                               " patterns, which exceeds the limit. Returning empty list.");
+                               " patterns, which exceeds the limit. Returning empty list." +
+                               " Use iterateExhaustivePatterns to stream them instead.");
             // Or, alternatively, could throw an exception or return a subset.
             return patterns;
         }
 
-        // Helper for recursive generation
-        generateExhaustiveRecursive(apiCalls, possibleStates, numCallsToVary, n, 0, new ArrayList<>(Collections.nCopies(n, "normal")), patterns);
-
+        Iterator<List<String>> iterator = iterateExhaustivePatterns(apiCalls, exceptionTypes, k);
+        while (iterator.hasNext()) {
+            patterns.add(iterator.next());
+        }
         return patterns;
     }
 
-    private void generateExhaustiveRecursive(List<String> apiCalls, List<String> possibleStates,
-                                             int k, int n, int currentIndex,
-                                             List<String> currentPattern, List<List<String>> allPatterns) {
-        if (currentIndex == k) {
-            // First k calls have been set, the rest are 'normal' (already initialized)
-            allPatterns.add(new ArrayList<>(currentPattern));
-            return;
+    /**
+     * 惰性生成穷尽式模式
+     * Same space and order as {@link #generateExhaustivePatterns(List, List, int)}, but patterns are
+     * produced on demand by a mixed-radix counter, so memory stays constant regardless of space size.
+     */
+    public Iterator<List<String>> iterateExhaustivePatterns(List<String> apiCalls, List<String> exceptionTypes, int k) {
+        if (apiCalls == null || apiCalls.isEmpty()) {
+            return Collections.emptyIterator();
         }
+        PatternSpace space = createPatternSpace(apiCalls, exceptionTypes);
+        int varied = Math.max(0, Math.min(k, apiCalls.size()));
+        return new ExhaustivePatternIterator(space, k, 0, ExhaustivePatternIterator.spaceSize(space.radix(), varied),
+                dependenciesOf(exceptionTypes), legalStatesOf(space, apiCalls));
+    }
 
-        for (String state : possibleStates) {
-            currentPattern.set(currentIndex, state);
-            generateExhaustiveRecursive(apiCalls, possibleStates, k, n, currentIndex + 1, currentPattern, allPatterns);
+    /**
+     * 穷尽式模式空间的可切分遍历器
+     * Each pattern is computed from its index, so the range can be split across a ForkJoinPool.
+     */
+    public Spliterator<List<String>> exhaustiveSpliterator(List<String> apiCalls, List<String> exceptionTypes, int k) {
+        if (apiCalls == null || apiCalls.isEmpty()) {
+            return Spliterators.emptySpliterator();
+        }
+        PatternSpace space = createPatternSpace(apiCalls, exceptionTypes);
+        long size = ExhaustivePatternIterator.spaceSize(space.radix(), Math.max(0, Math.min(k, apiCalls.size())));
+        return new IndexedPatternSpliterator(index -> ExhaustivePatternIterator.patternAt(space, k, index),
+                0, size, validPatterns(space, apiCalls, exceptionTypes));
+    }
+
+    /**
+     * Stream view of {@link #iterateExhaustivePatterns(List, List, int)}; call {@code parallel()} to
+     * partition generation across cores.
+     */
+    public Stream<List<String>> streamExhaustivePatterns(List<String> apiCalls, List<String> exceptionTypes, int k) {
+        return StreamSupport.stream(exhaustiveSpliterator(apiCalls, exceptionTypes, k), false);
+    }
+
+    /**
+     * 以流的形式生成模式；EXHAUSTIVE 与 DEFAULT_RISK_BASED 的空间可切分，parallel 为 true 时并行生成
+     */
+    public Stream<List<String>> streamMockingPatterns(List<String> apiCalls,
+                                                      List<String> exceptionTypes,
+                                                      PatternGenerationStrategy strategy,
+                                                      int kForExhaustive,
+                                                      boolean parallel) {
+        Spliterator<List<String>> spliterator;
+        switch (strategy) {
+            case EXHAUSTIVE:
+                int k = kForExhaustive <= 0 ? apiCalls.size() : kForExhaustive;
+                spliterator = exhaustiveSpliterator(apiCalls, exceptionTypes, k);
+                break;
+            case DEFAULT_RISK_BASED:
+                spliterator = riskBasedSpliterator(apiCalls, exceptionTypes);
+                break;
+            default:
+                spliterator = generateMockingPatterns(apiCalls, exceptionTypes, strategy, kForExhaustive).spliterator();
+        }
+        return StreamSupport.stream(spliterator, parallel);
+    }
+
+    /**
+     * Size of the exhaustive space for the first k calls, saturating at Long.MAX_VALUE. Illegal
+     * checked exceptions (see {@link #setServiceClasses}) are left out, patterns injecting dependent
+     * exceptions are included, so this is an upper bound on what is generated.
+     */
+    public long countExhaustivePatterns(List<String> apiCalls, List<String> exceptionTypes, int k) {
+        if (apiCalls == null || apiCalls.isEmpty()) {
+            return 0;
         }
+        PatternSpace space = createPatternSpace(apiCalls, exceptionTypes);
+        int varied = Math.max(0, Math.min(k, apiCalls.size()));
+        boolean[][] legal = legalStatesOf(space, apiCalls);
+        return legal == null
+                ? ExhaustivePatternIterator.spaceSize(space.radix(), varied)
+                : ExhaustivePatternIterator.legalSpaceSize(legal, varied);
     }
 
+    /**
+     * 构造紧凑编码空间：每个调用位置的状态为 exceptionTypes 之一或 "normal"
+     */
+    public PatternSpace createPatternSpace(List<String> apiCalls, List<String> exceptionTypes) {
+        return new PatternSpace(apiCalls.size(), exceptionTypes);
+    }
 
-    // Refactored main generation method
+    /**
+     * 生成 t-wise 覆盖数组模式
+     * Every combination of states across any t API-call positions appears in at least one pattern
+     * (IPOG). For 7 calls with 9 states, pairwise coverage needs roughly a hundred patterns instead of
+     * the 4.7M of the exhaustive space. Don't-care slots are filled with "normal". Combinations of
+     * dependent exceptions are neither required nor produced unless excluding them is turned off.
+     * With {@link #setServiceClasses} each position only takes its legal states, so no pattern
+     * injects a checked exception the call does not declare.
+     *
+     * @param t Interaction strength; 2 gives pairwise coverage. If t >= N the result is exhaustive.
+     */
+    public List<List<String>> generateTWisePatterns(List<String> apiCalls, List<String> exceptionTypes, int t) {
+        List<List<String>> patterns = new ArrayList<>();
+        if (apiCalls == null || apiCalls.isEmpty()) {
+            return patterns;
+        }
+        PatternSpace space = createPatternSpace(apiCalls, exceptionTypes);
+        // 每个位置的取值为其合法状态 id，"normal" 排在第 0 个，用作填充值
+        int[][] statesAt = legalStateIds(space, legalStatesOf(space, apiCalls));
+        int[] domainSizes = new int[statesAt.length];
+        for (int i = 0; i < statesAt.length; i++) {
+            domainSizes[i] = statesAt[i].length;
+        }
+        ExceptionDependencyMatrix dependencies = dependenciesOf(exceptionTypes);
+        CoveringArrayGenerator.PositionalConflict conflict = null;
+        if (dependencies != null) {
+            int[] ids = dependencies.idsOf(space);
+            conflict = (paramA, a, paramB, b) -> dependencies.isDependent(ids[statesAt[paramA][a]], ids[statesAt[paramB][b]]);
+        }
+        for (int[] row : new CoveringArrayGenerator(domainSizes, t, 0, conflict).generate()) {
+            byte[] packed = new byte[row.length];
+            for (int i = 0; i < row.length; i++) {
+                packed[i] = (byte) statesAt[i][row[i]];
+            }
+            patterns.add(space.isRankable() ? space.view(space.rank(packed)) : space.view(packed));
+        }
+        return patterns;
+    }
+
+    /**
+     * @param legal Legal states per position, or null when every state is legal everywhere.
+     * @return the legal state ids of each position, "normal" first and the rest in id order.
+     */
+    private static int[][] legalStateIds(PatternSpace space, boolean[][] legal) {
+        int[][] statesAt = new int[space.length()][];
+        for (int i = 0; i < statesAt.length; i++) {
+            int[] ids = new int[space.radix()];
+            int count = 0;
+            ids[count++] = space.normalId();
+            for (int id = 0; id < space.radix(); id++) {
+                if (id != space.normalId() && (legal == null || legal[i][id])) {
+                    ids[count++] = id;
+                }
+            }
+            statesAt[i] = Arrays.copyOf(ids, count);
+        }
+        return statesAt;
+    }
+
+    /**
+     * Refactored main generation method
+     *
+     * @throws IllegalStateException for LLM_FEEDBACK, whose rounds depend on execution results; use
+     *                               {@code LLMFeedbackLoop} for it.
+     */
     public List<List<String>> generateMockingPatterns(List<String> apiCalls,
                                                     List<String> exceptionTypes,
                                                     PatternGenerationStrategy strategy,
-                                                    int kForExhaustive) { // kForExhaustive is only used for EXHAUSTIVE strategy
+                                                    int kForExhaustive) { // kForExhaustive is k for EXHAUSTIVE, the strength t for T_WISE and the pattern budget for HIGH_RISK_SELECTIVE
         switch (strategy) {
             case EXHAUSTIVE:
                 if (kForExhaustive <= 0) {
@@ -189,22 +510,44 @@ public class ExceptionalSpaceBuilder {
                 }
                 return generateExhaustivePatterns(apiCalls, exceptionTypes, kForExhaustive);
             case HIGH_RISK_SELECTIVE:
-                // For HIGH_RISK_SELECTIVE, we might want a more tailored approach.
-                // For now, it can use generateRiskBasedPatterns, which includes high-risk pairs.
-                // This can be expanded based on more specific requirements for "HighRisk参与的选择性生成".
-                // For example, you might want to prompt the user for which specific high-risk APIs to focus on,
-                // or implement a more advanced selection logic.
-                System.out.println("Note: HIGH_RISK_SELECTIVE currently uses the default risk-based pattern generation. " +
-                                   "Further refinement might be needed for specific selective logic.");
-                return generateRiskBasedPatterns(apiCalls, exceptionTypes);
+                // k 为选出的模式数，未指定时使用 selectionBudget
+                return generateHighRiskSelectivePatterns(apiCalls, exceptionTypes,
+                        kForExhaustive <= 0 ? selectionBudget : kForExhaustive);
             case LLM_BASED:
                 return generateMockingPatternsWithLLM(apiCalls, exceptionTypes);
+            case LLM_FEEDBACK:
+                // 反馈轮次需要执行结果，不能脱离 TestExplorer 单独生成
+                throw new IllegalStateException("LLM_FEEDBACK generates patterns from exploration results; "
+                        + "run it with edu.unl.exceptionamplifier.explorer.LLMFeedbackLoop");
+            case T_WISE:
+                // Default to pairwise coverage if t is not specified
+                return generateTWisePatterns(apiCalls, exceptionTypes, kForExhaustive <= 0 ? 2 : kForExhaustive);
             case DEFAULT_RISK_BASED:
             default:
                 return generateRiskBasedPatterns(apiCalls, exceptionTypes);
         }
     }
 
+    /**
+     * 惰性版本的 generateMockingPatterns
+     * EXHAUSTIVE is generated on demand without the materialization limit and LLM_BASED yields rows
+     * while the response is still streaming; the other strategies produce bounded lists and are
+     * simply iterated.
+     */
+    public Iterator<List<String>> iterateMockingPatterns(List<String> apiCalls,
+                                                         List<String> exceptionTypes,
+                                                         PatternGenerationStrategy strategy,
+                                                         int kForExhaustive) {
+        if (strategy == PatternGenerationStrategy.EXHAUSTIVE) {
+            int k = kForExhaustive <= 0 ? apiCalls.size() : kForExhaustive;
+            return iterateExhaustivePatterns(apiCalls, exceptionTypes, k);
+        }
+        if (strategy == PatternGenerationStrategy.LLM_BASED) {
+            return iterateLLMPatterns(apiCalls, exceptionTypes);
+        }
+        return generateMockingPatterns(apiCalls, exceptionTypes, strategy, kForExhaustive).iterator();
+    }
+
     // Overloaded method for convenience, defaulting to DEFAULT_RISK_BASED
     public List<List<String>> generateMockingPatterns(List<String> apiCalls, List<String> exceptionTypes) {
         return generateMockingPatterns(apiCalls, exceptionTypes, PatternGenerationStrategy.DEFAULT_RISK_BASED, apiCalls.size());
@@ -220,14 +563,16 @@ public class ExceptionalSpaceBuilder {
         return generateMockingPatterns(apiCalls, exceptionTypes, PatternGenerationStrategy.DEFAULT_RISK_BASED, apiCalls.size());
     }
 
-    private List<List<String>> generateMockingPatternsWithLLM(List<String> apiCalls,
-                                                            List<String> exceptionTypes) {
+    /**
+     * 构造 LLM_BASED 策略使用的 prompt
+     */
+    public String buildLLMPrompt(List<String> apiCalls, List<String> exceptionTypes) {
         // Construct a more detailed prompt for the LLM
         String apiCallString = String.join(", ", apiCalls);
         String exceptionTypeString = String.join(", ", exceptionTypes);
 
         // Enhanced prompt for LLM
-        String prompt = String.format(
+        return String.format(
             "Consider a sequence of %d API calls: [%s]. " +
             "The possible states for each API call are 'normal' or one of the following exception types: [%s]. " +
             "Generate a diverse and comprehensive set of mock patterns representing different scenarios of these API calls failing or succeeding. " +
@@ -237,89 +582,180 @@ public class ExceptionalSpaceBuilder {
             "Do not include any explanations, comments, or natural language outside of the JSON array itself.",
             apiCalls.size(), apiCallString, exceptionTypeString
         );
+    }
+
+    /**
+     * 构造 LLM_FEEDBACK 后续轮次的 prompt：在原始描述之后附上上一轮的执行反馈
+     *
+     * @param feedback Summary of earlier rounds (productive and redundant patterns, chains found).
+     * @param batchSize Number of new patterns to ask for.
+     */
+    public String buildLLMFeedbackPrompt(List<String> apiCalls, List<String> exceptionTypes, String feedback, int batchSize) {
+        return buildLLMPrompt(apiCalls, exceptionTypes) + "\n\n" +
+                "These patterns have already been executed against the system under test. Feedback:\n" +
+                feedback + "\n" +
+                String.format("Generate up to %d NEW patterns that are not in the executed list. " +
+                        "Favor variations of the productive patterns and scenarios likely to trigger failure chains " +
+                        "that have not been observed yet; avoid patterns similar to the redundant ones.", batchSize);
+    }
 
-        String llmResponse = callLLM(prompt);
-        return parseMockPatterns(llmResponse);
+    private List<List<String>> generateMockingPatternsWithLLM(List<String> apiCalls,
+                                                            List<String> exceptionTypes) {
+        return generateLLMPatterns(buildLLMPrompt(apiCalls, exceptionTypes), apiCalls, exceptionTypes);
     }
 
     /**
-     * 调用OpenAI官方或兼容API（如阿里云 DashScope）。
-     * 支持通过环境变量或 .env 文件配置 apiKey 和 baseUrl。
-     * 推荐在 .env 文件中设置：
-     *   OPENAI_API_KEY=你的APIKey
-     *   OPENAI_BASE_URL=https://dashscope.aliyuncs.com/compatible-mode/v1
+     * 用给定 prompt 生成 LLM 模式（经过缓存、解析与校验）
      */
-    private String callLLM(String prompt) {
-        try {
-            // 优先用系统环境变量，其次加载 .env
-            String apiKey = System.getenv("DASHSCOPE_API_KEY");
-            String baseUrl = System.getenv("DASHSCOPE_BASE_URL");
-            if ((apiKey == null || apiKey.isEmpty()) || (baseUrl == null || baseUrl.isEmpty())) {
-                Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
-                if (apiKey == null || apiKey.isEmpty()) {
-                    apiKey = dotenv.get("DASHSCOPE_API_KEY");
-                }
-                if (baseUrl == null || baseUrl.isEmpty()) {
-                    baseUrl = dotenv.get("DASHSCOPE_BASE_URL");
-                }
+    public List<List<String>> generateLLMPatterns(String prompt, List<String> apiCalls, List<String> exceptionTypes) {
+        String llmResponse = cachedCallLLM(prompt, apiCalls, exceptionTypes).join();
+        return parseMockPatterns(llmResponse, apiCalls, exceptionTypes);
+    }
+
+    /**
+     * 为多个 API 序列并发生成 LLM 模式，结果与 apiSequences 的顺序一致
+     */
+    public List<List<List<String>>> generateLLMPatternsForSequences(List<List<String>> apiSequences,
+                                                                    List<String> exceptionTypes) {
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        for (List<String> apiCalls : apiSequences) {
+            responses.add(cachedCallLLM(buildLLMPrompt(apiCalls, exceptionTypes), apiCalls, exceptionTypes));
+        }
+        List<List<List<String>>> results = new ArrayList<>();
+        for (CompletableFuture<String> response : responses) {
+            results.add(parseMockPatterns(response.join(), apiSequences.get(results.size()), exceptionTypes));
+        }
+        return results;
+    }
+
+    /**
+     * 将异常类型分成 chunks 组，每组一个 prompt 并发请求，合并去重后的模式
+     * Smaller prompts come back faster and each one focuses the LLM on a few exception types, so the
+     * merged set tends to cover more types than a single prompt listing all of them.
+     */
+    public List<List<String>> generateLLMPatternsConcurrently(List<String> apiCalls,
+                                                              List<String> exceptionTypes,
+                                                              int chunks) {
+        int chunkCount = Math.max(1, Math.min(chunks, exceptionTypes.size()));
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        for (int c = 0; c < chunkCount; c++) {
+            List<String> chunk = exceptionTypes.subList(c * exceptionTypes.size() / chunkCount,
+                    (c + 1) * exceptionTypes.size() / chunkCount);
+            responses.add(cachedCallLLM(buildLLMPrompt(apiCalls, chunk), apiCalls, chunk));
+        }
+        Set<List<String>> merged = new LinkedHashSet<>();
+        for (CompletableFuture<String> response : responses) {
+            merged.addAll(parseMockPatterns(response.join(), apiCalls, exceptionTypes));
+        }
+        return new ArrayList<>(merged);
+    }
+
+    /**
+     * 先查缓存；未命中时异步调用 LLM 并缓存非空响应。离线模式下不调用 LLM。
+     */
+    private CompletableFuture<String> cachedCallLLM(String prompt, List<String> apiCalls, List<String> exceptionTypes) {
+        String key = llmCache == null ? null : LLMResponseCache.key(llmModel(), prompt, apiCalls, exceptionTypes);
+        if (key != null) {
+            String cached = llmCache.get(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
             }
-            if (apiKey == null || apiKey.isEmpty()) {
-                throw new RuntimeException("DASHSCOPE_API_KEY not set in environment or .env file");
+        }
+        if (llmOffline) {
+            System.err.println("Warning: LLM offline mode and no cached response" +
+                    (key == null ? "" : " for key " + key + " in " + llmCache.getDirectory()) + ". Returning no patterns.");
+            return CompletableFuture.completedFuture("");
+        }
+        LLMPatternProvider provider;
+        try {
+            provider = getLLMProvider();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return CompletableFuture.completedFuture("");
+        }
+        return provider.completeAsync(prompt).thenApply(response -> {
+            if (key != null && !response.isEmpty()) {
+                llmCache.put(key, response);
             }
-            if (baseUrl == null || baseUrl.isEmpty()) {
-                // 默认用openai官方
-                baseUrl = "https://dashscope.aliyuncs.com/compatible-mode/v1";
+            return response;
+        });
+    }
+
+    /**
+     * 流式生成 LLM 模式：响应到达的同时逐行解析、校验并交给迭代器，TestExplorer 可以在响应结束前开始执行。
+     * A cached response is replayed directly; the response is cached only if the stream ended
+     * without error and the parser saw the closing ']' of the outer array. If the stream fails, the
+     * rows received so far are still iterated but nothing is cached, so offline replay never serves a
+     * truncated pattern list.
+     */
+    public Iterator<List<String>> iterateLLMPatterns(List<String> apiCalls, List<String> exceptionTypes) {
+        LLMPatternStream stream = new LLMPatternStream();
+        PatternValidator validator = new PatternValidator(apiCalls.size(), exceptionTypes);
+        validator.setDependencies(dependenciesOf(exceptionTypes));
+        StreamingPatternParser parser = new StreamingPatternParser(row -> {
+            List<String> pattern = validator.validate(row);
+            if (pattern != null) {
+                stream.offer(pattern);
             }
-            OpenAIClient client = OpenAIOkHttpClient.builder()
-                    .apiKey(apiKey)
-                    .baseUrl(baseUrl)
-                    .build();
-            // 强化 system prompt
-String systemPrompt = "你是一个只返回 JSON 的 API。所有输出必须是合法的 JSON 数组（如 [[\"normal\",\"exception\"],[\"exception\",\"normal\"]]），不要有任何解释、注释或自然语言说明。";
-// 强化用户 prompt
-String finalPrompt = prompt + "\n请严格只返回合法的 JSON 数组，不要有任何多余的解释、注释或自然语言说明。";
-ChatCompletionCreateParams params = ChatCompletionCreateParams.builder()
-        .addSystemMessage(systemPrompt)
-        .addUserMessage(finalPrompt)
-        .model("qwen-plus")
-        .build();
-            ChatCompletion chatCompletion = client.chat().completions().create(params);
-            if (chatCompletion.choices() != null && !chatCompletion.choices().isEmpty()) {
-                return chatCompletion.choices().get(0).message().content().orElse("");
+        });
+
+        String prompt = buildLLMPrompt(apiCalls, exceptionTypes);
+        String key = llmCache == null ? null : LLMResponseCache.key(llmModel(), prompt, apiCalls, exceptionTypes);
+        String cached = key == null ? null : llmCache.get(key);
+        if (cached != null || llmOffline) {
+            if (cached == null) {
+                System.err.println("Warning: LLM offline mode and no cached response. Returning no patterns.");
+            } else {
+                parser.feed(cached);
             }
-            return "";
+            stream.complete();
+            return stream;
+        }
+
+        LLMPatternProvider provider;
+        try {
+            provider = getLLMProvider();
         } catch (Exception e) {
             e.printStackTrace();
-            return "";
+            stream.complete();
+            return stream;
         }
+        provider.streamAsync(prompt, parser::feed).whenComplete((response, error) -> {
+            if (error != null) {
+                System.err.println("Warning: LLM stream failed; using the patterns received so far without caching them: "
+                        + (error.getCause() != null ? error.getCause() : error));
+            } else if (key != null && parser.isFinished()) {
+                llmCache.put(key, response);
+            }
+            reportValidation(validator);
+            stream.complete();
+        });
+        return stream;
     }
 
     /**
-     * 解析LLM返回的JSON格式List<List<String>>
+     * 解析LLM返回的JSON格式List<List<String>>，并按 apiCalls 长度和异常列表校验、修复每一行
      */
-    private List<List<String>> parseMockPatterns(String llmResponse) {
+    private List<List<String>> parseMockPatterns(String llmResponse, List<String> apiCalls, List<String> exceptionTypes) {
         List<List<String>> patterns = new ArrayList<>();
         if (llmResponse == null || llmResponse.isEmpty()) return patterns;
-        try {
-            // 预处理：只提取第一个合法 JSON 数组
-            String json = llmResponse;
-            int startIdx = json.indexOf('[');
-            int endIdx = json.lastIndexOf(']');
-            if (startIdx != -1 && endIdx != -1 && endIdx > startIdx) {
-                json = json.substring(startIdx, endIdx + 1);
-            }
-            JSONArray arr = JSONArray.parseArray(json);
-            for (int i = 0; i < arr.size(); i++) {
-                List<String> inner = new ArrayList<>();
-                JSONArray innerArr = arr.getJSONArray(i);
-                for (int j = 0; j < innerArr.size(); j++) {
-                    inner.add(innerArr.getString(j));
-                }
-                patterns.add(inner);
+        PatternValidator validator = new PatternValidator(apiCalls.size(), exceptionTypes);
+        validator.setDependencies(dependenciesOf(exceptionTypes));
+        StreamingPatternParser parser = new StreamingPatternParser(row -> {
+            List<String> pattern = validator.validate(row);
+            if (pattern != null) {
+                patterns.add(pattern);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        });
+        parser.feed(llmResponse);
+        reportValidation(validator);
         return patterns;
     }
+
+    private void reportValidation(PatternValidator validator) {
+        Consumer<PatternValidator> sink = validationSink;
+        if (sink != null) {
+            sink.accept(validator);
+        }
+    }
 }
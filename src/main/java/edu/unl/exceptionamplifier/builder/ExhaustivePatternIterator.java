@@ -0,0 +1,271 @@
+package edu.unl.exceptionamplifier.builder;
+
+import edu.unl.exceptionamplifier.model.ExceptionDependencyMatrix;
+import edu.unl.exceptionamplifier.model.PatternSpace;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 穷尽式模式的惰性迭代器
+ * A mixed-radix counter over the first k call positions. Each call to {@link #next()} emits the
+ * pattern at the current counter value and then increments it, so memory use is constant no matter
+ * how large the space is. Position 0 is the most significant digit, which yields the same order as
+ * the former recursive generator: states are tried in the order given, remaining n-k calls stay "normal".
+ * Patterns are emitted as zero-copy {@link PatternSpace.PatternView}s (a rank when the space fits in a
+ * long, a packed byte[] otherwise) instead of lists of strings.
+ * With an {@link ExceptionDependencyMatrix}, patterns injecting two dependent exceptions are never
+ * emitted: as soon as a prefix conflicts, the counter carries past its whole subtree. Per-position
+ * legal states (see {@link edu.unl.exceptionamplifier.util.ExceptionReflectionUtils#legalStates}) are
+ * skipped the same way, so checked exceptions a call cannot throw cost one carry per subtree.
+ */
+public class ExhaustivePatternIterator implements Iterator<List<String>> {
+    private final PatternSpace space;
+    private final int[] digits;
+    private final long suffixSize; // radix^(n-k): ranks per prefix when the suffix is all "normal"
+    private final long endIndex;
+    private long index;
+    private long lastIndex = -1; // 上一个返回的模式的下标；skipInvalid 可能已把 index 移过其所在块
+    private long remaining;
+    private final ExceptionDependencyMatrix dependencies; // null: 不排除依赖异常
+    private final int[] dependencyIds;                    // 状态 id -> 矩阵 id
+    private final int[] prefixIds;
+    private final boolean[][] legalStates;                // null: 所有位置允许所有状态
+
+    /**
+     * @param space Encoding of the full-length patterns; its states are the digits of the counter.
+     * @param k Number of leading calls to vary; clamped to [0, space.length()].
+     */
+    public ExhaustivePatternIterator(PatternSpace space, int k) {
+        this(space, k, null);
+    }
+
+    /**
+     * @param dependencies Skips patterns that inject dependent exceptions; null to emit every pattern.
+     */
+    public ExhaustivePatternIterator(PatternSpace space, int k, ExceptionDependencyMatrix dependencies) {
+        this(space, k, 0, spaceSize(space.radix(), clamp(k, space.length())), dependencies);
+    }
+
+    /**
+     * Iterates the index range [fromIndex, toIndex) of the space only.
+     */
+    public ExhaustivePatternIterator(PatternSpace space, int k, long fromIndex, long toIndex) {
+        this(space, k, fromIndex, toIndex, null);
+    }
+
+    public ExhaustivePatternIterator(PatternSpace space, int k, long fromIndex, long toIndex,
+                                     ExceptionDependencyMatrix dependencies) {
+        this(space, k, fromIndex, toIndex, dependencies, null);
+    }
+
+    /**
+     * @param legalStates {@code legalStates[i][id]} is false if state id may not be injected at
+     *                    position i; null to allow every state everywhere.
+     */
+    public ExhaustivePatternIterator(PatternSpace space, int k, long fromIndex, long toIndex,
+                                     ExceptionDependencyMatrix dependencies, boolean[][] legalStates) {
+        this.space = space;
+        this.digits = new int[clamp(k, space.length())];
+        this.suffixSize = spaceSize(space.radix(), space.length() - digits.length);
+        this.endIndex = toIndex;
+        this.index = fromIndex;
+        this.remaining = Math.max(0, toIndex - fromIndex);
+        this.dependencies = dependencies;
+        this.dependencyIds = dependencies != null ? dependencies.idsOf(space) : null;
+        this.prefixIds = new int[digits.length];
+        this.legalStates = legalStates;
+        seek(fromIndex);
+        skipInvalid();
+    }
+
+    private static int clamp(int k, int length) {
+        return Math.max(0, Math.min(k, length));
+    }
+
+    /**
+     * Number of patterns when k positions each take numStates values, saturating at Long.MAX_VALUE.
+     */
+    public static long spaceSize(int numStates, int k) {
+        long total = 1;
+        for (int i = 0; i < k; i++) {
+            if (total > Long.MAX_VALUE / numStates) {
+                return Long.MAX_VALUE;
+            }
+            total *= numStates;
+        }
+        return total;
+    }
+
+    /**
+     * Pattern at the given index of the exhaustive space over the first k calls, computed without iterating.
+     */
+    public static List<String> patternAt(PatternSpace space, int k, long index) {
+        int varied = clamp(k, space.length());
+        if (space.isRankable()) {
+            return space.view((index + 1) * spaceSize(space.radix(), space.length() - varied) - 1);
+        }
+        byte[] packed = new byte[space.length()];
+        for (int i = varied; i < packed.length; i++) {
+            packed[i] = (byte) space.normalId();
+        }
+        for (int i = varied - 1; i >= 0; i--) {
+            packed[i] = (byte) (index % space.radix());
+            index /= space.radix();
+        }
+        return space.view(packed);
+    }
+
+    private void seek(long index) {
+        int radix = space.radix();
+        for (int i = digits.length - 1; i >= 0; i--) {
+            digits[i] = (int) (index % radix);
+            index /= radix;
+        }
+    }
+
+    /**
+     * @return counter values left in the range; with a dependency matrix this is an upper bound on
+     *         the patterns still to be emitted.
+     */
+    public long remaining() {
+        return remaining;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    @Override
+    public List<String> next() {
+        if (remaining <= 0) {
+            throw new NoSuchElementException();
+        }
+        List<String> pattern;
+        if (space.isRankable()) {
+            // the "normal" suffix is the highest digit in every position, i.e. the last rank of the prefix block
+            pattern = space.view((index + 1) * suffixSize - 1);
+        } else {
+            byte[] packed = new byte[space.length()];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = (byte) (i < digits.length ? digits[i] : space.normalId());
+            }
+            pattern = space.view(packed);
+        }
+        lastIndex = index++;
+        remaining--;
+        increment();
+        skipInvalid();
+        return pattern;
+    }
+
+    /**
+     * 前缀剪枝：跳过所有与上一个返回的模式在位置 0..lastConsultedIndex 上相同的剩余模式
+     * Position 0 is the most significant digit, so those patterns directly follow the last one;
+     * skipping them amounts to carrying into digit lastConsultedIndex. A negative index skips the
+     * rest of the range. The block is computed from the last returned pattern, not from the counter,
+     * which invalid patterns may already have carried past that block.
+     */
+    public void skipSubtree(int lastConsultedIndex) {
+        if (remaining <= 0 || lastConsultedIndex >= digits.length - 1) {
+            return; // every varied position was consulted, nothing left to share the prefix
+        }
+        long next;
+        if (lastConsultedIndex < 0) {
+            next = endIndex;
+        } else {
+            if (lastIndex < 0) {
+                return; // 尚未返回任何模式
+            }
+            long blockSize = spaceSize(space.radix(), digits.length - 1 - lastConsultedIndex);
+            next = (lastIndex / blockSize + 1) * blockSize;
+        }
+        if (next <= index) {
+            return; // 计数器已离开该前缀块
+        }
+        if (next >= endIndex) {
+            remaining = 0;
+            return;
+        }
+        remaining -= next - index;
+        index = next;
+        seek(next);
+        skipInvalid();
+    }
+
+    /**
+     * 跳过非法状态或注入了相互依赖异常的模式：找到第一个冲突位置，直接进位到该位置的下一个取值
+     */
+    private void skipInvalid() {
+        if (dependencies == null && legalStates == null) {
+            return;
+        }
+        while (remaining > 0) {
+            int conflict = firstIllegal();
+            if (conflict < 0 && dependencies != null) {
+                for (int i = 0; i < digits.length; i++) {
+                    prefixIds[i] = dependencyIds[digits[i]];
+                }
+                conflict = dependencies.firstConflict(prefixIds, digits.length);
+            }
+            if (conflict < 0) {
+                return;
+            }
+            long blockSize = spaceSize(space.radix(), digits.length - 1 - conflict);
+            long next = (index / blockSize + 1) * blockSize;
+            if (next >= endIndex) {
+                remaining = 0;
+                return;
+            }
+            remaining -= next - index;
+            index = next;
+            seek(next);
+        }
+    }
+
+    private int firstIllegal() {
+        if (legalStates != null) {
+            for (int i = 0; i < digits.length; i++) {
+                if (!legalStates[i][digits[i]]) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 每个位置合法状态数之积，即限制后的前 k 个位置的空间大小（不排除依赖异常），溢出时为 Long.MAX_VALUE
+     */
+    public static long legalSpaceSize(boolean[][] legalStates, int k) {
+        long total = 1;
+        for (int i = 0; i < k; i++) {
+            int legal = 0;
+            for (boolean allowed : legalStates[i]) {
+                if (allowed) {
+                    legal++;
+                }
+            }
+            if (legal == 0) {
+                return 0;
+            }
+            if (total > Long.MAX_VALUE / legal) {
+                return Long.MAX_VALUE;
+            }
+            total *= legal;
+        }
+        return total;
+    }
+
+    private void increment() {
+        int radix = space.radix();
+        for (int i = digits.length - 1; i >= 0; i--) {
+            if (++digits[i] < radix) {
+                return;
+            }
+            digits[i] = 0;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package edu.unl.exceptionamplifier.builder;
+
+import edu.unl.exceptionamplifier.model.ExceptionDependencyMatrix;
+import edu.unl.exceptionamplifier.model.PatternSpace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 按风险评分选出前 N 个模式（HIGH_RISK_SELECTIVE）
+ * Each call position fails independently with odds {@code baseFailureOdds * risk(position)}, and a
+ * failure is attributed to exception e in proportion to its weight. A pattern's score is the product
+ * over positions of its factor: 1 for "normal", {@code odds * normalizedWeight(e)} for exception e.
+ * Since the factors are independent per position, the best N patterns are enumerated best-first
+ * without touching the rest of the space: every position's states are sorted by factor, and each
+ * candidate is reached from exactly one parent by moving one position to its next-best state. The
+ * frontier priority queue therefore holds at most 1 + N * length candidates (more when patterns
+ * injecting dependent exceptions are excluded: they are expanded but not selected). States that are
+ * illegal at a position ({@link #setLegalStates}) are removed from its order and never reached.
+ */
+public class HighRiskPatternSelector {
+    private final PatternSpace space;
+    private final int[][] stateOrder;    // per position: state ids, best factor first
+    private final double[][] logFactors; // per position: log factor of stateOrder[i][j]
+    private ExceptionDependencyMatrix dependencies;
+    private int[] dependencyIds;
+
+    /**
+     * @param positionRisk Risk score of each call position (1.0 = average).
+     * @param exceptionWeights Relative weight of each exception type, indexed by state id; the entry
+     *                         for "normal" is ignored.
+     * @param baseFailureOdds Odds that an average call fails.
+     * @throws IllegalArgumentException if baseFailureOdds or an exception weight is not positive:
+     *                                  scores are summed as logarithms, and log(0) makes them NaN.
+     */
+    public HighRiskPatternSelector(PatternSpace space, double[] positionRisk, double[] exceptionWeights, double baseFailureOdds) {
+        this.space = space;
+        int n = space.length();
+        int radix = space.radix();
+        if (!(baseFailureOdds > 0)) {
+            throw new IllegalArgumentException("baseFailureOdds must be positive: " + baseFailureOdds);
+        }
+        for (int id = 0; id < radix; id++) {
+            if (id != space.normalId() && !(exceptionWeights[id] > 0)) {
+                throw new IllegalArgumentException("Weight of " + space.stateName(id) + " must be positive: " + exceptionWeights[id]);
+            }
+        }
+        double meanWeight = 0;
+        for (int id = 0; id < radix; id++) {
+            if (id != space.normalId()) {
+                meanWeight += exceptionWeights[id] / (radix - 1);
+            }
+        }
+
+        this.stateOrder = new int[n][];
+        this.logFactors = new double[n][];
+        for (int i = 0; i < n; i++) {
+            double[] factor = new double[radix];
+            Integer[] order = new Integer[radix];
+            for (int id = 0; id < radix; id++) {
+                order[id] = id;
+                factor[id] = id == space.normalId()
+                        ? 1.0
+                        : baseFailureOdds * positionRisk[i] * exceptionWeights[id] / meanWeight;
+            }
+            Arrays.sort(order, Comparator.comparingDouble((Integer id) -> -factor[id]));
+            stateOrder[i] = new int[radix];
+            logFactors[i] = new double[radix];
+            for (int j = 0; j < radix; j++) {
+                stateOrder[i][j] = order[j];
+                logFactors[i][j] = Math.log(factor[order[j]]);
+            }
+        }
+    }
+
+    /**
+     * 把每个位置的候选状态限制为合法状态（"normal" 总是保留）；需在 selectTop 之前调用
+     *
+     * @param legalStates {@code legalStates[i][id]} is false if state id may not be injected at
+     *                    position i; null leaves every state in place.
+     */
+    public void setLegalStates(boolean[][] legalStates) {
+        if (legalStates == null) {
+            return;
+        }
+        for (int i = 0; i < stateOrder.length; i++) {
+            int kept = 0;
+            for (int j = 0; j < stateOrder[i].length; j++) {
+                int id = stateOrder[i][j];
+                if (id == space.normalId() || legalStates[i][id]) {
+                    stateOrder[i][kept] = id;
+                    logFactors[i][kept] = logFactors[i][j];
+                    kept++;
+                }
+            }
+            stateOrder[i] = Arrays.copyOf(stateOrder[i], kept);
+            logFactors[i] = Arrays.copyOf(logFactors[i], kept);
+        }
+    }
+
+    /**
+     * 不选出注入了相互依赖异常的模式；null 表示不排除
+     */
+    public void setDependencies(ExceptionDependencyMatrix dependencies) {
+        this.dependencies = dependencies;
+        this.dependencyIds = dependencies != null ? dependencies.idsOf(space) : null;
+    }
+
+    private static final class Candidate {
+        final int[] choice;   // index into stateOrder per position
+        final int last;       // last position moved off its best state, -1 for the root
+        final double score;   // sum of log factors
+        final long sequence;  // insertion order, for deterministic ties
+
+        Candidate(int[] choice, int last, double score, long sequence) {
+            this.choice = choice;
+            this.last = last;
+            this.score = score;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * @return the {@code budget} highest-scoring patterns, best first.
+     */
+    public List<List<String>> selectTop(int budget) {
+        List<List<String>> selected = new ArrayList<>();
+        int n = space.length();
+        if (budget <= 0 || n == 0) {
+            return selected;
+        }
+
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>(
+                Comparator.comparingDouble((Candidate c) -> -c.score).thenComparingLong(c -> c.sequence));
+        long sequence = 0;
+        double rootScore = 0;
+        for (int i = 0; i < n; i++) {
+            rootScore += logFactors[i][0];
+        }
+        frontier.add(new Candidate(new int[n], -1, rootScore, sequence++));
+
+        while (!frontier.isEmpty() && selected.size() < budget) {
+            Candidate current = frontier.poll();
+            if (isIndependent(current.choice)) {
+                selected.add(toPattern(current.choice));
+            }
+
+            // children: advance the last moved position, or move a later position off its best state
+            if (current.last >= 0 && current.choice[current.last] + 1 < stateOrder[current.last].length) {
+                frontier.add(child(current, current.last, sequence++));
+            }
+            for (int j = current.last + 1; j < n; j++) {
+                if (stateOrder[j].length > 1) {
+                    frontier.add(child(current, j, sequence++));
+                }
+            }
+        }
+        return selected;
+    }
+
+    private Candidate child(Candidate parent, int position, long sequence) {
+        int[] choice = parent.choice.clone();
+        int from = choice[position]++;
+        double score = parent.score - logFactors[position][from] + logFactors[position][choice[position]];
+        return new Candidate(choice, position, score, sequence);
+    }
+
+    private boolean isIndependent(int[] choice) {
+        if (dependencies == null) {
+            return true;
+        }
+        int[] ids = new int[choice.length];
+        for (int i = 0; i < choice.length; i++) {
+            ids[i] = dependencyIds[stateOrder[i][choice[i]]];
+        }
+        return dependencies.firstConflict(ids, ids.length) < 0;
+    }
+
+    private List<String> toPattern(int[] choice) {
+        byte[] packed = new byte[choice.length];
+        for (int i = 0; i < choice.length; i++) {
+            packed[i] = (byte) stateOrder[i][choice[i]];
+        }
+        return space.isRankable() ? space.view(space.rank(packed)) : space.view(packed);
+    }
+}
@@ -0,0 +1,82 @@
+package edu.unl.exceptionamplifier.builder;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * 可切分的模式空间遍历器
+ * Walks the index range [from, to) of a pattern space whose patterns can be computed directly from
+ * their index. Because no generator state is carried between elements, {@link #trySplit()} simply
+ * halves the range, so {@code parallelStream()} / a ForkJoinPool can partition the space across cores.
+ * An optional filter drops patterns (e.g. those injecting dependent exceptions); the spliterator is
+ * then no longer SIZED and its size is an upper bound.
+ */
+public class IndexedPatternSpliterator implements Spliterator<List<String>> {
+    private static final long MIN_SPLIT_SIZE = 1024;
+
+    private final LongFunction<List<String>> patternAt;
+    private final Predicate<List<String>> filter; // null: 不过滤
+    private long index;
+    private final long end;
+
+    public IndexedPatternSpliterator(LongFunction<List<String>> patternAt, long from, long to) {
+        this(patternAt, from, to, null);
+    }
+
+    public IndexedPatternSpliterator(LongFunction<List<String>> patternAt, long from, long to,
+                                     Predicate<List<String>> filter) {
+        this.patternAt = patternAt;
+        this.filter = filter;
+        this.index = from;
+        this.end = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super List<String>> action) {
+        while (index < end) {
+            List<String> pattern = patternAt.apply(index++);
+            if (filter == null || filter.test(pattern)) {
+                action.accept(pattern);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super List<String>> action) {
+        long hi = end;
+        for (long i = index; i < hi; i++) {
+            List<String> pattern = patternAt.apply(i);
+            if (filter == null || filter.test(pattern)) {
+                action.accept(pattern);
+            }
+        }
+        index = hi;
+    }
+
+    @Override
+    public Spliterator<List<String>> trySplit() {
+        long remaining = end - index;
+        if (remaining < MIN_SPLIT_SIZE) {
+            return null;
+        }
+        long mid = index + (remaining >>> 1);
+        IndexedPatternSpliterator prefix = new IndexedPatternSpliterator(patternAt, index, mid, filter);
+        index = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return filter == null ? ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE : ORDERED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,69 @@
+package edu.unl.exceptionamplifier.builder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 模式前缀树：记录已经执行过的等价前缀
+ * When the SUT stops consulting the pattern after call i (it threw, or simply made no further
+ * resource calls), every pattern that agrees on positions 0..i produces the same execution. Such a
+ * prefix is marked as a terminal node; any later pattern whose walk reaches a terminal node is
+ * equivalent to one already executed and can be skipped. The subtree below a terminal node is
+ * dropped, so the trie only grows with the number of distinct executed prefixes.
+ */
+public class PatternPrefixTrie {
+    private final Node root = new Node();
+    private int markedCount = 0;
+
+    private static final class Node {
+        Map<String, Node> children;
+        boolean terminal;
+    }
+
+    /**
+     * 记录执行在 lastConsultedIndex 处停止：pattern[0..lastConsultedIndex] 为前缀的整棵子树等价
+     *
+     * @param lastConsultedIndex highest position the SUT read; -1 means no position was read, so every pattern is equivalent.
+     */
+    public void markExecutionStopped(List<String> pattern, int lastConsultedIndex) {
+        Node node = root;
+        for (int i = 0; i <= lastConsultedIndex && i < pattern.size(); i++) {
+            if (node.terminal) {
+                return;
+            }
+            if (node.children == null) {
+                node.children = new HashMap<>();
+            }
+            node = node.children.computeIfAbsent(pattern.get(i), k -> new Node());
+        }
+        if (!node.terminal) {
+            node.terminal = true;
+            node.children = null;
+            markedCount++;
+        }
+    }
+
+    /**
+     * @return true if a pattern sharing an executed, terminal prefix with this one was already run.
+     */
+    public boolean isCovered(List<String> pattern) {
+        Node node = root;
+        for (int i = 0; ; i++) {
+            if (node.terminal) {
+                return true;
+            }
+            if (i >= pattern.size() || node.children == null) {
+                return false;
+            }
+            node = node.children.get(pattern.get(i));
+            if (node == null) {
+                return false;
+            }
+        }
+    }
+
+    public int markedCount() {
+        return markedCount;
+    }
+}
@@ -0,0 +1,53 @@
+package edu.unl.exceptionamplifier.builder;
+
+import edu.unl.exceptionamplifier.model.PatternSpace;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基于风险的模式空间的随机访问索引
+ * The DEFAULT_RISK_BASED space laid out by index: [0] is the all-normal pattern, then one block of
+ * single-exception patterns (call position outer, exception type inner), then one block of
+ * |exceptions|^2 patterns per high-risk position pair. Any pattern can be computed from its index,
+ * which makes the space splittable for parallel generation.
+ */
+public class RiskBasedPatternIndex {
+    private final PatternSpace space;
+    private final int[] exceptionIds;
+    private final int[][] positionPairs;
+
+    /**
+     * @param positionPairs Pairs of call positions whose exceptions are combined, in emission order.
+     */
+    public RiskBasedPatternIndex(PatternSpace space, List<String> exceptionTypes, int[][] positionPairs) {
+        this.space = space;
+        this.exceptionIds = exceptionTypes.stream().mapToInt(space::stateId).toArray();
+        this.positionPairs = positionPairs;
+    }
+
+    public long size() {
+        long m = exceptionIds.length;
+        return 1 + space.length() * m + positionPairs.length * m * m;
+    }
+
+    public List<String> patternAt(long index) {
+        byte[] packed = new byte[space.length()];
+        Arrays.fill(packed, (byte) space.normalId());
+        int m = exceptionIds.length;
+        if (index > 0) {
+            long offset = index - 1;
+            long singles = (long) space.length() * m;
+            if (offset < singles) {
+                packed[(int) (offset / m)] = (byte) exceptionIds[(int) (offset % m)];
+            } else {
+                offset -= singles;
+                int[] pair = positionPairs[(int) (offset / ((long) m * m))];
+                int combination = (int) (offset % ((long) m * m));
+                packed[pair[0]] = (byte) exceptionIds[combination / m];
+                packed[pair[1]] = (byte) exceptionIds[combination % m];
+            }
+        }
+        return space.isRankable() ? space.view(space.rank(packed)) : space.view(packed);
+    }
+}
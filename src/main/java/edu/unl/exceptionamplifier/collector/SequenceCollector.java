@@ -1,16 +1,335 @@
 package edu.unl.exceptionamplifier.collector;
 
+import edu.unl.exceptionamplifier.mocker.ResourceCallInjector;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.Signature;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * 运行时采集 API 调用序列，供 ExceptionalSpaceBuilder 直接使用
+ * For the woven services (StockTradingService, OrderManagementService, WalletService) open
+ * {@link #captureWoven()}: {@code ExceptionMockAspect} then records every resource call at its real
+ * call site. Elsewhere wrap the resources of a test with {@link #capture} (interfaces, via a dynamic
+ * proxy) or {@link #register} each method once and call {@link #record(int)} at the start of its
+ * override. A normal run of the test then yields the calls
+ * as {@code "serviceKey.method"} strings in the order they happened, the same format as the
+ * hand-written {@code API_CALL_SEQUENCE}s, and {@link #getServiceClasses} yields the matching
+ * service-key map for {@code setServiceClasses} and {@code countDeclaredExceptions}.
+ *
+ * <p>Call strings are interned to int ids when a proxy is created or a method registered. Each thread
+ * appends its calls to its own buffer, with no locks; every call also takes a stamp from one global
+ * counter, so {@link #getSequence} can merge the threads in the order the calls were made. Buffers
+ * grow as needed and never drop calls. Buffers of threads that have ended are released by
+ * {@link #clear} once their calls are discarded. Read the results after the captured run has finished.
+ */
 public class SequenceCollector {
-    private final List<String> sequence = new ArrayList<>();
+    private static final int INITIAL_BUFFER_CAPACITY = 64;
+    private static final AtomicReference<SequenceCollector> WOVEN = new AtomicReference<>();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private int nameCount;
+    private final Map<String, String> serviceClasses = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private volatile long clearedBefore; // 小于此戳的调用已被 clear() 丢弃
+    private final Queue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Buffer> buffer = ThreadLocal.withInitial(this::newBuffer);
+    private volatile boolean recording = true;
+    private final Map<JoinPoint.StaticPart, Integer> wovenIds = new ConcurrentHashMap<>();
+
+    /**
+     * 单线程追加、采集结束后读取的调用缓冲区
+     */
+    private static final class Buffer {
+        final Thread owner;
+        final String thread;
+        int[] calls = new int[INITIAL_BUFFER_CAPACITY];
+        long[] stamps = new long[INITIAL_BUFFER_CAPACITY];
+        volatile int size; // 写入 size 即发布此前的元素
+        long epoch;        // 所属线程最近一次看到的 clearedBefore
+
+        Buffer(Thread owner) {
+            this.owner = owner;
+            this.thread = owner.getName();
+        }
+
+        void add(int id, long stamp) {
+            int n = size;
+            if (n == calls.length) {
+                calls = Arrays.copyOf(calls, n * 2);
+                stamps = Arrays.copyOf(stamps, n * 2);
+            }
+            calls[n] = id;
+            stamps[n] = stamp;
+            size = n + 1;
+        }
+
+        /**
+         * @return true if the buffer holds no call at or after {@code from}.
+         */
+        boolean isEmptyFrom(long from) {
+            int n = size;
+            return n == 0 || stamps[n - 1] < from;
+        }
+    }
+
+    private Buffer newBuffer() {
+        pruneEndedThreads();
+        Buffer created = new Buffer(Thread.currentThread());
+        created.epoch = clearedBefore;
+        buffers.add(created);
+        return created;
+    }
+
+    /**
+     * 释放已结束且没有保留调用的线程的缓冲区
+     */
+    private void pruneEndedThreads() {
+        long from = clearedBefore;
+        buffers.removeIf(b -> !b.owner.isAlive() && b.isEmptyFrom(from));
+    }
+
+    /**
+     * 为调用字符串分配 id（已分配的直接返回）
+     */
+    public int intern(String apiCall) {
+        Integer id = ids.get(apiCall);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(apiCall);
+            if (id == null) {
+                String[] current = names;
+                if (nameCount == current.length) {
+                    current = Arrays.copyOf(current, nameCount * 2);
+                }
+                current[nameCount] = apiCall;
+                names = current;
+                id = nameCount++;
+                ids.put(apiCall, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * 注册手写替身（例如仓储类的子类）中的一个方法
+     *
+     * @param serviceKey Prefix of the call string, e.g. {@code "stockTradingRepository"}.
+     * @param type       Class declaring the method, reported by {@link #getServiceClasses}.
+     * @return the id to pass to {@link #record(int)}.
+     */
+    public int register(String serviceKey, Class<?> type, String methodName) {
+        serviceClasses.put(serviceKey, type.getName());
+        return intern(serviceKey + "." + methodName);
+    }
+
+    /**
+     * 记录一次调用；只写当前线程的缓冲区
+     */
+    public void record(int id) {
+        if (recording) {
+            Buffer b = buffer.get();
+            long cleared = clearedBefore;
+            if (b.epoch != cleared) { // clear() 之后由所属线程自己清空
+                b.size = 0;
+                b.epoch = cleared;
+            }
+            b.add(id, clock.getAndIncrement());
+        }
+    }
 
     public void collect(String apiCall) {
-        sequence.add(apiCall);
+        record(intern(apiCall));
+    }
+
+    /**
+     * 用服务名的默认形式（简单类名首字母小写，如 {@code marketDataService}）包装接口实现
+     */
+    public <T> T capture(Class<T> type, T target) {
+        return capture(type, target, defaultServiceKey(type));
+    }
+
+    private static String defaultServiceKey(Class<?> type) {
+        String simpleName = type.getSimpleName();
+        return Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
     }
 
+    /**
+     * 返回记录每次接口调用后再委托给 target 的动态代理
+     * Object methods are delegated without being recorded.
+     */
+    public <T> T capture(Class<T> type, T target, String serviceKey) {
+        if (!type.isInterface()) {
+            throw new IllegalArgumentException(type.getName() + " is not an interface; subclass it and use register/record");
+        }
+        Map<Method, Integer> methodIds = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            methodIds.put(method, register(serviceKey, type, method.getName()));
+        }
+        InvocationHandler handler = (proxy, method, args) -> {
+            Integer id = methodIds.get(method);
+            if (id != null) {
+                record(id);
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * 织入采集的作用域；关闭后切面不再向本采集器记录
+     */
+    public final class WovenCapture implements AutoCloseable {
+        private final boolean wasEnabled;
+
+        private WovenCapture(boolean wasEnabled) {
+            this.wasEnabled = wasEnabled;
+        }
+
+        @Override
+        public void close() {
+            if (WOVEN.compareAndSet(SequenceCollector.this, null) && !wasEnabled) {
+                ResourceCallInjector.setEnabled(false);
+            }
+        }
+    }
+
+    /**
+     * 由织入的切面记录真实服务的资源调用，直到返回的作用域关闭
+     * A call is recorded as the declaring type of the called method with its first letter lowercased,
+     * e.g. {@code "stockTradingRepository.getPosition"}, and that type is reported by
+     * {@link #getServiceClasses}. Switches the woven call sites on for the duration.
+     *
+     * @throws IllegalStateException if another collector is already capturing woven calls.
+     */
+    public WovenCapture captureWoven() {
+        if (!WOVEN.compareAndSet(null, this)) {
+            throw new IllegalStateException("Another SequenceCollector is already capturing woven calls");
+        }
+        boolean wasEnabled = ResourceCallInjector.isEnabled();
+        ResourceCallInjector.setEnabled(true);
+        return new WovenCapture(wasEnabled);
+    }
+
+    /**
+     * 织入的 advice 在每次资源调用前调用；没有采集器时什么也不做
+     */
+    public static void recordWoven(JoinPoint.StaticPart site) {
+        SequenceCollector collector = WOVEN.get();
+        if (collector != null) {
+            collector.record(collector.wovenId(site));
+        }
+    }
+
+    private int wovenId(JoinPoint.StaticPart site) {
+        Integer id = wovenIds.get(site);
+        if (id == null) {
+            Signature signature = site.getSignature();
+            Class<?> type = signature.getDeclaringType();
+            id = register(defaultServiceKey(type), type, signature.getName());
+            wovenIds.putIfAbsent(site, id);
+        }
+        return id;
+    }
+
+    /**
+     * 暂停或恢复记录，例如跳过测试的准备阶段
+     */
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    /**
+     * 丢弃此前记录的调用；已分配的 id 与代理保持有效
+     */
+    public void clear() {
+        clearedBefore = clock.get();
+        pruneEndedThreads();
+    }
+
+    /**
+     * 所有线程记录的调用，按调用发生的先后合并
+     *
+     * @throws IllegalStateException if more calls were recorded since the last clear than a list can hold.
+     */
     public List<String> getSequence() {
-        return new ArrayList<>(sequence);
+        long from = clearedBefore;
+        long span = clock.get() - from;
+        if (span > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException(span + " calls recorded since the last clear; call clear() between runs");
+        }
+        int[] merged = new int[(int) span]; // 下标为戳减 from；仍在写入的调用留为 -1
+        Arrays.fill(merged, -1);
+        for (Buffer b : buffers) {
+            int n = b.size;
+            int[] calls = b.calls;
+            long[] stamps = b.stamps;
+            for (int i = 0; i < n; i++) {
+                long offset = stamps[i] - from;
+                if (offset >= 0 && offset < span) {
+                    merged[(int) offset] = calls[i];
+                }
+            }
+        }
+        List<String> sequence = new ArrayList<>();
+        String[] table = names;
+        for (int id : merged) {
+            if (id >= 0) {
+                sequence.add(table[id]);
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * @return the calls of each thread that recorded any since the last clear, keyed by thread name.
+     */
+    public Map<String, List<String>> getSequencesByThread() {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        long from = clearedBefore;
+        String[] table = names;
+        for (Buffer b : buffers) {
+            int n = b.size;
+            int[] calls = b.calls;
+            long[] stamps = b.stamps;
+            List<String> sequence = null;
+            for (int i = 0; i < n; i++) {
+                if (stamps[i] >= from) {
+                    if (sequence == null) {
+                        sequence = result.computeIfAbsent(b.thread, k -> new ArrayList<>());
+                    }
+                    sequence.add(table[calls[i]]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return service key -> class name of every captured or registered service.
+     */
+    public Map<String, String> getServiceClasses() {
+        return new HashMap<>(serviceClasses);
     }
 }
@@ -0,0 +1,183 @@
+package edu.unl.exceptionamplifier.explorer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步批量投递的监听器包装
+ * Events are queued by the exploring threads and replayed on the wrapped listener by a single daemon
+ * thread, in arrival order, so the delegate needs no synchronization and its I/O stays off the hot
+ * path. The consumer collects up to {@code batchSize} events, waiting at most
+ * {@code flushIntervalMillis} after the first one, delivers them and then calls
+ * {@link ExplorationListener#flush()}. When the queue is full producers block rather than drop
+ * events. {@link #explorationDone} waits until everything queued before it has been delivered, so the
+ * output is complete when {@code explore} returns. Events arriving after {@link #close()} are ignored.
+ * A listener that throws, even an {@link Error}, only loses that event; should the delivery thread
+ * still die, producers stop waiting for it and later events are dropped with a warning.
+ */
+public class AsyncBatchingListener implements ExplorationListener, AutoCloseable {
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+
+    private static final Runnable STOP = () -> { };
+    private static final long WAIT_SLICE_MILLIS = 100; // 生产者每等待这么久检查一次后台线程是否还在
+
+    private final ExplorationListener delegate;
+    private final BlockingQueue<Runnable> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Thread consumer;
+    private volatile boolean closed;
+    private volatile boolean consumerDeathReported;
+
+    public AsyncBatchingListener(ExplorationListener delegate) {
+        this(delegate, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param batchSize           Maximum number of events delivered between two flushes; the queue holds 16 batches.
+     * @param flushIntervalMillis Maximum time an event waits for its batch to fill.
+     */
+    public AsyncBatchingListener(ExplorationListener delegate, int batchSize, long flushIntervalMillis) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.queue = new ArrayBlockingQueue<>(batchSize * 16);
+        this.consumer = new Thread(this::deliverLoop, "exploration-listener");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @Override
+    public void patternStarted(List<String> pattern) {
+        enqueue(() -> delegate.patternStarted(pattern));
+    }
+
+    @Override
+    public void callInjected(List<String> pattern, int position, String exceptionType) {
+        enqueue(() -> delegate.callInjected(pattern, position, exceptionType));
+    }
+
+    @Override
+    public void patternFinished(List<String> pattern, Outcome outcome, Throwable failure, long durationNanos) {
+        enqueue(() -> delegate.patternFinished(pattern, outcome, failure, durationNanos));
+    }
+
+    @Override
+    public void explorationDone(Summary summary) {
+        CountDownLatch delivered = new CountDownLatch(1);
+        if (!enqueue(() -> {
+            try {
+                delegate.explorationDone(summary);
+            } finally {
+                delivered.countDown();
+            }
+        })) {
+            return;
+        }
+        try {
+            while (!delivered.await(WAIT_SLICE_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (!isConsumerAlive()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean enqueue(Runnable event) {
+        try {
+            while (!closed) {
+                if (queue.offer(event, WAIT_SLICE_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+                if (!isConsumerAlive()) { // 队列已满且不会再被消费，不能让生产者永远阻塞
+                    return false;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // 被中断的（如超时放弃的）工作线程丢弃该事件
+            return false;
+        }
+    }
+
+    private boolean isConsumerAlive() {
+        if (consumer.isAlive()) {
+            return true;
+        }
+        if (!consumerDeathReported) {
+            consumerDeathReported = true;
+            System.err.println("[AsyncBatchingListener] Delivery thread has stopped; dropping further events.");
+        }
+        return false;
+    }
+
+    private void deliverLoop() {
+        List<Runnable> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize && batch.get(batch.size() - 1) != STOP) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    Runnable next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            boolean stop = false;
+            for (Runnable event : batch) {
+                if (event == STOP) {
+                    stop = true;
+                    continue;
+                }
+                try {
+                    event.run();
+                } catch (Throwable e) { // Error 也不能让后台线程退出，否则生产者会阻塞在满队列上
+                    System.err.println("[AsyncBatchingListener] Listener failed: " + e);
+                }
+            }
+            batch.clear();
+            try {
+                delegate.flush();
+            } catch (Throwable e) {
+                System.err.println("[AsyncBatchingListener] Listener failed: " + e);
+            }
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 投递所有已排队的事件后停止后台线程
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(STOP);
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
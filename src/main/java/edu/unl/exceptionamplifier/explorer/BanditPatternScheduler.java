@@ -0,0 +1,224 @@
+package edu.unl.exceptionamplifier.explorer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 按预期发现收益（UCB1）排序的在线模式调度器
+ * Every (call position, exception type) pair is an arm. A candidate pattern belongs to the arm of
+ * each exception it injects. Each {@link #next()} picks the arm with the highest upper confidence
+ * bound {@code mean + c * sqrt(ln(totalPulls) / pulls)} that still has untried candidates and emits
+ * its earliest untried candidate, so the generator's order is kept within an arm. After a pattern
+ * has run, {@link #settle} credits every arm it injected with reward 1 if it found a new exception
+ * chain, otherwise 0. A pattern that did not run (pruned, resumed from a journal, over budget) is
+ * {@link #skip skipped} instead, so it does not count against its arms. Arms that were never pulled
+ * go first; candidates that inject nothing (e.g. all "normal") are emitted at the start.
+ *
+ * <p>{@link TestExplorer#exploreByYield} drives the scheduler; under a fixed {@code maxExecutions}
+ * budget the most productive regions of the space are then explored first. The scheduler needs the
+ * whole candidate list up front, so it cannot consume the lazy iterators of
+ * {@code iterateExhaustivePatterns} or {@code iterateLLMPatterns}; materialize a bounded candidate
+ * set (e.g. {@code generateMockingPatterns}) first.
+ */
+public class BanditPatternScheduler {
+    public static final double DEFAULT_EXPLORATION_WEIGHT = Math.sqrt(2);
+
+    private final List<List<String>> candidates;
+    private final List<String> exceptionTypes;
+    private final int length;
+    private final boolean[] tried;
+    private final int[][] candidateArms;
+    private final ArrayDeque<Integer> armless = new ArrayDeque<>();
+    private final ArrayDeque<Integer>[] armQueues;
+    private final int[] pulls;
+    private final double[] rewards;
+    private double explorationWeight = DEFAULT_EXPLORATION_WEIGHT;
+    private long totalPulls;
+    private int settled;
+    private int remaining;
+    private int pending = -1; // 已发出、尚未结算或跳过的候选下标
+
+    /**
+     * @param candidates     Patterns to schedule, e.g. the output of any generation strategy; duplicates are kept.
+     * @param exceptionTypes Exception types that form the arms; other states in a pattern are ignored.
+     */
+    @SuppressWarnings("unchecked")
+    public BanditPatternScheduler(List<List<String>> candidates, List<String> exceptionTypes) {
+        this.candidates = candidates;
+        this.exceptionTypes = new ArrayList<>(exceptionTypes);
+        int maxLength = 0;
+        for (List<String> pattern : candidates) {
+            maxLength = Math.max(maxLength, pattern.size());
+        }
+        this.length = maxLength;
+        int armCount = length * this.exceptionTypes.size();
+        this.armQueues = new ArrayDeque[armCount];
+        for (int arm = 0; arm < armCount; arm++) {
+            armQueues[arm] = new ArrayDeque<>();
+        }
+        this.pulls = new int[armCount];
+        this.rewards = new double[armCount];
+        this.tried = new boolean[candidates.size()];
+        this.candidateArms = new int[candidates.size()][];
+        for (int i = 0; i < candidates.size(); i++) {
+            candidateArms[i] = armsOf(candidates.get(i));
+            if (candidateArms[i].length == 0) {
+                armless.add(i);
+            }
+            for (int arm : candidateArms[i]) {
+                armQueues[arm].add(i);
+            }
+        }
+        this.remaining = candidates.size();
+    }
+
+    /**
+     * 探索权重 c，越大越倾向尝试拉动次数少的臂
+     */
+    public void setExplorationWeight(double explorationWeight) {
+        this.explorationWeight = explorationWeight;
+    }
+
+    private int[] armsOf(List<String> pattern) {
+        int[] arms = new int[pattern.size()];
+        int count = 0;
+        for (int pos = 0; pos < pattern.size(); pos++) {
+            int ex = exceptionTypes.indexOf(pattern.get(pos));
+            if (ex >= 0) {
+                arms[count++] = pos * exceptionTypes.size() + ex;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(arms, 0, result, 0, count);
+        return result;
+    }
+
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    /**
+     * @return the index in the candidate list of the next pattern; fetch it with {@link #candidate}.
+     * @throws IllegalStateException if the previous pattern was neither settled nor skipped.
+     */
+    public int next() {
+        if (pending >= 0) {
+            throw new IllegalStateException("Settle or skip candidate " + pending + " before taking the next one");
+        }
+        if (remaining == 0) {
+            throw new NoSuchElementException();
+        }
+        int chosen = pollUntried(armless);
+        if (chosen < 0) {
+            chosen = pollUntried(armQueues[selectArm()]);
+        }
+        tried[chosen] = true;
+        remaining--;
+        pending = chosen;
+        return chosen;
+    }
+
+    public List<String> candidate(int index) {
+        return candidates.get(index);
+    }
+
+    /**
+     * 结算刚执行完的模式：发现了新的异常链则它注入的每个臂得到收益 1，否则为 0
+     */
+    public void settle(boolean foundNewChain) {
+        int index = takePending();
+        double reward = foundNewChain ? 1 : 0;
+        for (int arm : candidateArms[index]) {
+            pulls[arm]++;
+            rewards[arm] += reward;
+            totalPulls++;
+        }
+        settled++;
+    }
+
+    /**
+     * 模式没有实际执行（被剪枝、从日志恢复或超出预算）：丢弃它，不影响任何臂
+     */
+    public void skip() {
+        takePending();
+    }
+
+    private int takePending() {
+        if (pending < 0) {
+            throw new IllegalStateException("No candidate is waiting to be settled");
+        }
+        int index = pending;
+        pending = -1;
+        return index;
+    }
+
+    /**
+     * @return number of candidates settled so far, i.e. that actually ran.
+     */
+    public int getSettledCount() {
+        return settled;
+    }
+
+    private int pollUntried(ArrayDeque<Integer> queue) {
+        while (!queue.isEmpty()) {
+            int candidate = queue.poll();
+            if (!tried[candidate]) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private int selectArm() {
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int arm = 0; arm < armQueues.length; arm++) {
+            if (!hasUntried(armQueues[arm])) {
+                continue;
+            }
+            double score = upperConfidenceBound(arm);
+            if (score > bestScore) {
+                best = arm;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private boolean hasUntried(ArrayDeque<Integer> queue) {
+        while (!queue.isEmpty() && tried[queue.peek()]) {
+            queue.poll();
+        }
+        return !queue.isEmpty();
+    }
+
+    private double upperConfidenceBound(int arm) {
+        if (pulls[arm] == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return rewards[arm] / pulls[arm]
+                + explorationWeight * Math.sqrt(Math.log(Math.max(1, totalPulls)) / pulls[arm]);
+    }
+
+    public int getPulls(int position, String exceptionType) {
+        return pulls[arm(position, exceptionType)];
+    }
+
+    /**
+     * @return the fraction of pulls of this arm that found a new exception chain, or 0 if never pulled.
+     */
+    public double getMeanReward(int position, String exceptionType) {
+        int arm = arm(position, exceptionType);
+        return pulls[arm] == 0 ? 0 : rewards[arm] / pulls[arm];
+    }
+
+    private int arm(int position, String exceptionType) {
+        int ex = exceptionTypes.indexOf(exceptionType);
+        if (position < 0 || position >= length || ex < 0) {
+            throw new IllegalArgumentException("No arm for position " + position + " and " + exceptionType);
+        }
+        return position * exceptionTypes.size() + ex;
+    }
+}
@@ -0,0 +1,229 @@
+package edu.unl.exceptionamplifier.explorer;
+
+import edu.unl.exceptionamplifier.util.CoverageStatsReporter;
+import edu.unl.exceptionamplifier.util.LongIntHashMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 崩溃安全的探索进度日志，用于中断后续跑
+ * An append-only file of one record per executed pattern: its key (the rank of a
+ * {@link edu.unl.exceptionamplifier.model.PatternSpace.PatternView}, otherwise its position in the
+ * pattern sequence), the outcome, the last call position the test logic read (for prefix pruning)
+ * and a snapshot of what the pattern wrote into its reporter. Each record is
+ * {@code <int length> <payload> <int crc32>}. Records are buffered and written with an fsync every
+ * {@code syncEveryRecords} records or {@code syncEveryMillis} milliseconds, whichever comes first,
+ * so a crash loses at most the last unsynced batch, which is simply executed again.
+ *
+ * <p>{@link #open} replays the file: records up to the first torn or corrupt one are kept, the rest
+ * is truncated. Attach the journal with {@link TestExplorer#setJournal}; the explorer then merges the
+ * recovered reporter state into the caller's reporter and skips every recorded pattern.
+ */
+public class ExplorationJournal implements AutoCloseable {
+    public static final int NOT_RECORDED = Integer.MIN_VALUE;
+    private static final int MAGIC = 0x45414A31; // "EAJ1"
+
+    private final FileChannel channel;
+    private final LongIntHashMap recovered = new LongIntHashMap(); // key -> 读到的最后调用位置
+    private CoverageStatsReporter recoveredReporter = new CoverageStatsReporter();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private int pendingRecords;
+    private long lastSyncNanos = System.nanoTime();
+    private int syncEveryRecords = 256;
+    private long syncEveryMillis = 1000;
+
+    private ExplorationJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * 打开（或新建）日志文件并恢复其中已完成的模式
+     */
+    public static ExplorationJournal open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ExplorationJournal journal = new ExplorationJournal(channel);
+        try {
+            journal.recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    private void recover() throws IOException {
+        long size = channel.size();
+        if (size < 4) {
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(4).putInt(0, MAGIC);
+            writeFully(header);
+            channel.force(true);
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(4);
+        readFully(header, 0);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not an exploration journal");
+        }
+        long position = 4;
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        CRC32 crc = new CRC32();
+        while (position + 4 <= size) {
+            lengthBuffer.clear();
+            readFully(lengthBuffer, position);
+            int length = lengthBuffer.getInt(0);
+            if (length < 17 || position + 4 + length + 4 > size) {
+                break; // 写到一半的记录
+            }
+            ByteBuffer record = ByteBuffer.allocate(length + 4);
+            readFully(record, position + 4);
+            crc.reset();
+            crc.update(record.array(), 0, length);
+            if ((int) crc.getValue() != record.getInt(length)) {
+                break;
+            }
+            replay(record.array(), length);
+            position += 4 + length + 4;
+        }
+        if (position < size) {
+            System.err.println("[ExplorationJournal] Dropping " + (size - position) + " bytes after the last intact record.");
+            channel.truncate(position);
+            channel.force(true);
+        }
+        channel.position(position);
+    }
+
+    private void replay(byte[] payload, int length) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 0, length));
+        long key = in.readLong();
+        in.readByte(); // outcome，结果已包含在 reporter 快照中
+        int lastConsulted = in.readInt();
+        int snapshotLength = in.readInt();
+        if (snapshotLength > 0) {
+            recoveredReporter.merge(CoverageStatsReporter.readSnapshot(in));
+        }
+        recovered.put(key, lastConsulted);
+    }
+
+    /**
+     * @param syncEveryRecords Records per fsync.
+     * @param syncEveryMillis  Maximum age of the oldest unsynced record, checked when a record is appended.
+     */
+    public synchronized void setSyncPolicy(int syncEveryRecords, long syncEveryMillis) {
+        if (syncEveryRecords <= 0) {
+            throw new IllegalArgumentException("syncEveryRecords must be positive: " + syncEveryRecords);
+        }
+        this.syncEveryRecords = syncEveryRecords;
+        this.syncEveryMillis = syncEveryMillis;
+    }
+
+    /**
+     * @return number of patterns recovered from the file when it was opened.
+     */
+    public int getRecoveredCount() {
+        return recovered.size();
+    }
+
+    /**
+     * @return the last call position recorded for the key, or {@link #NOT_RECORDED} if it was not
+     *         completed before the journal was opened.
+     */
+    public int lastConsulted(long key) {
+        return recovered.get(key, NOT_RECORDED);
+    }
+
+    /**
+     * 取出恢复的统计状态（只返回一次，之后返回 null，避免多次探索重复合并）
+     */
+    public synchronized CoverageStatsReporter takeRecoveredReporter() {
+        CoverageStatsReporter result = recoveredReporter;
+        recoveredReporter = null;
+        return result;
+    }
+
+    /**
+     * 追加一条记录；达到批量条件时写盘并 fsync
+     *
+     * @param delta What the pattern recorded, or null if the test logic does not report.
+     * @throws UncheckedIOException if the journal cannot be written; exploration should not continue
+     *                              without it.
+     */
+    public synchronized void append(long key, ExplorationListener.Outcome outcome, int lastConsulted,
+                                    CoverageStatsReporter delta) {
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(payload);
+            out.writeLong(key);
+            out.writeByte(outcome.ordinal());
+            out.writeInt(lastConsulted);
+            if (delta == null) {
+                out.writeInt(0);
+            } else {
+                ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+                delta.writeSnapshot(new DataOutputStream(snapshot));
+                out.writeInt(snapshot.size());
+                snapshot.writeTo(out);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload.toByteArray());
+            pendingOut.writeInt(payload.size());
+            payload.writeTo(pendingOut);
+            pendingOut.writeInt((int) crc.getValue());
+            pendingRecords++;
+            if (pendingRecords >= syncEveryRecords
+                    || System.nanoTime() - lastSyncNanos >= syncEveryMillis * 1_000_000L) {
+                sync();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to exploration journal", e);
+        }
+    }
+
+    /**
+     * 把缓冲的记录写入文件并 fsync，之后它们在崩溃后仍然可见
+     */
+    public synchronized void sync() throws IOException {
+        if (pendingRecords > 0) {
+            writeFully(ByteBuffer.wrap(pending.toByteArray()));
+            channel.force(false);
+            pending.reset();
+            pendingRecords = 0;
+        }
+        lastSyncNanos = System.nanoTime();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of journal");
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package edu.unl.exceptionamplifier.explorer;
+
+import java.util.List;
+
+/**
+ * 探索过程事件监听器，代替热路径上的 System.out 输出
+ * Register with {@link TestExplorer#addListener}. With parallel, virtual-thread or watchdog execution
+ * the events of different patterns arrive concurrently from worker threads, so implementations must
+ * be thread-safe and cheap; wrap slow sinks (console, files, sockets) in an
+ * {@link AsyncBatchingListener}. All methods default to no-ops.
+ */
+public interface ExplorationListener {
+
+    enum Outcome {
+        /** The test logic returned normally. */
+        PASSED,
+        /** The test logic threw; the throwable is passed along. */
+        FAILED,
+        /** The pattern exceeded the pattern timeout and was abandoned. */
+        TIMED_OUT
+    }
+
+    default void patternStarted(List<String> pattern) {
+    }
+
+    /**
+     * 模式在 position 处注入 exceptionType（配置 mocker 时触发，早于测试逻辑执行）
+     */
+    default void callInjected(List<String> pattern, int position, String exceptionType) {
+    }
+
+    /**
+     * @param failure       What the test logic threw when the outcome is FAILED, otherwise null.
+     * @param durationNanos Wall time from {@link #patternStarted} to the end of the test logic.
+     */
+    default void patternFinished(List<String> pattern, Outcome outcome, Throwable failure, long durationNanos) {
+    }
+
+    default void explorationDone(Summary summary) {
+    }
+
+    /**
+     * 批量投递结束后调用，缓冲输出的监听器在此刷新
+     */
+    default void flush() {
+    }
+
+    /**
+     * 一次探索结束时的计数（与 TestExplorer 的 getter 相同，跨多次探索累计）
+     */
+    final class Summary {
+        private final long executedPatterns;
+        private final int injectedExceptions;
+        private final int prunedPatterns;
+        private final int timedOutPatterns;
+        private final long elapsedNanos;
+
+        public Summary(long executedPatterns, int injectedExceptions, int prunedPatterns,
+                       int timedOutPatterns, long elapsedNanos) {
+            this.executedPatterns = executedPatterns;
+            this.injectedExceptions = injectedExceptions;
+            this.prunedPatterns = prunedPatterns;
+            this.timedOutPatterns = timedOutPatterns;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getExecutedPatterns() {
+            return executedPatterns;
+        }
+
+        public int getInjectedExceptions() {
+            return injectedExceptions;
+        }
+
+        public int getPrunedPatterns() {
+            return prunedPatterns;
+        }
+
+        public int getTimedOutPatterns() {
+            return timedOutPatterns;
+        }
+
+        /**
+         * @return wall time of this exploration only.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "executed=" + executedPatterns + ", injected=" + injectedExceptions + ", pruned=" + prunedPatterns
+                    + ", timedOut=" + timedOutPatterns + ", elapsed=" + (elapsedNanos / 1_000_000) + " ms";
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package edu.unl.exceptionamplifier.explorer;
+
+import edu.unl.exceptionamplifier.util.CoverageStatsReporter;
+
+import java.util.List;
+
+/**
+ * 分为前缀和后缀两段的测试逻辑，供 {@link TestExplorer#exploreWithCheckpoints} 使用
+ * {@code runPrefix} performs the calls at the shared prefix positions, {@code runSuffix} the
+ * remaining ones; running both in order must be equivalent to the unsplit test. An exception from
+ * {@code runPrefix} ends the pattern there, exactly as it would in the unsplit test.
+ */
+public interface ForkableTestLogic {
+    void runPrefix(List<String> pattern, CoverageStatsReporter reporter) throws Exception;
+
+    void runSuffix(List<String> pattern, CoverageStatsReporter reporter) throws Exception;
+}
@@ -0,0 +1,207 @@
+package edu.unl.exceptionamplifier.explorer;
+
+import edu.unl.exceptionamplifier.builder.ExceptionalSpaceBuilder;
+import edu.unl.exceptionamplifier.util.CoverageStatsReporter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LLM_FEEDBACK：按轮次生成、执行并反馈
+ * Each round asks the LLM for a batch of patterns, executes the ones not run before through the
+ * {@link TestExplorer}, and attributes every exception chain newly recorded in the
+ * {@link CoverageStatsReporter} to the pattern that produced it. The next prompt lists the
+ * productive patterns with their new chains, the redundant ones, and every chain seen so far. The
+ * loop stops when {@code plateauRounds} consecutive rounds find no new chain, when a round brings no
+ * unseen pattern, when the explorer's budget is spent, or after {@code maxRounds}.
+ *
+ * The test logic records exception chains into the reporter it is handed (as the amplified tests do
+ * with {@code addSutExceptionChain}). Each pattern gets a reporter of its own, which is merged into the
+ * loop's reporter when the pattern ends, so chains are credited to the right pattern even when the
+ * explorer runs patterns in parallel. Rounds are only returned by {@link #run}, never printed.
+ */
+public class LLMFeedbackLoop {
+    private static final int MAX_LISTED = 10; // 反馈中每类最多列出的条目数
+
+    private final ExceptionalSpaceBuilder builder;
+    private final TestExplorer explorer;
+    private final CoverageStatsReporter reporter;
+    private int maxRounds = 5;
+    private int plateauRounds = 1;
+    private int batchSize = 20;
+
+    public static class RoundSummary {
+        public final int round;
+        public final int patternsReceived;
+        public final int patternsExecuted;
+        public final int newChains;
+
+        RoundSummary(int round, int patternsReceived, int patternsExecuted, int newChains) {
+            this.round = round;
+            this.patternsReceived = patternsReceived;
+            this.patternsExecuted = patternsExecuted;
+            this.newChains = newChains;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("round %d: %d received, %d executed, %d new chains",
+                    round, patternsReceived, patternsExecuted, newChains);
+        }
+    }
+
+    private static class PatternOutcome {
+        final List<String> pattern;
+        final List<String> newChains;
+
+        PatternOutcome(List<String> pattern, List<String> newChains) {
+            this.pattern = pattern;
+            this.newChains = newChains;
+        }
+    }
+
+    public LLMFeedbackLoop(ExceptionalSpaceBuilder builder, TestExplorer explorer, CoverageStatsReporter reporter) {
+        this.builder = builder;
+        this.explorer = explorer;
+        this.reporter = reporter;
+    }
+
+    public void setMaxRounds(int maxRounds) {
+        this.maxRounds = maxRounds;
+    }
+
+    /**
+     * 连续多少轮没有新异常链后停止（默认 1）
+     */
+    public void setPlateauRounds(int plateauRounds) {
+        this.plateauRounds = plateauRounds;
+    }
+
+    /**
+     * 每轮向 LLM 请求的模式数
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public List<RoundSummary> run(List<String> apiCalls, List<String> exceptionTypes,
+                                  ReportingTestLogic testLogic) {
+        List<RoundSummary> summaries = new ArrayList<>();
+        Set<List<String>> executed = new LinkedHashSet<>(); // 有序，保证反馈 prompt 可复现（可命中缓存）
+        String feedback = null;
+        int roundsWithoutFindings = 0;
+
+        for (int round = 1; round <= maxRounds && !explorer.isBudgetExhausted(); round++) {
+            String prompt = feedback == null
+                    ? builder.buildLLMPrompt(apiCalls, exceptionTypes)
+                    : builder.buildLLMFeedbackPrompt(apiCalls, exceptionTypes, feedback, batchSize);
+            List<List<String>> received = builder.generateLLMPatterns(prompt, apiCalls, exceptionTypes);
+
+            List<List<String>> fresh = new ArrayList<>();
+            for (List<String> pattern : received) {
+                if (executed.add(pattern)) {
+                    fresh.add(pattern);
+                }
+            }
+
+            int chainsBefore = reporter.getDistinctChainCount();
+            List<PatternOutcome> outcomes = new ArrayList<>();
+            explorer.explore(apiCalls, fresh.iterator(), pattern -> {
+                CoverageStatsReporter own = new CoverageStatsReporter();
+                try {
+                    testLogic.accept(pattern, own);
+                } finally {
+                    // 合并与归属在同一把锁内完成，并行执行时新异常链只记在先合并的模式上
+                    synchronized (reporter) {
+                        int before = reporter.getDistinctChainCount();
+                        reporter.merge(own);
+                        outcomes.add(new PatternOutcome(new ArrayList<>(pattern),
+                                new ArrayList<>(reporter.getChainSignatures().subList(before, reporter.getDistinctChainCount()))));
+                    }
+                }
+            });
+            int newChains = reporter.getDistinctChainCount() - chainsBefore;
+            sortByReceivedOrder(outcomes, fresh);
+
+            summaries.add(new RoundSummary(round, received.size(), outcomes.size(), newChains));
+
+            if (fresh.isEmpty()) {
+                break;
+            }
+            roundsWithoutFindings = newChains == 0 ? roundsWithoutFindings + 1 : 0;
+            if (roundsWithoutFindings >= plateauRounds) {
+                break;
+            }
+            feedback = summarize(executed, outcomes);
+        }
+        return summaries;
+    }
+
+    /**
+     * 按 LLM 给出的顺序排列结果，使并行执行时反馈 prompt 仍可复现
+     */
+    private static void sortByReceivedOrder(List<PatternOutcome> outcomes, List<List<String>> fresh) {
+        Map<List<String>, Integer> order = new HashMap<>();
+        for (List<String> pattern : fresh) {
+            order.put(pattern, order.size());
+        }
+        outcomes.sort(Comparator.comparingInt(outcome -> order.getOrDefault(outcome.pattern, Integer.MAX_VALUE)));
+    }
+
+    /**
+     * 上一轮结果的文字摘要，供下一轮 prompt 使用
+     */
+    private String summarize(Set<List<String>> executed, List<PatternOutcome> outcomes) {
+        StringBuilder feedback = new StringBuilder();
+        List<PatternOutcome> productive = new ArrayList<>();
+        List<PatternOutcome> redundant = new ArrayList<>();
+        for (PatternOutcome outcome : outcomes) {
+            (outcome.newChains.isEmpty() ? redundant : productive).add(outcome);
+        }
+
+        feedback.append("Productive patterns (produced new failure chains):\n");
+        appendOutcomes(feedback, productive, true);
+        feedback.append("Redundant patterns (no new failure chain):\n");
+        appendOutcomes(feedback, redundant, false);
+        feedback.append("Failure chains observed so far:\n");
+        List<String> chains = reporter.getChainSignatures();
+        for (int i = 0; i < chains.size() && i < MAX_LISTED * 2; i++) {
+            feedback.append("  - ").append(chains.get(i)).append('\n');
+        }
+        if (chains.size() > MAX_LISTED * 2) {
+            feedback.append("  ... and ").append(chains.size() - MAX_LISTED * 2).append(" more\n");
+        }
+        feedback.append("Patterns already tried: ").append(executed.size()).append(" (do not repeat them):\n");
+        int listed = 0;
+        for (List<String> pattern : executed) {
+            if (listed++ == MAX_LISTED * 3) {
+                feedback.append("  ...\n");
+                break;
+            }
+            feedback.append("  ").append(pattern).append('\n');
+        }
+        return feedback.toString();
+    }
+
+    private static void appendOutcomes(StringBuilder feedback, List<PatternOutcome> outcomes, boolean withChains) {
+        if (outcomes.isEmpty()) {
+            feedback.append("  (none)\n");
+        }
+        for (int i = 0; i < outcomes.size() && i < MAX_LISTED; i++) {
+            PatternOutcome outcome = outcomes.get(i);
+            feedback.append("  ").append(outcome.pattern);
+            if (withChains) {
+                feedback.append(" -> ").append(String.join("; ", outcome.newChains));
+            }
+            feedback.append('\n');
+        }
+        if (outcomes.size() > MAX_LISTED) {
+            feedback.append("  ... and ").append(outcomes.size() - MAX_LISTED).append(" more\n");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package edu.unl.exceptionamplifier.explorer;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 采样日志监听器：每 sampleEvery 个模式打印一行，超时的模式和探索摘要总是打印
+ * For large explorations wrap it in an {@link AsyncBatchingListener} so printing happens on a
+ * background thread, e.g.
+ * {@code explorer.addListener(new AsyncBatchingListener(new LoggingExplorationListener(System.out, 1000)))}.
+ */
+public class LoggingExplorationListener implements ExplorationListener {
+    private final PrintStream out;
+    private final int sampleEvery;
+    private final AtomicLong finished = new AtomicLong();
+
+    /**
+     * @param sampleEvery 1 logs every pattern.
+     */
+    public LoggingExplorationListener(PrintStream out, int sampleEvery) {
+        if (sampleEvery <= 0) {
+            throw new IllegalArgumentException("sampleEvery must be positive: " + sampleEvery);
+        }
+        this.out = out;
+        this.sampleEvery = sampleEvery;
+    }
+
+    @Override
+    public void patternFinished(List<String> pattern, Outcome outcome, Throwable failure, long durationNanos) {
+        long n = finished.incrementAndGet();
+        if (n % sampleEvery != 0 && outcome != Outcome.TIMED_OUT) {
+            return;
+        }
+        StringBuilder line = new StringBuilder("[TestExplorer] #").append(n).append(' ').append(outcome)
+                .append(" in ").append(durationNanos / 1_000).append(" us: ").append(pattern);
+        if (failure != null) {
+            line.append(" -> ").append(failure);
+        }
+        out.println(line);
+    }
+
+    @Override
+    public void explorationDone(Summary summary) {
+        out.println("[TestExplorer] Exploration done: " + summary);
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+}
@@ -0,0 +1,14 @@
+package edu.unl.exceptionamplifier.explorer;
+
+import edu.unl.exceptionamplifier.util.CoverageStatsReporter;
+
+import java.util.List;
+
+/**
+ * 带统计的测试逻辑：结果写入传入的 reporter，而不是共享的 reporter，
+ * 这样并行执行时每个工作单元可以拥有独立的统计状态。
+ */
+@FunctionalInterface
+public interface ReportingTestLogic {
+    void accept(List<String> pattern, CoverageStatsReporter reporter) throws Exception;
+}
@@ -0,0 +1,39 @@
+package edu.unl.exceptionamplifier.explorer;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 分片探索任务：在每个子 JVM 中按类名实例化（需要 public 无参构造器）
+ * Every JVM must build the same pattern space, so {@link #patterns} has to be deterministic: a shard
+ * asks only for its own index range, e.g. through the range constructor of
+ * {@link edu.unl.exceptionamplifier.builder.ExhaustivePatternIterator}. A child runs in its own
+ * working directory ({@link ShardedExplorer#SHARD_INDEX_PROPERTY} gives its index), so relative
+ * SQLite file paths are private to the shard.
+ */
+public interface ShardTask {
+
+    /**
+     * @return size of the whole indexed pattern space; the parent splits [0, patternCount()) into shards.
+     */
+    long patternCount();
+
+    Iterator<List<String>> patterns(long fromIndex, long toIndex);
+
+    /**
+     * 子进程中执行每个模式的测试逻辑，结果写入传入的 reporter
+     */
+    ReportingTestLogic testLogic() throws Exception;
+
+    default List<String> resources() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * 在子进程中配置 TestExplorer；默认不限预算，探索整个分片
+     */
+    default void configure(TestExplorer explorer) {
+        explorer.setMaxExecutions(Integer.MAX_VALUE);
+    }
+}
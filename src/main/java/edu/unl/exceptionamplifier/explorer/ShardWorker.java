@@ -0,0 +1,79 @@
+package edu.unl.exceptionamplifier.explorer;
+
+import edu.unl.exceptionamplifier.util.CoverageStatsReporter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * 分片子进程入口，由 {@link ShardedExplorer} 启动
+ * Usage: {@code ShardWorker <taskClass> <fromIndex> <toIndex> <chunkSize>}. The shard is explored in
+ * chunks of {@code chunkSize} patterns; after each chunk its reporter is sent to the parent and a
+ * fresh one is started, so results stream back while the shard runs and the child never holds more
+ * than one chunk of statistics. The protocol owns the raw stdout; {@code System.out} is redirected
+ * to stderr so output of the SUT or test logic cannot corrupt it.
+ *
+ * <p>Frames: {@code 'R' <int length> <reporter snapshot>}, then {@code 'D' <long executed>
+ * <int injected> <int pruned> <int timedOut>} on success, or {@code 'E' <UTF message>} on failure.
+ */
+public final class ShardWorker {
+    static final byte FRAME_REPORT = 'R';
+    static final byte FRAME_DONE = 'D';
+    static final byte FRAME_ERROR = 'E';
+
+    private ShardWorker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        DataOutputStream protocol = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true));
+        try {
+            ShardTask task = (ShardTask) Class.forName(args[0]).getDeclaredConstructor().newInstance();
+            long from = Long.parseLong(args[1]);
+            long to = Long.parseLong(args[2]);
+            long chunkSize = Long.parseLong(args[3]);
+            run(task, from, to, chunkSize, protocol);
+        } catch (Throwable t) {
+            t.printStackTrace();
+            protocol.writeByte(FRAME_ERROR);
+            protocol.writeUTF(String.valueOf(t));
+            protocol.flush();
+            System.exit(1);
+        }
+        protocol.flush();
+        System.exit(0); // 测试逻辑可能留下非守护线程（如超时被放弃的模式）
+    }
+
+    private static void run(ShardTask task, long from, long to, long chunkSize,
+                            DataOutputStream protocol) throws Exception {
+        TestExplorer explorer = new TestExplorer();
+        task.configure(explorer);
+        ReportingTestLogic testLogic = task.testLogic();
+        for (long start = from; start < to && !explorer.isBudgetExhausted(); start += chunkSize) {
+            long end = Math.min(to, start + chunkSize);
+            CoverageStatsReporter chunk = new CoverageStatsReporter();
+            explorer.explore(task.resources(), task.patterns(start, end), testLogic, chunk);
+            sendReport(chunk, protocol);
+        }
+        protocol.writeByte(FRAME_DONE);
+        protocol.writeLong(explorer.getExecutedPatternCount());
+        protocol.writeInt(explorer.getTotalExecutions());
+        protocol.writeInt(explorer.getPrunedCount());
+        protocol.writeInt(explorer.getTimedOutCount());
+    }
+
+    private static void sendReport(CoverageStatsReporter chunk, DataOutputStream protocol) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        chunk.writeSnapshot(new DataOutputStream(bytes));
+        protocol.writeByte(FRAME_REPORT);
+        protocol.writeInt(bytes.size());
+        bytes.writeTo(protocol);
+        protocol.flush();
+    }
+}
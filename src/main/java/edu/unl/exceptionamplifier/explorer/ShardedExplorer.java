@@ -0,0 +1,192 @@
+package edu.unl.exceptionamplifier.explorer;
+
+import edu.unl.exceptionamplifier.util.CoverageStatsReporter;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多进程分片探索：模式空间按下标区间切分给 N 个本地子 JVM，结果流式传回并合并为一份报告
+ * Each child gets its own heap, its own Mockito state and its own working directory
+ * {@code <workDirectory>/shard-<i>} (so relative SQLite files do not collide), and runs
+ * {@link ShardWorker} over [from, to) of the task's space. Reporter snapshots arrive in chunks while
+ * the shards run and are merged as they come in. Children use the parent's classpath and Java
+ * executable; add heap or agent options with {@link #setJvmArgs}.
+ */
+public class ShardedExplorer {
+    public static final String SHARD_INDEX_PROPERTY = "exceptionamplifier.shard.index";
+    public static final String SHARD_COUNT_PROPERTY = "exceptionamplifier.shard.count";
+
+    private final int shards;
+    private final Path workDirectory;
+    private List<String> jvmArgs = new ArrayList<>();
+    private String classpath = System.getProperty("java.class.path");
+    private long chunkSize = 1000;
+    private final AtomicLong executedPatterns = new AtomicLong();
+    private final AtomicInteger injectedExceptions = new AtomicInteger();
+    private final AtomicInteger prunedPatterns = new AtomicInteger();
+    private final AtomicInteger timedOutPatterns = new AtomicInteger();
+
+    public ShardedExplorer(int shards, Path workDirectory) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("shards must be positive: " + shards);
+        }
+        this.shards = shards;
+        this.workDirectory = workDirectory;
+    }
+
+    public void setJvmArgs(List<String> jvmArgs) {
+        this.jvmArgs = new ArrayList<>(jvmArgs);
+    }
+
+    public void setClasspath(String classpath) {
+        this.classpath = classpath;
+    }
+
+    /**
+     * 子进程每执行 chunkSize 个模式回传一次部分结果
+     */
+    public void setChunkSize(long chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 启动全部分片并等待结束
+     *
+     * @return the merged results of all shards.
+     * @throws IOException if a shard cannot be started, exits abnormally or breaks the protocol; the
+     *                     remaining shards are then killed.
+     */
+    public CoverageStatsReporter explore(Class<? extends ShardTask> taskClass) throws IOException, InterruptedException {
+        long total;
+        try {
+            total = taskClass.getDeclaredConstructor().newInstance().patternCount();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot instantiate " + taskClass.getName(), e);
+        }
+        CoverageStatsReporter merged = new CoverageStatsReporter();
+        List<Process> processes = new ArrayList<>();
+        ExecutorService readers = Executors.newFixedThreadPool(shards);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int shard = 0; shard < shards; shard++) {
+                long from = total / shards * shard + Math.min(shard, total % shards);
+                long to = from + total / shards + (shard < total % shards ? 1 : 0);
+                Process process = start(taskClass, shard, from, to);
+                processes.add(process);
+                int index = shard;
+                results.add(readers.submit(() -> {
+                    readShard(index, process, merged);
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException("Shard reader failed", e.getCause());
+                }
+            }
+        } finally {
+            readers.shutdownNow();
+            for (Process process : processes) {
+                process.destroyForcibly();
+            }
+        }
+        return merged;
+    }
+
+    private Process start(Class<? extends ShardTask> taskClass, int shard, long from, long to) throws IOException {
+        Path directory = workDirectory.resolve("shard-" + shard);
+        Files.createDirectories(directory);
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmArgs);
+        command.add("-D" + SHARD_INDEX_PROPERTY + "=" + shard);
+        command.add("-D" + SHARD_COUNT_PROPERTY + "=" + shards);
+        command.add("-cp");
+        command.add(classpath);
+        command.add(ShardWorker.class.getName());
+        command.add(taskClass.getName());
+        command.add(Long.toString(from));
+        command.add(Long.toString(to));
+        command.add(Long.toString(chunkSize));
+        return new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    private void readShard(int shard, Process process, CoverageStatsReporter merged) throws IOException, InterruptedException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()))) {
+            while (true) {
+                byte frame;
+                try {
+                    frame = in.readByte();
+                } catch (EOFException e) {
+                    throw new IOException("Shard " + shard + " exited with code " + process.waitFor()
+                            + " before finishing");
+                }
+                if (frame == ShardWorker.FRAME_REPORT) {
+                    byte[] snapshot = new byte[in.readInt()];
+                    in.readFully(snapshot);
+                    CoverageStatsReporter partial = CoverageStatsReporter.readSnapshot(
+                            new DataInputStream(new ByteArrayInputStream(snapshot)));
+                    synchronized (merged) {
+                        merged.merge(partial);
+                    }
+                } else if (frame == ShardWorker.FRAME_DONE) {
+                    executedPatterns.addAndGet(in.readLong());
+                    injectedExceptions.addAndGet(in.readInt());
+                    prunedPatterns.addAndGet(in.readInt());
+                    timedOutPatterns.addAndGet(in.readInt());
+                    break;
+                } else if (frame == ShardWorker.FRAME_ERROR) {
+                    throw new IOException("Shard " + shard + " failed: " + in.readUTF());
+                } else {
+                    throw new IOException("Shard " + shard + " sent unknown frame " + frame);
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("Shard " + shard + " exited with code " + exitCode);
+        }
+    }
+
+    public long getExecutedPatternCount() {
+        return executedPatterns.get();
+    }
+
+    public int getTotalExecutions() {
+        return injectedExceptions.get();
+    }
+
+    public int getPrunedCount() {
+        return prunedPatterns.get();
+    }
+
+    public int getTimedOutCount() {
+        return timedOutPatterns.get();
+    }
+}
@@ -0,0 +1,64 @@
+package edu.unl.exceptionamplifier.explorer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * SQLite 数据库文件的检查点：快照时复制数据库文件及其 -journal/-wal/-shm 附属文件，恢复时复制回去
+ * Only valid while no connection holds the database open, which is the case for
+ * {@code StockTradingRepository} and {@code OrderRepository}: they open a connection per operation.
+ * Sidecar files absent at capture time are deleted on restore.
+ */
+public class SqliteFileCheckpoint implements SutCheckpoint {
+    private static final String[] SIDECAR_SUFFIXES = {"", "-journal", "-wal", "-shm"};
+
+    private final Path databaseFile;
+
+    public SqliteFileCheckpoint(Path databaseFile) {
+        this.databaseFile = databaseFile;
+    }
+
+    @Override
+    public Snapshot capture() throws IOException {
+        Path directory = Files.createTempDirectory("sqlite-checkpoint");
+        boolean[] present = new boolean[SIDECAR_SUFFIXES.length];
+        for (int i = 0; i < SIDECAR_SUFFIXES.length; i++) {
+            Path file = sidecar(i);
+            if (Files.exists(file)) {
+                Files.copy(file, directory.resolve(Integer.toString(i)));
+                present[i] = true;
+            }
+        }
+        return new Snapshot() {
+            @Override
+            public void restore() throws IOException {
+                for (int i = 0; i < SIDECAR_SUFFIXES.length; i++) {
+                    if (present[i]) {
+                        Files.copy(directory.resolve(Integer.toString(i)), sidecar(i), StandardCopyOption.REPLACE_EXISTING);
+                    } else {
+                        Files.deleteIfExists(sidecar(i));
+                    }
+                }
+            }
+
+            @Override
+            public void close() {
+                try {
+                    for (int i = 0; i < SIDECAR_SUFFIXES.length; i++) {
+                        Files.deleteIfExists(directory.resolve(Integer.toString(i)));
+                    }
+                    Files.deleteIfExists(directory);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private Path sidecar(int index) {
+        return databaseFile.resolveSibling(databaseFile.getFileName() + SIDECAR_SUFFIXES[index]);
+    }
+}
@@ -0,0 +1,26 @@
+package edu.unl.exceptionamplifier.explorer;
+
+/**
+ * 被测系统某部分状态的检查点
+ * {@link #capture()} saves the current state and returns a snapshot that can be restored any number
+ * of times, so the state reached after a shared pattern prefix can be forked for every suffix.
+ * In-memory fakes can be checkpointed with a lambda, for example
+ * {@code () -> { double saved = fake.balance; return () -> fake.balance = saved; }}; see
+ * {@link SqliteFileCheckpoint} for SQLite database files.
+ */
+@FunctionalInterface
+public interface SutCheckpoint {
+    Snapshot capture() throws Exception;
+
+    @FunctionalInterface
+    interface Snapshot extends AutoCloseable {
+        void restore() throws Exception;
+
+        /**
+         * 释放快照占用的资源（如临时文件）
+         */
+        @Override
+        default void close() {
+        }
+    }
+}
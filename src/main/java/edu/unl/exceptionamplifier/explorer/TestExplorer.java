@@ -1,188 +1,307 @@
 package edu.unl.exceptionamplifier.explorer;
 
+import edu.unl.exceptionamplifier.builder.ExhaustivePatternIterator;
+import edu.unl.exceptionamplifier.builder.PatternPrefixTrie;
 import edu.unl.exceptionamplifier.mocker.ResourceMocker;
+import edu.unl.exceptionamplifier.model.ExceptionDependencyMatrix;
+import edu.unl.exceptionamplifier.model.PatternSpace;
+import edu.unl.exceptionamplifier.model.TrackingPattern;
+import edu.unl.exceptionamplifier.util.CoverageStatsReporter;
+import edu.unl.exceptionamplifier.util.LongHashSet;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 public class TestExplorer {
     private final ResourceMocker mocker = new ResourceMocker();
-    private final Map<String, Set<String>> exceptionDependencies = new HashMap<>();
-    private final Map<String, Integer> executionCount = new HashMap<>();
-    private int maxExecutions = 100; // 最大执行次数限制
-
-    public TestExplorer() {
-        initializeExceptionDependencies();
-    }
-
-    private void initializeExceptionDependencies() {
-        // IO相关异常组
-        Set<String> ioDeps = new HashSet<>(Arrays.asList(
-            "FileNotFoundException",
-            "IOException",
-            "EOFException",
-            "FileSystemException",
-            "SecurityException"
-        ));
-
-        // 网络相关异常组
-        Set<String> networkDeps = new HashSet<>(Arrays.asList(
-            "TimeoutException",
-            "RemoteApiException",
-            "ConnectException",
-            "SocketTimeoutException",
-            "UnknownHostException",
-            "SSLException"
-        ));
-
-        // 业务逻辑异常组
-        Set<String> businessDeps = new HashSet<>(Arrays.asList(
-            "InsufficientBalanceException",
-            "PositionNotEnoughException",
-            "InvalidOrderException",
-            "MarketClosedException",
-            "PriceLimitException"
-        ));
-
-        // 数据库相关异常组
-        Set<String> dbDeps = new HashSet<>(Arrays.asList(
-            "SQLException",
-            "DataAccessException",
-            "TransactionException",
-            "DeadlockException",
-            "ConnectionException"
-        ));
-
-        // 并发相关异常组
-        Set<String> concurrentDeps = new HashSet<>(Arrays.asList(
-            "ConcurrentModificationException",
-            "InterruptedException",
-            "ExecutionException",
-            "CancellationException",
-            "RejectedExecutionException"
-        ));
-
-        // 配置相关异常组
-        Set<String> configDeps = new HashSet<>(Arrays.asList(
-            "ConfigurationException",
-            "IllegalArgumentException",
-            "IllegalStateException",
-            "NullPointerException"
-        ));
-
-        // 注册异常依赖关系
-        // IO异常组
-        exceptionDependencies.put("IOException", ioDeps);
-        exceptionDependencies.put("FileNotFoundException", ioDeps);
-        exceptionDependencies.put("EOFException", ioDeps);
-        exceptionDependencies.put("FileSystemException", ioDeps);
-
-        // 网络异常组
-        exceptionDependencies.put("TimeoutException", networkDeps);
-        exceptionDependencies.put("RemoteApiException", networkDeps);
-        exceptionDependencies.put("ConnectException", networkDeps);
-        exceptionDependencies.put("SocketTimeoutException", networkDeps);
-        exceptionDependencies.put("UnknownHostException", networkDeps);
-        exceptionDependencies.put("SSLException", networkDeps);
-
-        // 业务异常组
-        exceptionDependencies.put("InsufficientBalanceException", businessDeps);
-        exceptionDependencies.put("PositionNotEnoughException", businessDeps);
-        exceptionDependencies.put("InvalidOrderException", businessDeps);
-        exceptionDependencies.put("MarketClosedException", businessDeps);
-        exceptionDependencies.put("PriceLimitException", businessDeps);
-
-        // 数据库异常组
-        exceptionDependencies.put("SQLException", dbDeps);
-        exceptionDependencies.put("DataAccessException", dbDeps);
-        exceptionDependencies.put("TransactionException", dbDeps);
-        exceptionDependencies.put("DeadlockException", dbDeps);
-        exceptionDependencies.put("ConnectionException", dbDeps);
-
-        // 并发异常组
-        exceptionDependencies.put("ConcurrentModificationException", concurrentDeps);
-        exceptionDependencies.put("InterruptedException", concurrentDeps);
-        exceptionDependencies.put("ExecutionException", concurrentDeps);
-        exceptionDependencies.put("CancellationException", concurrentDeps);
-        exceptionDependencies.put("RejectedExecutionException", concurrentDeps);
-
-        // 配置异常组
-        exceptionDependencies.put("ConfigurationException", configDeps);
-        exceptionDependencies.put("IllegalArgumentException", configDeps);
-        exceptionDependencies.put("IllegalStateException", configDeps);
-        exceptionDependencies.put("NullPointerException", configDeps);
-
-        // 添加跨组依赖关系
-        addCrossGroupDependencies();
-    }
+    private final ExceptionDependencyMatrix dependencyMatrix = new ExceptionDependencyMatrix();
+    private PatternSpace mappedSpace; // 上一次校验的 PatternView 所属空间及其状态 id 到矩阵 id 的映射
+    private int[] mappedIds;
+    private final Map<String, Integer> executionCount = new ConcurrentHashMap<>();
+    private final AtomicInteger totalExecutions = new AtomicInteger(); // executionCount 各项之和，避免每个模式都重新求和
+    private volatile int maxExecutions = 100; // 最大执行次数限制
+    private boolean prefixPruning = false; // 前缀剪枝，需显式开启
+    private PatternPrefixTrie prefixTrie = new PatternPrefixTrie();
+    private final AtomicLong prunedCount = new AtomicLong();
+    private static final int NOT_EXECUTED = -2;
+    private static final long NO_KEY = Long.MIN_VALUE; // 不记入进度日志的模式
+    private ExplorationJournal journal;
+    private final AtomicLong resumedPatterns = new AtomicLong();
+    private ExecutorService executor; // 为 null 时在调用线程上顺序执行
+    private int maxConcurrentPatterns;
+    private int parallelism = 1;
+    private volatile long patternTimeoutMillis = 0; // 0 表示不限时
+    private ExecutorService watchdogPool; // 限时执行测试逻辑的守护线程，首次需要时创建
+    private final AtomicInteger timedOutCount = new AtomicInteger();
+    private final AtomicLong executedPatterns = new AtomicLong();
+    private volatile ExplorationListener[] listeners = new ExplorationListener[0]; // 写时复制，热路径只读数组
+    private boolean virtualThreads = false;
+    private int virtualThreadConcurrency;
+    // Executors.newVirtualThreadPerTaskExecutor（JDK 21+），代码以 release 8 编译，因此通过反射获取
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadFactory();
 
     /**
-     * 添加跨组异常依赖关系
+     * 并行执行时每个工作单元独立的 mock 与统计状态，结束后合并
      */
-    private void addCrossGroupDependencies() {
-        // 网络异常可能引发IO异常
-        Set<String> networkToIO = new HashSet<>(Arrays.asList(
-            "IOException",
-            "FileSystemException"
-        ));
-        exceptionDependencies.get("RemoteApiException").addAll(networkToIO);
-        exceptionDependencies.get("ConnectException").addAll(networkToIO);
-
-        // 数据库异常可能引发业务异常
-        Set<String> dbToBusiness = new HashSet<>(Arrays.asList(
-            "InvalidOrderException",
-            "PositionNotEnoughException"
-        ));
-        exceptionDependencies.get("SQLException").addAll(dbToBusiness);
-        exceptionDependencies.get("TransactionException").addAll(dbToBusiness);
-
-        // 并发异常可能引发业务异常
-        Set<String> concurrentToBusiness = new HashSet<>(Arrays.asList(
-            "InsufficientBalanceException",
-            "PositionNotEnoughException"
-        ));
-        exceptionDependencies.get("ConcurrentModificationException").addAll(concurrentToBusiness);
-        exceptionDependencies.get("ExecutionException").addAll(concurrentToBusiness);
-
-        // 配置异常可能引发业务异常
-        Set<String> configToBusiness = new HashSet<>(Arrays.asList(
-            "InvalidOrderException",
-            "MarketClosedException"
-        ));
-        exceptionDependencies.get("ConfigurationException").addAll(configToBusiness);
-        exceptionDependencies.get("IllegalStateException").addAll(configToBusiness);
+    private static final class WorkerState {
+        final ResourceMocker mocker = new ResourceMocker();
+        final CoverageStatsReporter reporter = new CoverageStatsReporter();
     }
 
     public void setMaxExecutions(int max) {
         this.maxExecutions = max;
     }
 
+    /**
+     * @return number of injected exceptions so far, the quantity limited by {@link #setMaxExecutions}.
+     */
+    public int getTotalExecutions() {
+        return totalExecutions.get();
+    }
+
+    /**
+     * @return number of patterns whose test logic was run (pruned and over-budget patterns excluded).
+     */
+    public long getExecutedPatternCount() {
+        return executedPatterns.get();
+    }
+
+    /**
+     * 注册探索事件监听器；未注册任何监听器时探索过程不产生输出，也不计时
+     * Failures of the test logic are reported only through {@link ExplorationListener#patternFinished};
+     * use a {@link LoggingExplorationListener} to print them.
+     */
+    public synchronized void addListener(ExplorationListener listener) {
+        ExplorationListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+        grown[listeners.length] = listener;
+        listeners = grown;
+    }
+
+    public synchronized void removeListener(ExplorationListener listener) {
+        List<ExplorationListener> remaining = new ArrayList<>(Arrays.asList(listeners));
+        remaining.remove(listener);
+        listeners = remaining.toArray(new ExplorationListener[0]);
+    }
+
+    /**
+     * 使用给定线程池并行执行模式（调用方负责关闭线程池），传入 null 恢复顺序执行
+     * At most {@code maxConcurrentPatterns} patterns are submitted but not yet finished, so a lazy
+     * pattern source is consumed only as fast as the workers drain it. Test logic must then be
+     * thread-safe; use the {@link ReportingTestLogic} overloads to get an isolated reporter per worker
+     * that is merged into the caller's reporter at the end.
+     */
+    public void setExecutorService(ExecutorService executor, int maxConcurrentPatterns) {
+        if (executor != null && maxConcurrentPatterns <= 0) {
+            throw new IllegalArgumentException("maxConcurrentPatterns must be positive: " + maxConcurrentPatterns);
+        }
+        this.executor = executor;
+        this.maxConcurrentPatterns = maxConcurrentPatterns;
+    }
+
+    /**
+     * 虚拟线程模式：每个模式在自己的虚拟线程上运行，适合大部分时间阻塞在 SQLite/HTTP 替身上的被测逻辑
+     * Up to {@code maxConcurrentPatterns} patterns (thousands is fine) can be blocked at once without
+     * sizing a thread pool. Requires a Java 21+ runtime (see the java21 profile in pom.xml); on older
+     * runtimes a warning is printed and each exploration runs on a pool of {@code maxConcurrentPatterns}
+     * platform threads instead, so keep the limit modest there. An executor set with
+     * {@link #setExecutorService} takes precedence.
+     */
+    public void setVirtualThreads(boolean enabled, int maxConcurrentPatterns) {
+        if (enabled && maxConcurrentPatterns <= 0) {
+            throw new IllegalArgumentException("maxConcurrentPatterns must be positive: " + maxConcurrentPatterns);
+        }
+        if (enabled && NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+            System.err.println("[TestExplorer] Virtual threads need Java 21+ (running " +
+                    System.getProperty("java.version") + "); using a pool of " + maxConcurrentPatterns + " platform threads.");
+        }
+        this.virtualThreads = enabled;
+        this.virtualThreadConcurrency = maxConcurrentPatterns;
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    private static Method findVirtualThreadFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * 便捷设置：threads > 1 时每次探索使用一个 threads 大小的内部线程池，探索结束后关闭
+     */
+    public void setParallelism(int threads) {
+        this.parallelism = threads;
+    }
+
+    /**
+     * 单模式时限：超时的模式被中断并放弃，记录为 {@link CoverageStatsReporter#TIMEOUT}，探索继续
+     * The test logic then runs on a daemon watchdog thread while the caller waits at most
+     * {@code timeout}. On expiry the thread is interrupted; if it ignores the interrupt (e.g. blocked
+     * in a socket read or on a locked SQLite file) it is abandoned and a fresh thread serves the next
+     * pattern. Each pattern writes to a scratch reporter that is merged only if it finishes in time,
+     * so an abandoned run cannot touch the results. A timeout of 0 (the default) disables the watchdog.
+     * {@link #exploreWithCheckpoints} rejects a timeout, since an abandoned run there would keep
+     * changing the shared SUT state.
+     */
+    public void setPatternTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must not be negative: " + timeout);
+        }
+        this.patternTimeoutMillis = unit.toMillis(timeout);
+    }
+
+    /**
+     * @return number of patterns abandoned because they exceeded the pattern timeout.
+     */
+    public int getTimedOutCount() {
+        return timedOutCount.get();
+    }
+
+    private synchronized ExecutorService watchdogPool() {
+        if (watchdogPool == null) {
+            watchdogPool = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "pattern-watchdog");
+                thread.setDaemon(true); // 被放弃的线程不能阻止 JVM 退出
+                return thread;
+            });
+        }
+        return watchdogPool;
+    }
+
+    /**
+     * 在守护线程上执行测试逻辑并等待至时限；超时记录 TIMEOUT 后返回，测试逻辑抛出的异常原样抛出
+     *
+     * @return false if the pattern timed out.
+     */
+    private boolean runWithDeadline(List<String> pattern, ReportingTestLogic testLogic,
+                                 CoverageStatsReporter reporter, long timeoutMillis) throws Exception {
+        CoverageStatsReporter scratch = reporter == null ? null : new CoverageStatsReporter();
+        Future<?> run = watchdogPool().submit(() -> {
+            testLogic.accept(pattern, scratch);
+            return null;
+        });
+        try {
+            run.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            run.cancel(true);
+            timedOutCount.incrementAndGet();
+            if (reporter != null) {
+                reporter.addTimeout(pattern);
+            }
+            return false;
+        } catch (InterruptedException e) {
+            run.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            if (scratch != null) {
+                reporter.merge(scratch);
+            }
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw (Error) e.getCause();
+        }
+        if (scratch != null) {
+            reporter.merge(scratch);
+        }
+        return true;
+    }
+
+    /**
+     * 记录进度的日志：已在日志中的模式不再执行，新执行的模式追加到日志中；传入 null 关闭
+     * Applies to {@code explore}/{@code exploreWithDependencies}. A pattern is identified by its rank
+     * when it is a rankable {@link PatternSpace.PatternView}, and otherwise by its position in the
+     * pattern sequence, so a resumed run must be given the same patterns in the same order. Skipped
+     * patterns still count towards the budget and, with prefix pruning, prune as if they had run.
+     * The state they recorded is merged into the reporter once, at the start of the next exploration.
+     * The caller keeps ownership of the journal and closes it.
+     */
+    public void setJournal(ExplorationJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return number of patterns skipped because the journal already recorded them.
+     */
+    public long getResumedCount() {
+        return resumedPatterns.get();
+    }
+
+    private static long journalKey(List<String> pattern, long ordinal) {
+        if (pattern instanceof PatternSpace.PatternView && ((PatternSpace.PatternView) pattern).space().isRankable()) {
+            return ((PatternSpace.PatternView) pattern).rank();
+        }
+        return ordinal;
+    }
+
+    /**
+     * 开启前缀剪枝
+     * The pattern handed to the test logic records the highest call position the SUT reads through
+     * {@code pattern.get(i)}. Once a run stops reading at position i, every other pattern that agrees
+     * on positions 0..i is treated as equivalent and skipped. This assumes the test logic is
+     * deterministic and only reads position i when call i actually happens, as the mock answers in
+     * the amplified tests do.
+     */
+    public void setPrefixPruning(boolean enabled) {
+        this.prefixPruning = enabled;
+        this.prefixTrie = new PatternPrefixTrie();
+    }
+
+    /**
+     * @return number of patterns skipped as equivalent to an already executed prefix.
+     */
+    public int getPrunedCount() {
+        return (int) Math.min(prunedCount.get(), Integer.MAX_VALUE);
+    }
+
     /**
      * 分析异常依赖关系
      */
     private void analyzeExceptionDependencies(List<String> resources) {
         for (String resource : resources) {
-            if (!executionCount.containsKey(resource)) {
-                executionCount.put(resource, 0);
-            }
+            executionCount.putIfAbsent(resource, 0);
         }
     }
 
     /**
      * 生成有意义的异常组合
+     * 去重键使用 PatternSpace 的紧凑编码（rank 或 packed byte[]），而不是拼接后的长字符串。
      */
     private List<List<String>> generateMeaningfulPatterns(List<List<String>> patterns) {
         List<List<String>> meaningfulPatterns = new ArrayList<>();
-        Set<String> processedCombinations = new HashSet<>();
+        PatternKeySet processedCombinations = new PatternKeySet(patterns);
 
         for (List<String> pattern : patterns) {
-            String patternKey = String.join(",", pattern);
-            if (processedCombinations.contains(patternKey)) {
-                continue;
-            }
-
             // 检查是否是有效的异常组合
-            if (isValidExceptionCombination(pattern)) {
+            if (!processedCombinations.contains(pattern) && isValidExceptionCombination(pattern)) {
                 meaningfulPatterns.add(pattern);
-                processedCombinations.add(patternKey);
+                processedCombinations.add(pattern);
             }
         }
 
@@ -190,35 +309,117 @@ public class TestExplorer {
     }
 
     /**
-     * 检查异常组合是否有效
+     * 模式去重集合：同长度模式按 rank 存入 LongHashSet，超出 long 范围时退化为 packed byte[]，
+     * 长度不一致（如 LLM 返回的畸形模式）时退化为字符串键。
      */
-    private boolean isValidExceptionCombination(List<String> pattern) {
-        for (int i = 0; i < pattern.size(); i++) {
-            String ex1 = pattern.get(i);
-            if ("normal".equals(ex1)) continue;
-
-            for (int j = i + 1; j < pattern.size(); j++) {
-                String ex2 = pattern.get(j);
-                if ("normal".equals(ex2)) continue;
-
-                // 检查是否存在依赖关系
-                if (exceptionDependencies.containsKey(ex1) && 
-                    exceptionDependencies.get(ex1).contains(ex2)) {
-                    return false; // 避免依赖的异常同时出现
-                }
+    private static final class PatternKeySet {
+        private final PatternSpace space;
+        private final LongHashSet ranks;
+        private final Set<Object> keys;
+
+        PatternKeySet(List<List<String>> patterns) {
+            PatternSpace candidate;
+            try {
+                candidate = PatternSpace.of(patterns);
+            } catch (IllegalArgumentException e) {
+                candidate = null;
             }
+            this.space = candidate;
+            this.ranks = space != null && space.isRankable() ? new LongHashSet(patterns.size()) : null;
+            this.keys = ranks == null ? new HashSet<>() : null;
         }
-        return true;
+
+        boolean contains(List<String> pattern) {
+            if (ranks != null) {
+                return ranks.contains(space.rank(pattern));
+            }
+            return keys.contains(keyOf(pattern));
+        }
+
+        void add(List<String> pattern) {
+            if (ranks != null) {
+                ranks.add(space.rank(pattern));
+            } else {
+                keys.add(keyOf(pattern));
+            }
+        }
+
+        private Object keyOf(List<String> pattern) {
+            return space != null ? ByteBuffer.wrap(space.pack(pattern)) : String.join(",", pattern);
+        }
+    }
+
+    /**
+     * 检查异常组合是否有效：不能同时注入在类层次上相互依赖的异常，见 {@link ExceptionDependencyMatrix}
+     */
+    private boolean isValidExceptionCombination(List<String> pattern) {
+        if (!(pattern instanceof PatternSpace.PatternView)) {
+            return dependencyMatrix.isValid(pattern);
+        }
+        // 紧凑编码的模式直接按状态 id 查表，无需比较字符串
+        PatternSpace.PatternView view = (PatternSpace.PatternView) pattern;
+        if (view.space() != mappedSpace) {
+            mappedIds = dependencyMatrix.idsOf(view.space());
+            mappedSpace = view.space();
+        }
+        return dependencyMatrix.isValid(view, mappedIds);
+    }
+
+    /**
+     * @return true once the injected-exception budget set by {@link #setMaxExecutions} is spent.
+     */
+    public boolean isBudgetExhausted() {
+        return totalExecutions.get() >= maxExecutions;
+    }
+
+    /**
+     * 原子地占用预算：预算未用完时计入本模式注入的异常数（与顺序执行相同，最后一个模式可以超出预算）
+     */
+    private boolean tryReserveBudget(int injected) {
+        int limit = maxExecutions;
+        return totalExecutions.getAndUpdate(total -> total >= limit ? total : total + injected) < limit;
     }
 
     /**
      * 执行测试用例
+     *
+     * @return the highest pattern position read by the test logic when prefix pruning is on
+     *         (-1 if none), {@link #NOT_EXECUTED} if the budget was already spent.
      */
-    private void executeTest(List<String> pattern, ThrowingConsumer<List<String>> testLogic) {
+    private int executeTest(List<String> pattern, long key, ReportingTestLogic testLogic,
+                            ResourceMocker mocker, CoverageStatsReporter reporter) {
+        int injected = 0;
+        for (String ex : pattern) {
+            if (!"normal".equals(ex)) {
+                injected++;
+            }
+        }
         // 检查执行次数限制
-        if (executionCount.values().stream().mapToInt(Integer::intValue).sum() >= maxExecutions) {
-            return;
+        if (!tryReserveBudget(injected)) {
+            return NOT_EXECUTED;
         }
+        ExplorationJournal log = key == NO_KEY ? null : journal;
+        if (log != null) {
+            int recorded = log.lastConsulted(key);
+            if (recorded != ExplorationJournal.NOT_RECORDED) {
+                resumedPatterns.incrementAndGet();
+                return recorded;
+            }
+        }
+        executedPatterns.incrementAndGet();
+        TrackingPattern tracked = prefixPruning ? new TrackingPattern(pattern) : null;
+        ExplorationListener[] observers = listeners;
+        long start = 0;
+        if (observers.length > 0) {
+            start = System.nanoTime();
+            for (ExplorationListener listener : observers) {
+                listener.patternStarted(pattern);
+            }
+        }
+        ExplorationListener.Outcome outcome = ExplorationListener.Outcome.PASSED;
+        Throwable failure = null;
+        // 记日志时每个模式写入独立的 reporter，以便单独保存它的增量
+        CoverageStatsReporter target = log != null && reporter != null ? new CoverageStatsReporter() : reporter;
 
         try {
             // 配置Mocker
@@ -227,26 +428,206 @@ public class TestExplorer {
                 if (!"normal".equals(ex)) {
                     mocker.mockResourceException("resource_" + i, ex);
                     executionCount.merge("resource_" + i, 1, Integer::sum);
+                    for (ExplorationListener listener : observers) {
+                        listener.callInjected(pattern, i, ex);
+                    }
                 }
             }
 
             // 执行测试逻辑
-            testLogic.accept(pattern);
-            // System.out.println("[TestExplorer] Test finished without uncaught exception.");
-        } catch (Exception e) { // Catching Exception from testLogic.accept()
-            System.out.println("[TestExplorer] Caught exception during testLogic execution: " + e.getMessage());
-            // Optionally re-throw or handle more specifically
-        } catch (Throwable t) {
-            System.out.println("[TestExplorer] Error: " + t);
+            long timeoutMillis = patternTimeoutMillis;
+            if (timeoutMillis > 0) {
+                if (!runWithDeadline(tracked != null ? tracked : pattern, testLogic, target, timeoutMillis)) {
+                    outcome = ExplorationListener.Outcome.TIMED_OUT;
+                }
+            } else {
+                testLogic.accept(tracked != null ? tracked : pattern, target);
+            }
+        } catch (Throwable t) { // 测试逻辑抛出的异常不终止探索，只通知监听器
+            outcome = ExplorationListener.Outcome.FAILED;
+            failure = t;
+        }
+        if (observers.length > 0) {
+            long duration = System.nanoTime() - start;
+            for (ExplorationListener listener : observers) {
+                listener.patternFinished(pattern, outcome, failure, duration);
+            }
+        }
+        int lastConsulted = tracked != null ? tracked.maxConsultedIndex() : -1;
+        if (log != null) {
+            if (target != reporter) {
+                reporter.merge(target);
+            }
+            log.append(key, outcome, lastConsulted, target);
+        }
+        return lastConsulted;
+    }
+
+    /**
+     * 剪枝模式下跳过已覆盖前缀的模式，执行后记录其停止位置
+     *
+     * @param source The iterator the pattern came from when executing sequentially, null otherwise.
+     */
+    private void executeWithPruning(List<String> pattern, long key, ReportingTestLogic testLogic,
+                                    Iterator<List<String>> source, ResourceMocker mocker, CoverageStatsReporter reporter) {
+        if (!prefixPruning) {
+            executeTest(pattern, key, testLogic, mocker, reporter);
+            return;
+        }
+        synchronized (prefixTrie) {
+            if (prefixTrie.isCovered(pattern)) {
+                prunedCount.incrementAndGet();
+                return;
+            }
+        }
+        int lastConsulted = executeTest(pattern, key, testLogic, mocker, reporter);
+        if (lastConsulted == NOT_EXECUTED) {
+            return;
+        }
+        if (source instanceof ExhaustivePatternIterator) {
+            // 穷尽式空间中共享前缀的模式是连续的，直接跳过整棵子树，无需记录
+            ExhaustivePatternIterator exhaustive = (ExhaustivePatternIterator) source;
+            long before = exhaustive.remaining();
+            exhaustive.skipSubtree(lastConsulted);
+            prunedCount.addAndGet(before - exhaustive.remaining());
+        } else {
+            synchronized (prefixTrie) {
+                prefixTrie.markExecutionStopped(pattern, lastConsulted);
+            }
+        }
+    }
+
+    /**
+     * 依次（或并行）执行模式，直到模式耗尽或预算用完
+     *
+     * @param validate Whether to skip invalid exception combinations.
+     * @param reporter Receives the merged worker reporters in parallel mode; may be null.
+     */
+    private void run(Iterator<List<String>> patterns, boolean validate,
+                     ReportingTestLogic testLogic, CoverageStatsReporter reporter) {
+        long start = System.nanoTime();
+        ExplorationJournal log = journal;
+        if (log != null && reporter != null) {
+            CoverageStatsReporter recovered = log.takeRecoveredReporter();
+            if (recovered != null) {
+                reporter.merge(recovered);
+            }
+        }
+        runPatterns(patterns, validate, testLogic, reporter);
+        fireExplorationDone(start);
+    }
+
+    private void fireExplorationDone(long startNanos) {
+        ExplorationListener[] observers = listeners;
+        if (observers.length == 0) {
+            return;
+        }
+        ExplorationListener.Summary summary = new ExplorationListener.Summary(executedPatterns.get(),
+                getTotalExecutions(), getPrunedCount(), getTimedOutCount(), System.nanoTime() - startNanos);
+        for (ExplorationListener listener : observers) {
+            listener.explorationDone(summary);
         }
     }
 
+    private void runPatterns(Iterator<List<String>> patterns, boolean validate,
+                             ReportingTestLogic testLogic, CoverageStatsReporter reporter) {
+        ExecutorService pool = executor;
+        int window = maxConcurrentPatterns;
+        boolean ownsPool = false;
+        if (pool == null && virtualThreads) {
+            pool = NEW_VIRTUAL_THREAD_EXECUTOR != null
+                    ? newVirtualThreadExecutor()
+                    : Executors.newFixedThreadPool(virtualThreadConcurrency); // Java 21 之前的回退
+            window = virtualThreadConcurrency;
+            ownsPool = true;
+        } else if (pool == null && parallelism > 1) {
+            pool = Executors.newFixedThreadPool(parallelism);
+            window = parallelism * 2;
+            ownsPool = true;
+        }
+        if (pool == null) {
+            long ordinal = 0;
+            while (patterns.hasNext() && !isBudgetExhausted()) {
+                List<String> pattern = patterns.next();
+                long key = journalKey(pattern, ordinal++);
+                if (!validate || isValidExceptionCombination(pattern)) {
+                    executeWithPruning(pattern, key, testLogic, patterns, mocker, reporter);
+                }
+            }
+            return;
+        }
+        try {
+            runParallel(pool, window, patterns, validate, testLogic, reporter);
+        } finally {
+            if (ownsPool) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private void runParallel(ExecutorService pool, int window, Iterator<List<String>> patterns, boolean validate,
+                             ReportingTestLogic testLogic, CoverageStatsReporter reporter) {
+        Semaphore inFlight = new Semaphore(window);
+        Queue<WorkerState> idleWorkers = new ConcurrentLinkedQueue<>();
+        Queue<WorkerState> allWorkers = new ConcurrentLinkedQueue<>();
+        long ordinal = 0;
+        while (patterns.hasNext() && !isBudgetExhausted()) {
+            List<String> pattern = patterns.next();
+            long key = journalKey(pattern, ordinal++);
+            if (validate && !isValidExceptionCombination(pattern)) {
+                continue;
+            }
+            inFlight.acquireUninterruptibly();
+            try {
+                pool.execute(() -> {
+                    WorkerState worker = idleWorkers.poll();
+                    if (worker == null) {
+                        worker = new WorkerState();
+                        allWorkers.add(worker);
+                    }
+                    try {
+                        executeWithPruning(pattern, key, testLogic, null, worker.mocker, worker.reporter);
+                    } finally {
+                        idleWorkers.add(worker);
+                        inFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+        // 等待所有已提交的模式执行完毕
+        inFlight.acquireUninterruptibly(window);
+        inFlight.release(window);
+        if (reporter != null) {
+            for (WorkerState worker : allWorkers) {
+                reporter.merge(worker.reporter);
+            }
+        }
+    }
+
+    private static ReportingTestLogic ignoringReporter(ThrowingConsumer<List<String>> testLogic) {
+        return (pattern, reporter) -> testLogic.accept(pattern);
+    }
+
     /**
      * 使用智能异常组合进行测试
      */
     public void exploreWithDependencies(List<String> resources, 
                                       List<List<String>> patterns,
                                       ThrowingConsumer<List<String>> testLogic) {
+        exploreWithDependencies(resources, patterns, ignoringReporter(testLogic), null);
+    }
+
+    /**
+     * 带统计的版本：顺序执行时 testLogic 直接写入 reporter；并行执行时每个工作单元写入自己的
+     * reporter，结束后合并到 reporter 中。
+     */
+    public void exploreWithDependencies(List<String> resources,
+                                      List<List<String>> patterns,
+                                      ReportingTestLogic testLogic,
+                                      CoverageStatsReporter reporter) {
         // 分析异常依赖关系
         analyzeExceptionDependencies(resources);
 
@@ -254,8 +635,184 @@ public class TestExplorer {
         List<List<String>> meaningfulPatterns = generateMeaningfulPatterns(patterns);
 
         // 执行测试
-        for (List<String> pattern : meaningfulPatterns) {
-            executeTest(pattern, testLogic);
+        run(meaningfulPatterns.iterator(), false, testLogic, reporter);
+    }
+
+    /**
+     * 流式执行：按需消费模式，不做整体物化
+     * Patterns are pulled one at a time and only checked for validity; no de-duplication set is kept,
+     * so memory stays constant. Intended for lazily generated spaces such as
+     * {@link edu.unl.exceptionamplifier.builder.ExceptionalSpaceBuilder#iterateExhaustivePatterns},
+     * which never repeat a pattern. Iteration stops as soon as the execution budget is spent.
+     */
+    public void exploreWithDependencies(List<String> resources,
+                                      Iterator<List<String>> patterns,
+                                      ThrowingConsumer<List<String>> testLogic) {
+        exploreWithDependencies(resources, patterns, ignoringReporter(testLogic), null);
+    }
+
+    public void exploreWithDependencies(List<String> resources,
+                                      Iterator<List<String>> patterns,
+                                      ReportingTestLogic testLogic,
+                                      CoverageStatsReporter reporter) {
+        analyzeExceptionDependencies(resources);
+        run(patterns, true, testLogic, reporter);
+    }
+
+    /**
+     * 按发现收益调度执行：由 {@link BanditPatternScheduler} 决定下一个模式
+     * The valid, distinct patterns are handed to a scheduler up front; after each pattern that
+     * actually ran, its arms are rewarded if the reporter's distinct chain count grew. Patterns that
+     * were pruned, resumed from the journal or not run for lack of budget are skipped without reward.
+     * Journal keys are the patterns' positions in the candidate list, so a resumed run recognizes them
+     * whatever order the scheduler picks. Execution is always sequential on the calling thread, since
+     * each choice depends on the previous result. Lazy pattern sources must be materialized first.
+     *
+     * @param exceptionTypes Exception types forming the scheduler's arms.
+     * @param reporter       Reporter the test logic records chains into; rewards are read from it.
+     * @return the scheduler, e.g. to inspect the learned mean reward per arm.
+     */
+    public BanditPatternScheduler exploreByYield(List<String> resources,
+                                                 List<List<String>> patterns,
+                                                 List<String> exceptionTypes,
+                                                 ReportingTestLogic testLogic,
+                                                 CoverageStatsReporter reporter) {
+        if (reporter == null) {
+            throw new IllegalArgumentException("exploreByYield needs a reporter to read rewards from");
+        }
+        long start = System.nanoTime();
+        analyzeExceptionDependencies(resources);
+        ExplorationJournal log = journal;
+        if (log != null) {
+            CoverageStatsReporter recovered = log.takeRecoveredReporter();
+            if (recovered != null) {
+                reporter.merge(recovered);
+            }
+        }
+        BanditPatternScheduler scheduler = new BanditPatternScheduler(generateMeaningfulPatterns(patterns), exceptionTypes);
+        while (scheduler.hasNext() && !isBudgetExhausted()) {
+            int index = scheduler.next();
+            List<String> pattern = scheduler.candidate(index);
+            long executedBefore = executedPatterns.get();
+            int chainsBefore = reporter.getDistinctChainCount();
+            executeWithPruning(pattern, journalKey(pattern, index), testLogic, null, mocker, reporter);
+            if (executedPatterns.get() > executedBefore) {
+                scheduler.settle(reporter.getDistinctChainCount() > chainsBefore);
+            } else {
+                scheduler.skip();
+            }
+        }
+        fireExplorationDone(start);
+        return scheduler;
+    }
+
+    /**
+     * 检查点分叉执行：共享前缀只执行一次，每个后缀从前缀之后的检查点开始
+     * Patterns are grouped by their first {@code prefixLength} entries (in first-seen order). For each
+     * group the state captured at the start is restored, the prefix runs once for the group's first
+     * pattern, the state is captured, and every pattern of the group then runs only its suffix from
+     * that checkpoint. A prefix that throws ends all patterns of the group identically, so only the
+     * first is executed and the rest are counted as pruned. At the end the starting state is restored.
+     * Execution is always sequential on the calling thread, since the checkpoints share one SUT state.
+     *
+     * @param state Every piece of SUT state the test touches: database files, in-memory fakes, mock call counters.
+     * @throws IllegalStateException if a pattern timeout is set: an abandoned run would keep mutating
+     *                               the SUT while the next pattern restores its checkpoint.
+     */
+    public void exploreWithCheckpoints(List<String> resources,
+                                       List<List<String>> patterns,
+                                       int prefixLength,
+                                       List<SutCheckpoint> state,
+                                       ForkableTestLogic testLogic,
+                                       CoverageStatsReporter reporter) throws Exception {
+        if (patternTimeoutMillis > 0) {
+            throw new IllegalStateException("Checkpoint exploration does not support a pattern timeout; "
+                    + "call setPatternTimeout(0, ...) first");
+        }
+        long start = System.nanoTime();
+        analyzeExceptionDependencies(resources);
+        Map<List<String>, List<List<String>>> groups = new LinkedHashMap<>();
+        for (List<String> pattern : patterns) {
+            if (isValidExceptionCombination(pattern)) {
+                List<String> prefix = new ArrayList<>(pattern.subList(0, Math.min(prefixLength, pattern.size())));
+                groups.computeIfAbsent(prefix, k -> new ArrayList<>()).add(pattern);
+            }
+        }
+
+        List<SutCheckpoint.Snapshot> initial = captureAll(state);
+        try {
+            for (List<List<String>> group : groups.values()) {
+                if (isBudgetExhausted()) {
+                    break;
+                }
+                restoreAll(initial);
+                runForked(group, state, testLogic, reporter);
+            }
+            restoreAll(initial);
+        } finally {
+            closeAll(initial);
+        }
+        fireExplorationDone(start);
+    }
+
+    private void runForked(List<List<String>> group, List<SutCheckpoint> state,
+                           ForkableTestLogic testLogic, CoverageStatsReporter reporter) throws Exception {
+        List<List<SutCheckpoint.Snapshot>> fork = new ArrayList<>(1); // 前缀执行成功后的检查点
+        Exception[] captureFailure = new Exception[1]; // 检查点失败不能当作测试逻辑的异常吞掉
+        try {
+            int executed = executeTest(group.get(0), NO_KEY, (pattern, r) -> {
+                testLogic.runPrefix(pattern, r);
+                try {
+                    fork.add(captureAll(state));
+                } catch (Exception e) {
+                    captureFailure[0] = e;
+                    throw e;
+                }
+                testLogic.runSuffix(pattern, r);
+            }, mocker, reporter);
+            if (captureFailure[0] != null) {
+                throw captureFailure[0];
+            }
+            if (executed == NOT_EXECUTED) {
+                return;
+            }
+            if (fork.isEmpty()) {
+                prunedCount.addAndGet(group.size() - 1);
+                return;
+            }
+            for (int i = 1; i < group.size() && !isBudgetExhausted(); i++) {
+                restoreAll(fork.get(0));
+                executeTest(group.get(i), NO_KEY, testLogic::runSuffix, mocker, reporter);
+            }
+        } finally {
+            if (!fork.isEmpty()) {
+                closeAll(fork.get(0));
+            }
+        }
+    }
+
+    private static List<SutCheckpoint.Snapshot> captureAll(List<SutCheckpoint> state) throws Exception {
+        List<SutCheckpoint.Snapshot> snapshots = new ArrayList<>(state.size());
+        try {
+            for (SutCheckpoint checkpoint : state) {
+                snapshots.add(checkpoint.capture());
+            }
+        } catch (Exception e) {
+            closeAll(snapshots);
+            throw e;
+        }
+        return snapshots;
+    }
+
+    private static void restoreAll(List<SutCheckpoint.Snapshot> snapshots) throws Exception {
+        for (SutCheckpoint.Snapshot snapshot : snapshots) {
+            snapshot.restore();
+        }
+    }
+
+    private static void closeAll(List<SutCheckpoint.Snapshot> snapshots) {
+        for (SutCheckpoint.Snapshot snapshot : snapshots) {
+            snapshot.close();
         }
     }
 
@@ -280,4 +837,26 @@ public class TestExplorer {
                        ThrowingConsumer<List<String>> testLogic) {
         exploreWithDependencies(resources, patterns, testLogic);
     }
+
+    public void explore(List<String> resources,
+                       Iterator<List<String>> patterns,
+                       ThrowingConsumer<List<String>> testLogic) {
+        exploreWithDependencies(resources, patterns, testLogic);
+    }
+
+    public void explore(List<String> resources,
+                       Iterator<List<String>> patterns,
+                       ReportingTestLogic testLogic,
+                       CoverageStatsReporter reporter) {
+        exploreWithDependencies(resources, patterns, testLogic, reporter);
+    }
+
+    /**
+     * 消费（可并行生成的）模式流；未设置线程池时模式的执行本身仍在调用线程上按顺序进行
+     */
+    public void explore(List<String> resources,
+                       Stream<List<String>> patterns,
+                       ThrowingConsumer<List<String>> testLogic) {
+        exploreWithDependencies(resources, patterns.iterator(), testLogic);
+    }
 }
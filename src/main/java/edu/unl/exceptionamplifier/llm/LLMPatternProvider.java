@@ -0,0 +1,172 @@
+package edu.unl.exceptionamplifier.llm;
+
+import com.openai.client.OpenAIClient;
+import com.openai.client.okhttp.OpenAIOkHttpClient;
+import com.openai.core.http.StreamResponse;
+import com.openai.models.chat.completions.ChatCompletion;
+import com.openai.models.chat.completions.ChatCompletionChunk;
+import com.openai.models.chat.completions.ChatCompletionCreateParams;
+import io.github.cdimascio.dotenv.Dotenv;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 共享客户端的并发 LLM 调用器
+ * One {@link OpenAIClient} (and its connection pool) is built once and reused for every prompt.
+ * Prompts are executed on a fixed pool of {@code maxParallelism} threads, so any number of prompts
+ * can be submitted at once while at most that many requests are in flight against the endpoint.
+ */
+public class LLMPatternProvider implements AutoCloseable {
+    public static final String DEFAULT_BASE_URL = "https://dashscope.aliyuncs.com/compatible-mode/v1";
+    // 强化 system prompt
+    public static final String SYSTEM_PROMPT = "你是一个只返回 JSON 的 API。所有输出必须是合法的 JSON 数组（如 [[\"normal\",\"exception\"],[\"exception\",\"normal\"]]），不要有任何解释、注释或自然语言说明。";
+    // 强化用户 prompt
+    public static final String PROMPT_SUFFIX = "\n请严格只返回合法的 JSON 数组，不要有任何多余的解释、注释或自然语言说明。";
+
+    private final OpenAIClient client;
+    private final String model;
+    private final ExecutorService executor;
+
+    public LLMPatternProvider(OpenAIClient client, String model, int maxParallelism) {
+        if (maxParallelism <= 0) {
+            throw new IllegalArgumentException("maxParallelism must be positive: " + maxParallelism);
+        }
+        this.client = client;
+        this.model = model;
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxParallelism, r -> {
+            Thread thread = new Thread(r, "llm-pattern-provider-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * 实际发送的用户消息：prompt 加上 {@link #PROMPT_SUFFIX}
+     */
+    public static String userMessage(String prompt) {
+        return prompt + PROMPT_SUFFIX;
+    }
+
+    /**
+     * 连接任意 OpenAI 兼容的端点（例如 {@link LocalLLMStubServer}）
+     */
+    public static LLMPatternProvider forEndpoint(String baseUrl, String apiKey, String model, int maxParallelism) {
+        OpenAIClient client = OpenAIOkHttpClient.builder()
+                .apiKey(apiKey)
+                .baseUrl(baseUrl)
+                .build();
+        return new LLMPatternProvider(client, model, maxParallelism);
+    }
+
+    /**
+     * 优先用系统环境变量，其次加载 .env：
+     *   DASHSCOPE_API_KEY=你的APIKey
+     *   DASHSCOPE_BASE_URL=https://dashscope.aliyuncs.com/compatible-mode/v1
+     */
+    public static LLMPatternProvider fromEnvironment(String model, int maxParallelism) {
+        String apiKey = System.getenv("DASHSCOPE_API_KEY");
+        String baseUrl = System.getenv("DASHSCOPE_BASE_URL");
+        if ((apiKey == null || apiKey.isEmpty()) || (baseUrl == null || baseUrl.isEmpty())) {
+            Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
+            if (apiKey == null || apiKey.isEmpty()) {
+                apiKey = dotenv.get("DASHSCOPE_API_KEY");
+            }
+            if (baseUrl == null || baseUrl.isEmpty()) {
+                baseUrl = dotenv.get("DASHSCOPE_BASE_URL");
+            }
+        }
+        if (apiKey == null || apiKey.isEmpty()) {
+            throw new RuntimeException("DASHSCOPE_API_KEY not set in environment or .env file");
+        }
+        if (baseUrl == null || baseUrl.isEmpty()) {
+            baseUrl = DEFAULT_BASE_URL;
+        }
+        return forEndpoint(baseUrl, apiKey, model, maxParallelism);
+    }
+
+    /**
+     * 同步调用；失败时打印异常并返回空字符串
+     */
+    public String complete(String prompt) {
+        try {
+            ChatCompletion chatCompletion = client.chat().completions().create(buildParams(prompt));
+            if (chatCompletion.choices() != null && !chatCompletion.choices().isEmpty()) {
+                return chatCompletion.choices().get(0).message().content().orElse("");
+            }
+            return "";
+        } catch (Exception e) {
+            e.printStackTrace();
+            return "";
+        }
+    }
+
+    private ChatCompletionCreateParams buildParams(String prompt) {
+        return ChatCompletionCreateParams.builder()
+                .addSystemMessage(SYSTEM_PROMPT)
+                .addUserMessage(userMessage(prompt))
+                .model(model)
+                .build();
+    }
+
+    /**
+     * 流式调用：每收到一段内容就交给 onDelta，结束后返回完整响应
+     * If the request or the stream fails, the future completes exceptionally (with a
+     * {@link CompletionException}); the deltas received before the failure have already been passed
+     * to onDelta, but the partial text is never returned as if it were the whole response.
+     */
+    public CompletableFuture<String> streamAsync(String prompt, Consumer<String> onDelta) {
+        return CompletableFuture.supplyAsync(() -> {
+            StringBuilder response = new StringBuilder();
+            try (StreamResponse<ChatCompletionChunk> stream = client.chat().completions().createStreaming(buildParams(prompt))) {
+                stream.stream().forEach(chunk -> {
+                    for (ChatCompletionChunk.Choice choice : chunk.choices()) {
+                        choice.delta().content().ifPresent(delta -> {
+                            response.append(delta);
+                            onDelta.accept(delta);
+                        });
+                    }
+                });
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+            return response.toString();
+        }, executor);
+    }
+
+    public CompletableFuture<String> completeAsync(String prompt) {
+        return CompletableFuture.supplyAsync(() -> complete(prompt), executor);
+    }
+
+    /**
+     * 并发执行所有 prompt，结果与输入顺序一致
+     */
+    public List<String> completeAll(List<String> prompts) {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (String prompt : prompts) {
+            futures.add(completeAsync(prompt));
+        }
+        List<String> responses = new ArrayList<>();
+        for (CompletableFuture<String> future : futures) {
+            responses.add(future.join());
+        }
+        return responses;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        client.close();
+    }
+}
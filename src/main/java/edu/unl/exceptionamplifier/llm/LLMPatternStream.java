@@ -0,0 +1,56 @@
+package edu.unl.exceptionamplifier.llm;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 由队列支撑的模式迭代器：生产者（流式响应）边解析边放入，消费者（TestExplorer）边取边执行
+ * {@link #hasNext()} blocks until the next row arrives or the producer calls {@link #complete()}.
+ */
+public class LLMPatternStream implements Iterator<List<String>> {
+    private static final List<String> END = Collections.emptyList();
+
+    private final BlockingQueue<List<String>> queue = new LinkedBlockingQueue<>();
+    private List<String> next;
+
+    /**
+     * 生产者端：放入一行已校验的模式
+     */
+    public void offer(List<String> pattern) {
+        queue.add(pattern);
+    }
+
+    /**
+     * 生产者端：响应结束（成功或失败）后必须调用
+     */
+    public void complete() {
+        queue.add(END);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                next = END;
+            }
+        }
+        return next != END;
+    }
+
+    @Override
+    public List<String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> pattern = next;
+        next = null;
+        return pattern;
+    }
+}
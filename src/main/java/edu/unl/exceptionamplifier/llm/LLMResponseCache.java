@@ -0,0 +1,127 @@
+package edu.unl.exceptionamplifier.llm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * LLM 响应的内容寻址磁盘缓存
+ * Each raw response is stored under {@code <directory>/<sha256>.json}, where the hash covers the
+ * full request (model, system prompt and the user message as sent) and the API/exception lists. Identical requests therefore replay the same
+ * response, which makes LLM strategies reproducible and lets CI without network access run them
+ * from a committed or restored cache directory. Raw responses are stored rather than parsed
+ * patterns so that parser changes apply to cached entries as well.
+ */
+public class LLMResponseCache {
+    public static final Path DEFAULT_DIRECTORY = Paths.get("target", "llm-cache");
+
+    private final Path directory;
+
+    public LLMResponseCache() {
+        this(DEFAULT_DIRECTORY);
+    }
+
+    public LLMResponseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 按 {@link LLMPatternProvider} 发送的请求计算键：固定的 system prompt，prompt 加上后缀作为用户消息
+     *
+     * @param model The model the request is sent to, e.g. {@link LLMPatternProvider#getModel()}.
+     */
+    public static String key(String model, String prompt, List<String> apiCalls, List<String> exceptionTypes) {
+        return key(model, LLMPatternProvider.SYSTEM_PROMPT, LLMPatternProvider.userMessage(prompt), apiCalls, exceptionTypes);
+    }
+
+    /**
+     * @return hex SHA-256 of the request; every field is length-prefixed so that no two different
+     * requests can produce the same byte sequence.
+     */
+    public static String key(String model, String systemPrompt, String userMessage,
+                             List<String> apiCalls, List<String> exceptionTypes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, model);
+            update(digest, systemPrompt);
+            update(digest, userMessage);
+            update(digest, String.valueOf(apiCalls.size()));
+            for (String apiCall : apiCalls) {
+                update(digest, apiCall);
+            }
+            update(digest, String.valueOf(exceptionTypes.size()));
+            for (String exceptionType : exceptionTypes) {
+                update(digest, exceptionType);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    /**
+     * @return the cached response, or null if there is none or it cannot be read.
+     */
+    public String get(String key) {
+        Path file = directory.resolve(key + ".json");
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("[LLMResponseCache] Failed to read " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 写入临时文件后原子替换，避免并发运行读到半写的条目
+     */
+    public void put(String key, String response) {
+        Path tmp = null;
+        try {
+            Files.createDirectories(directory);
+            tmp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(tmp, response.getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tmp, directory.resolve(key + ".json"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(tmp, directory.resolve(key + ".json"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("[LLMResponseCache] Failed to write entry " + key + ": " + e.getMessage());
+        } finally {
+            if (tmp != null) { // 移动成功后临时文件已不存在
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    System.err.println("[LLMResponseCache] Failed to delete " + tmp + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
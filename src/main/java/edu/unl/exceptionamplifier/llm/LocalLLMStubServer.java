@@ -0,0 +1,221 @@
+package edu.unl.exceptionamplifier.llm;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 进程内的 OpenAI 兼容 /chat/completions 替身
+ * Answers every chat completion request with the content returned by {@code responder} (which
+ * receives the raw request body) after an optional artificial latency. It counts requests and the
+ * peak number of concurrent requests, so the parallelism and throughput of
+ * {@link LLMPatternProvider} can be measured without network access or an API key. Streaming
+ * requests ({@code "stream":true}) are answered as server-sent events carrying the content in
+ * chunks of {@code streamChunkChars} characters, {@code streamChunkDelayMillis} apart, optionally
+ * pausing at a given character until the test releases the rest ({@link #pauseStreamAt}) or
+ * dropping the connection there ({@link #cutStreamAt}).
+ */
+public class LocalLLMStubServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Function<String, String> responder;
+    private final long latencyMillis;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private volatile int streamChunkChars = 16;
+    private volatile long streamChunkDelayMillis = 0;
+    private volatile int pauseAtChars = -1;
+    private volatile CountDownLatch resume;
+    private volatile int cutAtChars = -1;
+
+    public LocalLLMStubServer(Function<String, String> responder, long latencyMillis) throws IOException {
+        this.responder = responder;
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "llm-stub-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/v1/chat/completions", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return base URL to pass to {@link LLMPatternProvider#forEndpoint}.
+     */
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/v1";
+    }
+
+    /**
+     * 设置流式响应的分块大小和块间延迟
+     */
+    public void setStreaming(int chunkChars, long chunkDelayMillis) {
+        this.streamChunkChars = Math.max(1, chunkChars);
+        this.streamChunkDelayMillis = chunkDelayMillis;
+    }
+
+    /**
+     * 流式响应发送完前 chars 个字符后暂停，直到 resume 归零（或服务器关闭）再发送其余部分
+     * Lets a test observe what a client does before the response ends without relying on timing.
+     */
+    public void pauseStreamAt(int chars, CountDownLatch resume) {
+        this.resume = resume;
+        this.pauseAtChars = chars;
+    }
+
+    /**
+     * 流式响应发送完前 chars 个字符后断开连接，不发送结束事件
+     * The response is declared with a longer Content-Length than is written, so the client sees the
+     * body end prematurely, as with a dropped network connection.
+     */
+    public void cutStreamAt(int chars) {
+        this.cutAtChars = chars;
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int current = inFlight.incrementAndGet();
+        maxConcurrentRequests.accumulateAndGet(current, Math::max);
+        try {
+            String request = readAll(exchange.getRequestBody());
+            int id = requestCount.incrementAndGet();
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String content = responder.apply(request);
+            if (request.replace(" ", "").contains("\"stream\":true")) {
+                streamResponse(exchange, id, content);
+                return;
+            }
+            String response = "{\"id\":\"chatcmpl-stub-" + id + "\",\"object\":\"chat.completion\","
+                    + "\"created\":" + (System.currentTimeMillis() / 1000) + ",\"model\":\"stub\","
+                    + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":" + jsonString(content)
+                    + ",\"refusal\":null},\"logprobs\":null,\"finish_reason\":\"stop\"}],"
+                    + "\"usage\":{\"prompt_tokens\":0,\"completion_tokens\":0,\"total_tokens\":0}}";
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void streamResponse(HttpExchange exchange, int id, String content) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        int cutAt = cutAtChars;
+        exchange.sendResponseHeaders(200, cutAt >= 0 ? Integer.MAX_VALUE : 0); // 断开时声明的长度永远写不满
+        try (OutputStream out = exchange.getResponseBody()) {
+            int pauseAt = pauseAtChars;
+            for (int start = 0, end; start < content.length(); start = end) {
+                if (start == cutAt) {
+                    throw new IOException("Stream cut after " + cutAt + " characters");
+                }
+                end = Math.min(content.length(), start + streamChunkChars);
+                if (start < pauseAt && pauseAt < end) {
+                    end = pauseAt; // 暂停点落在分块边界上
+                }
+                if (start < cutAt && cutAt < end) {
+                    end = cutAt;
+                }
+                String delta = content.substring(start, end);
+                writeEvent(out, "{\"id\":\"chatcmpl-stub-" + id + "\",\"object\":\"chat.completion.chunk\","
+                        + "\"created\":" + (System.currentTimeMillis() / 1000) + ",\"model\":\"stub\","
+                        + "\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":" + jsonString(delta)
+                        + "},\"finish_reason\":null}]}");
+                if (end == pauseAt) {
+                    try {
+                        resume.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                if (streamChunkDelayMillis > 0) {
+                    try {
+                        Thread.sleep(streamChunkDelayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            writeEvent(out, "{\"id\":\"chatcmpl-stub-" + id + "\",\"object\":\"chat.completion.chunk\","
+                    + "\"created\":" + (System.currentTimeMillis() / 1000) + ",\"model\":\"stub\","
+                    + "\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}");
+            writeEvent(out, "[DONE]");
+        }
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,116 @@
+package edu.unl.exceptionamplifier.llm;
+
+import edu.unl.exceptionamplifier.model.ExceptionDependencyMatrix;
+import edu.unl.exceptionamplifier.model.PatternSpace;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 校验并修复 LLM 生成的模式行
+ * A row is usable only if it has one state per API call and every state is "normal" or one of the
+ * configured exception types; anything else would fail later inside the mock answers. Rows are
+ * repaired where the intent is unambiguous and dropped otherwise:
+ * <ul>
+ *   <li>"normal" in any case, and unique simple names ("IOException") or FQCNs are mapped to the
+ *       configured names;</li>
+ *   <li>short rows are padded with "normal", long rows are truncated if the extra states are all "normal";</li>
+ *   <li>rows with unknown or ambiguous names, or failures beyond the last call, are dropped;</li>
+ *   <li>with a dependency matrix, rows injecting dependent exceptions are dropped.</li>
+ * </ul>
+ */
+public class PatternValidator {
+    private static final String AMBIGUOUS = "";
+
+    private final int length;
+    private final Map<String, String> canonicalNames = new HashMap<>();
+    private ExceptionDependencyMatrix dependencies;
+    private int acceptedCount;
+    private int repairedCount;
+    private int droppedCount;
+
+    public PatternValidator(int length, List<String> exceptionTypes) {
+        this.length = length;
+        canonicalNames.put(PatternSpace.NORMAL, PatternSpace.NORMAL);
+        Map<String, String> simpleNames = new HashMap<>();
+        for (String exceptionType : exceptionTypes) {
+            canonicalNames.put(exceptionType, exceptionType);
+            String simpleName = exceptionType.substring(exceptionType.lastIndexOf('.') + 1);
+            String previous = simpleNames.put(simpleName, exceptionType);
+            if (previous != null && !previous.equals(exceptionType)) {
+                simpleNames.put(simpleName, AMBIGUOUS);
+            }
+        }
+        for (Map.Entry<String, String> entry : simpleNames.entrySet()) {
+            canonicalNames.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public synchronized void setDependencies(ExceptionDependencyMatrix dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * @return the row with canonical names and the right length, or null if it has to be dropped.
+     */
+    public synchronized List<String> validate(List<String> row) {
+        boolean repaired = false;
+        List<String> result = new ArrayList<>(length);
+        for (int i = 0; i < row.size(); i++) {
+            String state = canonicalize(row.get(i));
+            if (state == null) {
+                droppedCount++;
+                return null;
+            }
+            repaired |= !state.equals(row.get(i));
+            if (i < length) {
+                result.add(state);
+            } else if (!PatternSpace.NORMAL.equals(state)) {
+                droppedCount++;
+                return null;
+            } else {
+                repaired = true;
+            }
+        }
+        while (result.size() < length) {
+            result.add(PatternSpace.NORMAL);
+            repaired = true;
+        }
+        if (dependencies != null && !dependencies.isValid(result)) {
+            droppedCount++;
+            return null;
+        }
+        acceptedCount++;
+        if (repaired) {
+            repairedCount++;
+        }
+        return result;
+    }
+
+    private String canonicalize(String state) {
+        String trimmed = state.trim();
+        if (PatternSpace.NORMAL.equalsIgnoreCase(trimmed)) {
+            return PatternSpace.NORMAL;
+        }
+        String canonical = canonicalNames.get(trimmed);
+        if (canonical == null) {
+            // 不在列表中的全限定名按简单名匹配
+            canonical = canonicalNames.get(trimmed.substring(trimmed.lastIndexOf('.') + 1));
+        }
+        return canonical == null || canonical.equals(AMBIGUOUS) ? null : canonical;
+    }
+
+    public synchronized int getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    public synchronized int getRepairedCount() {
+        return repairedCount;
+    }
+
+    public synchronized int getDroppedCount() {
+        return droppedCount;
+    }
+}
@@ -0,0 +1,143 @@
+package edu.unl.exceptionamplifier.llm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 增量解析 LLM 返回的 List<List<String>>
+ * Text can be fed in arbitrary chunks as it arrives. Everything before the first '[' (prose, a
+ * markdown fence) is ignored; after that, each inner array is handed to the sink as soon as its
+ * closing ']' is seen, so consumers can start on the first rows while the rest of the response is
+ * still being generated. Rows containing nested arrays or objects are skipped, and parsing stops at
+ * the ']' that closes the outer array.
+ */
+public class StreamingPatternParser {
+    private final Consumer<List<String>> rowSink;
+
+    private boolean started;
+    private boolean finished;
+    private int depth;            // 1 = outer array, 2 = inside a row
+    private boolean rowInvalid;   // row contained a nested array/object
+    private boolean inString;
+    private boolean escape;
+    private int unicodeDigits = -1;
+    private int unicodeValue;
+    private final StringBuilder token = new StringBuilder();
+    private boolean tokenQuoted;
+    private List<String> row;
+
+    public StreamingPatternParser(Consumer<List<String>> rowSink) {
+        this.rowSink = rowSink;
+    }
+
+    public void feed(CharSequence chunk) {
+        for (int i = 0; i < chunk.length() && !finished; i++) {
+            accept(chunk.charAt(i));
+        }
+    }
+
+    /**
+     * @return true once the outer array has been closed; further input is ignored.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    private void accept(char c) {
+        if (!started) {
+            if (c == '[') {
+                started = true;
+                depth = 1;
+            }
+            return;
+        }
+        if (inString) {
+            acceptStringChar(c);
+            return;
+        }
+        switch (c) {
+            case '"':
+                inString = true;
+                tokenQuoted = true;
+                break;
+            case '[':
+            case '{':
+                depth++;
+                if (depth == 2 && c == '[') {
+                    row = new ArrayList<>();
+                    rowInvalid = false;
+                    token.setLength(0);
+                    tokenQuoted = false;
+                } else {
+                    rowInvalid = true;
+                }
+                break;
+            case ']':
+            case '}':
+                if (depth == 2) {
+                    endToken();
+                    if (!rowInvalid) {
+                        rowSink.accept(row);
+                    }
+                    row = null;
+                }
+                depth--;
+                if (depth == 0) {
+                    finished = true;
+                }
+                break;
+            case ',':
+                if (depth == 2) {
+                    endToken();
+                }
+                break;
+            default:
+                // 未加引号的值（如 normal、null）按原文保留
+                if (depth == 2 && !Character.isWhitespace(c)) {
+                    token.append(c);
+                }
+        }
+    }
+
+    private void acceptStringChar(char c) {
+        if (unicodeDigits >= 0) {
+            unicodeValue = (unicodeValue << 4) | Character.digit(c, 16);
+            if (++unicodeDigits == 4) {
+                appendToken((char) unicodeValue);
+                unicodeDigits = -1;
+            }
+        } else if (escape) {
+            escape = false;
+            switch (c) {
+                case 'u': unicodeDigits = 0; unicodeValue = 0; break;
+                case 'n': appendToken('\n'); break;
+                case 't': appendToken('\t'); break;
+                case 'r': appendToken('\r'); break;
+                case 'b': appendToken('\b'); break;
+                case 'f': appendToken('\f'); break;
+                default: appendToken(c);
+            }
+        } else if (c == '\\') {
+            escape = true;
+        } else if (c == '"') {
+            inString = false;
+        } else {
+            appendToken(c);
+        }
+    }
+
+    private void appendToken(char c) {
+        if (depth == 2) {
+            token.append(c);
+        }
+    }
+
+    private void endToken() {
+        if (row != null && (tokenQuoted || token.length() > 0)) {
+            row.add(token.toString());
+        }
+        token.setLength(0);
+        tokenQuoted = false;
+    }
+}
@@ -0,0 +1,132 @@
+package edu.unl.exceptionamplifier.mocker;
+
+import edu.unl.exceptionamplifier.model.PatternSpace;
+import edu.unl.exceptionamplifier.util.InjectedExceptionFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 由模式驱动的可复用替身，代替每个模式都重新创建 Mockito mock
+ * Fakes are built once; {@link #reset(List)} then switches them to the next pattern in O(number of
+ * stubbed methods). Every stubbed method has an id and a call-position table: its n-th call
+ * (0-based) consults pattern position {@code positions[n]} and throws the exception injected there,
+ * or behaves normally if that position is "normal" or the call has no position. The check is an
+ * array lookup plus, for a {@link PatternSpace.PatternView}, a state id comparison.
+ *
+ * <p>A fake is a hand-written subclass or implementation of the stubbed class or interface (e.g.
+ * {@code StockTradingRepository}, {@code MarketDataService}): {@link #register} each method once
+ * with its call positions and start each override with {@code stub.call(id)}. That call throws the
+ * injected exception unchanged, checked or not and whether or not the method declares it, as the
+ * former Mockito stubs did; otherwise it returns the call number so the override can pick its
+ * return value. A stub and its fakes hold per-pattern state and must be used by one thread at a time.
+ */
+public class PatternDrivenStub {
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[8];
+    private int[][] positions = new int[8][];
+    private int[] calls = new int[8];
+    private int methodCount;
+    private List<String> pattern = Collections.emptyList();
+    private PatternSpace.PatternView view; // 紧凑编码的模式直接比较状态 id
+    private int normalId;
+    private InjectedExceptionFactory exceptions = InjectedExceptionFactory.withStackTraces();
+
+    /**
+     * 注册一个方法（或返回已注册方法的 id）
+     *
+     * @param method    Name used in {@link #getCallCount}, e.g. {@code "StockTradingRepository.getBalance"}.
+     * @param positions Pattern position consulted by the 1st, 2nd, ... call; later calls are never injected.
+     * @return the id to pass to {@link #call(int)}.
+     */
+    public int register(String method, int... positions) {
+        Integer known = ids.get(method);
+        int id = known != null ? known : newId(method);
+        this.positions[id] = positions.length == 0 ? NO_POSITIONS : positions.clone();
+        return id;
+    }
+
+    private int newId(String method) {
+        int id = methodCount++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+            positions = Arrays.copyOf(positions, id * 2);
+            calls = Arrays.copyOf(calls, id * 2);
+        }
+        names[id] = method;
+        positions[id] = NO_POSITIONS;
+        ids.put(method, id);
+        return id;
+    }
+
+    /**
+     * 注入异常的来源；报告不需要注入异常的栈帧时可传入 {@code new InjectedExceptionFactory(false)}
+     */
+    public void setExceptionFactory(InjectedExceptionFactory exceptions) {
+        this.exceptions = exceptions;
+    }
+
+    /**
+     * 切换到下一个模式并清零所有调用计数
+     */
+    public void reset(List<String> pattern) {
+        this.pattern = pattern;
+        if (pattern instanceof PatternSpace.PatternView) {
+            view = (PatternSpace.PatternView) pattern;
+            normalId = view.space().normalId();
+        } else {
+            view = null;
+        }
+        Arrays.fill(calls, 0, methodCount, 0);
+    }
+
+    /**
+     * 记录一次调用；若当前模式在对应位置注入了异常则（以非受检方式）抛出
+     *
+     * @return the 0-based number of this call since the last reset.
+     */
+    public int call(int methodId) {
+        int call = calls[methodId]++;
+        int[] table = positions[methodId];
+        if (call < table.length) {
+            int position = table[call];
+            if (position < pattern.size()) {
+                if (view != null) {
+                    if (view.stateId(position) != normalId) {
+                        throw sneaky(injected(view.get(position), methodId, position));
+                    }
+                } else {
+                    String state = pattern.get(position);
+                    if (!PatternSpace.NORMAL.equals(state)) {
+                        throw sneaky(injected(state, methodId, position));
+                    }
+                }
+            }
+        }
+        return call;
+    }
+
+    private Throwable injected(String exceptionType, int methodId, int position) {
+        return exceptions.create(exceptionType,
+                "Injected into " + names[methodId] + " at pattern position " + position);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> RuntimeException sneaky(Throwable t) throws T {
+        throw (T) t;
+    }
+
+    /**
+     * @return calls to the method since the last reset, 0 if it was never registered.
+     */
+    public int getCallCount(String method) {
+        Integer id = ids.get(method);
+        return id == null ? 0 : calls[id];
+    }
+}
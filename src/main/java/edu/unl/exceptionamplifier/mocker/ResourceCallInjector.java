@@ -0,0 +1,150 @@
+package edu.unl.exceptionamplifier.mocker;
+
+import edu.unl.exceptionamplifier.model.PatternSpace;
+import edu.unl.exceptionamplifier.model.TrackingPattern;
+import edu.unl.exceptionamplifier.util.InjectedExceptionFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MutableCallSite;
+import java.util.List;
+
+/**
+ * 织入点的运行时：按当前线程的调用计数在模式中查找状态并注入异常
+ * {@code ExceptionMockAspect} calls {@link #onCall(Object)} before every call from the services to
+ * their resources. Between {@link #activate} and {@link Activation#close()} the n-th such call on the
+ * activating thread (0-based) consults pattern position n: if an exception is injected there it is
+ * thrown (unchecked, so checked exceptions pass through the advice unchanged), otherwise the real
+ * call proceeds. The pattern is copied into a flat array on activation, so a call costs one
+ * thread-local read, an increment and an array load. On threads without an active pattern
+ * {@link #onCall} does nothing.
+ *
+ * <p>The advice is guarded by {@link #isEnabled()}, a {@link MutableCallSite} whose target is a
+ * constant. The JIT folds the guard to that constant, so a woven build that never injects pays
+ * nothing per call beyond the folded branch. The first {@link #activate} switches the guard on,
+ * which deoptimizes the woven call sites once; {@link #setEnabled} switches it back off.
+ *
+ * <p>For a {@link TrackingPattern} (prefix pruning) the positions reached are reported to it when
+ * the activation is closed, so close it before the test logic returns, e.g. with try-with-resources.
+ */
+public final class ResourceCallInjector {
+    private static final ThreadLocal<Activation> CURRENT = new ThreadLocal<>();
+    private static final MutableCallSite ENABLED_SITE = new MutableCallSite(MethodHandles.constant(boolean.class, false));
+    private static final MethodHandle ENABLED = ENABLED_SITE.dynamicInvoker();
+    private static volatile boolean enabled;
+    private static volatile InjectedExceptionFactory exceptions = InjectedExceptionFactory.withStackTraces();
+
+    private ResourceCallInjector() {
+    }
+
+    /**
+     * 本线程上一次模式执行的激活状态
+     */
+    public static final class Activation implements AutoCloseable {
+        private final String[] injected; // 每个位置注入的异常类名，正常为 null
+        private final TrackingPattern tracked;
+        private final Activation previous;
+        private int calls;
+
+        private Activation(String[] injected, TrackingPattern tracked, Activation previous) {
+            this.injected = injected;
+            this.tracked = tracked;
+            this.previous = previous;
+        }
+
+        /**
+         * @return resource calls intercepted on this thread since activation.
+         */
+        public int getCallCount() {
+            return calls;
+        }
+
+        @Override
+        public void close() {
+            if (CURRENT.get() != this) {
+                return; // 已关闭
+            }
+            if (tracked != null && calls > 0) {
+                tracked.get(Math.min(calls, injected.length) - 1);
+            }
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * 织入的 advice 是否执行；JIT 把它当作常量处理
+     */
+    public static boolean isEnabled() {
+        try {
+            return (boolean) ENABLED.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e); // 常量目标不会抛出
+        }
+    }
+
+    /**
+     * 打开或关闭织入点；关闭时所有线程上的激活都不再注入
+     */
+    public static synchronized void setEnabled(boolean enabled) {
+        if (ResourceCallInjector.enabled != enabled) {
+            ResourceCallInjector.enabled = enabled;
+            ENABLED_SITE.setTarget(MethodHandles.constant(boolean.class, enabled));
+            MutableCallSite.syncAll(new MutableCallSite[]{ENABLED_SITE});
+        }
+    }
+
+    /**
+     * 在当前线程上激活模式并打开织入点；之后的资源调用从位置 0 开始计数
+     */
+    public static Activation activate(List<String> pattern) {
+        if (!enabled) {
+            setEnabled(true);
+        }
+        TrackingPattern tracked = pattern instanceof TrackingPattern ? (TrackingPattern) pattern : null;
+        List<String> states = tracked != null ? tracked.delegate() : pattern;
+        String[] injected = new String[states.size()];
+        int position = 0;
+        for (String state : states) { // 整体遍历不计入 TrackingPattern 的读取位置
+            injected[position++] = PatternSpace.NORMAL.equals(state) ? null : state;
+        }
+        Activation activation = new Activation(injected, tracked, CURRENT.get());
+        CURRENT.set(activation);
+        return activation;
+    }
+
+    /**
+     * 织入的 advice 在每次资源调用前调用
+     *
+     * @param site Description of the call site, e.g. the join point's static part; only used in
+     *             the message of an injected exception.
+     */
+    public static void onCall(Object site) {
+        Activation activation = CURRENT.get();
+        if (activation == null) {
+            return;
+        }
+        int position = activation.calls++;
+        if (position < activation.injected.length) {
+            String exceptionType = activation.injected[position];
+            if (exceptionType != null) {
+                throw sneaky(exceptions.create(exceptionType, "Injected at call " + position + ": " + site));
+            }
+        }
+    }
+
+    /**
+     * 注入异常的来源；报告不需要注入异常的栈帧时可传入 {@code new InjectedExceptionFactory(false)}
+     */
+    public static void setExceptionFactory(InjectedExceptionFactory exceptions) {
+        ResourceCallInjector.exceptions = exceptions;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> RuntimeException sneaky(Throwable t) throws T {
+        throw (T) t;
+    }
+}
@@ -0,0 +1,184 @@
+package edu.unl.exceptionamplifier.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于真实类层次的异常依赖矩阵
+ * Two distinct exception types are dependent when one is a subtype of the other, or when their
+ * nearest common superclass is more specific than Throwable/Exception/RuntimeException/Error
+ * (e.g. FileNotFoundException and EOFException under IOException). Patterns that inject two
+ * dependent types are considered invalid. Repeating the same type at several calls (a retried call
+ * failing again) stays valid.
+ *
+ * Every type gets an integer id the first time it is seen; its class is loaded once by reflection
+ * and its dependencies on all known types are stored as a row of a bitset matrix, so checking a
+ * pattern costs one id lookup and a few word operations per injected exception instead of pairwise
+ * name lookups. Types that cannot be loaded depend on nothing. Interning is synchronized; once all
+ * types are known (e.g. built with {@link #of}) the matrix can be read from several threads.
+ */
+public class ExceptionDependencyMatrix {
+    private static final Set<String> GENERIC_ROOTS = new HashSet<>(Arrays.asList(
+            "java.lang.Object", "java.lang.Throwable", "java.lang.Exception",
+            "java.lang.RuntimeException", "java.lang.Error"));
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<Class<?>> classes = new ArrayList<>();
+    private volatile long[][] rows = new long[0][];
+
+    public static ExceptionDependencyMatrix of(Collection<String> exceptionTypes) {
+        ExceptionDependencyMatrix matrix = new ExceptionDependencyMatrix();
+        for (String type : exceptionTypes) {
+            matrix.intern(type);
+        }
+        return matrix;
+    }
+
+    /**
+     * @return the id of the type, assigning one and computing its row on first use; -1 for "normal".
+     */
+    public synchronized int intern(String exceptionType) {
+        if (PatternSpace.NORMAL.equals(exceptionType)) {
+            return -1;
+        }
+        Integer known = ids.get(exceptionType);
+        if (known != null) {
+            return known;
+        }
+        int id = classes.size();
+        Class<?> type = load(exceptionType);
+        int words = (id >> 6) + 1;
+        long[][] grown = new long[id + 1][];
+        for (int other = 0; other < id; other++) {
+            grown[other] = Arrays.copyOf(rows[other], words);
+        }
+        grown[id] = new long[words];
+        for (int other = 0; other < id; other++) {
+            if (related(type, classes.get(other))) {
+                grown[id][other >> 6] |= 1L << other;
+                grown[other][id >> 6] |= 1L << id;
+            }
+        }
+        classes.add(type);
+        ids.put(exceptionType, id);
+        rows = grown;
+        return id;
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    public boolean isDependent(int a, int b) {
+        long[][] current = rows;
+        return a >= 0 && b >= 0 && (current[a][b >> 6] & (1L << b)) != 0;
+    }
+
+    public boolean isDependent(String a, String b) {
+        return isDependent(intern(a), intern(b));
+    }
+
+    /**
+     * @return for each state id of the space, the id of that exception type here (-1 for "normal"),
+     *         so patterns of that space can be checked without looking up names.
+     */
+    public int[] idsOf(PatternSpace space) {
+        int[] mapping = new int[space.radix()];
+        for (int state = 0; state < mapping.length; state++) {
+            mapping[state] = intern(space.stateName(state));
+        }
+        return mapping;
+    }
+
+    public boolean isValid(List<String> pattern) {
+        int[] patternIds = new int[pattern.size()];
+        for (int i = 0; i < patternIds.length; i++) {
+            patternIds[i] = intern(pattern.get(i));
+        }
+        return firstConflict(patternIds, patternIds.length) < 0;
+    }
+
+    /**
+     * Checks a pattern of a {@link PatternSpace} by its state ids, without looking up names.
+     *
+     * @param spaceIds The result of {@link #idsOf} for the pattern's space.
+     */
+    public boolean isValid(PatternSpace.PatternView pattern, int[] spaceIds) {
+        int[] patternIds = new int[pattern.size()];
+        for (int i = 0; i < patternIds.length; i++) {
+            patternIds[i] = spaceIds[pattern.stateId(i)];
+        }
+        return firstConflict(patternIds, patternIds.length) < 0;
+    }
+
+    /**
+     * @param patternIds Ids per call position, -1 for "normal".
+     * @return the first position whose exception depends on an exception at an earlier position, or -1.
+     */
+    public int firstConflict(int[] patternIds, int length) {
+        long[][] current = rows;
+        if (current.length <= 64) {
+            long seen = 0;
+            for (int i = 0; i < length; i++) {
+                int id = patternIds[i];
+                if (id < 0) {
+                    continue;
+                }
+                if ((current[id][0] & seen) != 0) {
+                    return i;
+                }
+                seen |= 1L << id;
+            }
+            return -1;
+        }
+        long[] seen = new long[((current.length - 1) >> 6) + 1];
+        for (int i = 0; i < length; i++) {
+            int id = patternIds[i];
+            if (id < 0) {
+                continue;
+            }
+            long[] row = current[id];
+            for (int w = 0; w < row.length; w++) {
+                if ((row[w] & seen[w]) != 0) {
+                    return i;
+                }
+            }
+            seen[id >> 6] |= 1L << id;
+        }
+        return -1;
+    }
+
+    private static Class<?> load(String exceptionType) {
+        try {
+            return Class.forName(exceptionType, false, ExceptionDependencyMatrix.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            System.err.println("[ExceptionDependencyMatrix] Cannot load " + exceptionType + "; treating it as independent.");
+            return null;
+        }
+    }
+
+    private static boolean related(Class<?> a, Class<?> b) {
+        if (a == null || b == null || a == b) {
+            return false;
+        }
+        if (a.isAssignableFrom(b) || b.isAssignableFrom(a)) {
+            return true;
+        }
+        Set<Class<?>> ancestors = new HashSet<>();
+        for (Class<?> c = a; c != null; c = c.getSuperclass()) {
+            ancestors.add(c);
+        }
+        for (Class<?> c = b; c != null; c = c.getSuperclass()) {
+            if (ancestors.contains(c)) {
+                return !GENERIC_ROOTS.contains(c.getName());
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,300 @@
+package edu.unl.exceptionamplifier.model;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * 紧凑的 Mocking Pattern 编码空间
+ * Interns the states of a fixed-length pattern ("normal" plus exception class names) into a small
+ * dictionary so a pattern can be stored as a packed {@code byte[]} (one byte per call) or, when the
+ * space fits in 63 bits, as a single {@code long} rank in the mixed-radix space. Position 0 is the
+ * most significant digit; state ids follow the order exception types were given, with "normal" last.
+ * {@link #view(byte[])} and {@link #view(long)} expose either encoding as a read-only {@code List<String>}
+ * without copying, so existing test logic keeps working on packed patterns.
+ */
+public class PatternSpace {
+    public static final String NORMAL = "normal";
+    private static final int MAX_STATES = 256;
+
+    private final int length;
+    private final String[] states;
+    private final Map<String, Integer> stateIds = new HashMap<>();
+    private final long[] weights; // radix^(length-1-i); null when the space does not fit in a long
+
+    public PatternSpace(int length, Collection<String> exceptionTypes) {
+        Set<String> ordered = new LinkedHashSet<>(exceptionTypes);
+        ordered.remove(NORMAL);
+        ordered.add(NORMAL);
+        if (ordered.size() > MAX_STATES) {
+            throw new IllegalArgumentException("At most " + (MAX_STATES - 1) + " exception types can be packed, got " + (ordered.size() - 1));
+        }
+        this.length = length;
+        this.states = ordered.toArray(new String[0]);
+        for (int i = 0; i < states.length; i++) {
+            stateIds.put(states[i], i);
+        }
+        this.weights = computeWeights(length, states.length);
+    }
+
+    /**
+     * 根据已有模式收集出现过的状态，构造对应的编码空间
+     * All patterns must share the same length.
+     */
+    public static PatternSpace of(Collection<? extends List<String>> patterns) {
+        Set<String> seen = new LinkedHashSet<>();
+        int length = -1;
+        for (List<String> pattern : patterns) {
+            if (length == -1) {
+                length = pattern.size();
+            } else if (length != pattern.size()) {
+                throw new IllegalArgumentException("Patterns of different lengths cannot share a space: " + length + " vs " + pattern.size());
+            }
+            seen.addAll(pattern);
+        }
+        return new PatternSpace(Math.max(length, 0), seen);
+    }
+
+    private static long[] computeWeights(int length, int radix) {
+        long[] result = new long[length];
+        long weight = 1;
+        for (int i = length - 1; i >= 0; i--) {
+            result[i] = weight;
+            if (i > 0) {
+                if (weight > Long.MAX_VALUE / radix) {
+                    return null;
+                }
+                weight *= radix;
+            }
+        }
+        // the rank of the last pattern is radix * weights[0] - 1, which must also fit
+        if (length > 0 && result[0] > Long.MAX_VALUE / radix) {
+            return null;
+        }
+        return result;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int radix() {
+        return states.length;
+    }
+
+    public int normalId() {
+        return states.length - 1;
+    }
+
+    /**
+     * @return the id of the state, or -1 if it is not part of this space.
+     */
+    public int stateId(String state) {
+        Integer id = stateIds.get(state);
+        return id == null ? -1 : id;
+    }
+
+    public String stateName(int id) {
+        return states[id];
+    }
+
+    public boolean contains(List<String> pattern) {
+        if (pattern.size() != length) {
+            return false;
+        }
+        for (String state : pattern) {
+            if (!stateIds.containsKey(state)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether every pattern of this space has a {@code long} rank.
+     */
+    public boolean isRankable() {
+        return weights != null;
+    }
+
+    /**
+     * Number of patterns in the space, saturating at Long.MAX_VALUE.
+     */
+    public long cardinality() {
+        return weights == null ? Long.MAX_VALUE : (length == 0 ? 1 : weights[0] * states.length);
+    }
+
+    public byte[] pack(List<String> pattern) {
+        if (pattern instanceof PackedView && ((PackedView) pattern).space() == this) {
+            return ((PackedView) pattern).packed.clone();
+        }
+        checkLength(pattern.size());
+        byte[] packed = new byte[length];
+        for (int i = 0; i < length; i++) {
+            packed[i] = (byte) requireId(pattern.get(i));
+        }
+        return packed;
+    }
+
+    public long rank(List<String> pattern) {
+        if (pattern instanceof PatternView && ((PatternView) pattern).space() == this) {
+            return ((PatternView) pattern).rank();
+        }
+        requireRankable();
+        checkLength(pattern.size());
+        long rank = 0;
+        for (int i = 0; i < length; i++) {
+            rank += requireId(pattern.get(i)) * weights[i];
+        }
+        return rank;
+    }
+
+    public long rank(byte[] packed) {
+        requireRankable();
+        checkLength(packed.length);
+        long rank = 0;
+        for (int i = 0; i < length; i++) {
+            rank += (packed[i] & 0xFF) * weights[i];
+        }
+        return rank;
+    }
+
+    public byte[] unrank(long rank) {
+        requireRankable();
+        byte[] packed = new byte[length];
+        for (int i = 0; i < length; i++) {
+            packed[i] = (byte) digit(rank, i);
+        }
+        return packed;
+    }
+
+    private int digit(long rank, int position) {
+        return (int) ((rank / weights[position]) % states.length);
+    }
+
+    /**
+     * Zero-copy list view over a packed pattern. The array must not be modified afterwards.
+     */
+    public PatternView view(byte[] packed) {
+        checkLength(packed.length);
+        return new PackedView(this, packed);
+    }
+
+    /**
+     * Zero-copy list view over a ranked pattern; each {@code get} decodes one digit.
+     */
+    public PatternView view(long rank) {
+        requireRankable();
+        if (rank < 0 || rank >= cardinality()) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " outside [0, " + cardinality() + ")");
+        }
+        return new RankedView(this, rank);
+    }
+
+    public String toPatternString(long rank, String delimiter) {
+        return String.join(delimiter, view(rank));
+    }
+
+    private void requireRankable() {
+        if (weights == null) {
+            throw new IllegalStateException("Pattern space of length " + length + " with " + states.length + " states does not fit in a long rank");
+        }
+    }
+
+    private void checkLength(int size) {
+        if (size != length) {
+            throw new IllegalArgumentException("Pattern length " + size + " does not match space length " + length);
+        }
+    }
+
+    private int requireId(String state) {
+        Integer id = stateIds.get(state);
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown state in pattern: " + state);
+        }
+        return id;
+    }
+
+    /**
+     * A read-only pattern backed by a {@link PatternSpace} encoding.
+     */
+    public abstract static class PatternView extends AbstractList<String> implements RandomAccess {
+        private final PatternSpace space;
+
+        PatternView(PatternSpace space) {
+            this.space = space;
+        }
+
+        public PatternSpace space() {
+            return space;
+        }
+
+        /**
+         * Id of the state at the given position.
+         */
+        public abstract int stateId(int position);
+
+        public abstract long rank();
+
+        @Override
+        public String get(int index) {
+            return space.states[stateId(index)];
+        }
+
+        @Override
+        public int size() {
+            return space.length;
+        }
+    }
+
+    private static final class PackedView extends PatternView {
+        private final byte[] packed;
+
+        PackedView(PatternSpace space, byte[] packed) {
+            super(space);
+            this.packed = packed;
+        }
+
+        @Override
+        public int stateId(int position) {
+            return packed[position] & 0xFF;
+        }
+
+        @Override
+        public long rank() {
+            return space().rank(packed);
+        }
+    }
+
+    private static final class RankedView extends PatternView {
+        private final long rank;
+
+        RankedView(PatternSpace space, long rank) {
+            super(space);
+            this.rank = rank;
+        }
+
+        @Override
+        public int stateId(int position) {
+            if (position < 0 || position >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size());
+            }
+            return space().digit(rank, position);
+        }
+
+        @Override
+        public long rank() {
+            return rank;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PatternSpace[length=" + length + ", states=" + String.join("|", states) + "]";
+    }
+}
@@ -0,0 +1,78 @@
+package edu.unl.exceptionamplifier.model;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+
+/**
+ * 记录被测逻辑实际读取到哪个调用位置的模式包装
+ * Mock answers look up the state of call i with {@code pattern.get(i)} only when call i actually
+ * happens, so the highest index read through {@link #get(int)} tells how far the SUT got before it
+ * stopped. Whole-pattern reads (iteration, {@code toString}, {@code equals}, {@code String.join})
+ * bypass the tracking so that logging the pattern does not count as consulting every position.
+ */
+public class TrackingPattern extends AbstractList<String> implements RandomAccess {
+    private final List<String> delegate;
+    private int maxConsultedIndex = -1;
+
+    public TrackingPattern(List<String> delegate) {
+        this.delegate = delegate;
+    }
+
+    public List<String> delegate() {
+        return delegate;
+    }
+
+    /**
+     * @return the highest position read through {@link #get(int)}, or -1 if none was read.
+     */
+    public int maxConsultedIndex() {
+        return maxConsultedIndex;
+    }
+
+    @Override
+    public String get(int index) {
+        String state = delegate.get(index);
+        if (index > maxConsultedIndex) {
+            maxConsultedIndex = index;
+        }
+        return state;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public ListIterator<String> listIterator() {
+        return delegate.listIterator();
+    }
+
+    @Override
+    public ListIterator<String> listIterator(int index) {
+        return delegate.listIterator(index);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return delegate.equals(o instanceof TrackingPattern ? ((TrackingPattern) o).delegate : o);
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -1,14 +1,29 @@
 package edu.unl.exceptionamplifier.util;
 
+import edu.unl.exceptionamplifier.model.PatternSpace;
+import edu.unl.exceptionamplifier.model.TrackingPattern;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class CoverageStatsReporter {
+    public static final String TIMEOUT = "TIMEOUT"; // 超过单模式时限、被放弃执行的模式的结果
     private final Map<String, List<String>> normalPathStats = new HashMap<>();
     private final Map<String, Set<String>> exceptionStats = new HashMap<>();
     private final Map<String, Set<String>> requiredExceptions = new HashMap<>();
     private final Map<String, Set<String>> coveredExceptions = new HashMap<>();
     private final Map<String, List<ExceptionDetails>> detailedExceptionStats = new HashMap<>();
+    // 以紧凑编码为键的异常链：testName -> (pattern rank -> details)，打印时再解码为字符串
+    private final Map<String, Map<Long, List<ExceptionDetails>>> compactExceptionStats = new HashMap<>();
+    private final Map<String, PatternSpace> compactSpaces = new HashMap<>();
+    // 不同异常链的签名，按首次出现顺序
+    private final List<String> chainSignatures = new ArrayList<>();
+    private final Set<String> chainSignatureSet = new HashSet<>();
+    private final List<String> timedOutPatterns = new ArrayList<>();
 
     public static class ExceptionDetails {
         String exceptionType;
@@ -88,6 +103,300 @@ public class CoverageStatsReporter {
     public void addSutExceptionChain(String testName, String patternString, ExceptionDetails exceptionChainDetails) {
         String key = testName + "::" + patternString;
         detailedExceptionStats.computeIfAbsent(key, k -> new ArrayList<>()).add(exceptionChainDetails);
+        recordChainSignature(exceptionChainDetails);
+    }
+
+    /**
+     * 异常链签名：链上每个异常的类型及其栈顶帧，不含消息（消息常带有具体数值）。
+     * Two chains with the same signature are treated as the same failure mode.
+     */
+    public static String chainSignature(ExceptionDetails details) {
+        StringBuilder signature = new StringBuilder();
+        for (ExceptionDetails current = details; current != null; current = current.cause) {
+            if (signature.length() > 0) {
+                signature.append(" <- ");
+            }
+            signature.append(current.exceptionType);
+            if (current.stackTrace != null && !current.stackTrace.isEmpty()) {
+                signature.append(" @ ").append(current.stackTrace.get(0));
+            }
+        }
+        return signature.toString();
+    }
+
+    private void recordChainSignature(ExceptionDetails details) {
+        if (details == null) {
+            return;
+        }
+        String signature = chainSignature(details);
+        if (chainSignatureSet.add(signature)) {
+            chainSignatures.add(signature);
+        }
+    }
+
+    /**
+     * @return number of distinct exception chains recorded so far.
+     */
+    public int getDistinctChainCount() {
+        return chainSignatures.size();
+    }
+
+    /**
+     * @return signatures of the distinct exception chains, in the order they were first recorded;
+     * {@code getChainSignatures().subList(before, getDistinctChainCount())} gives the chains found
+     * since an earlier count.
+     */
+    public List<String> getChainSignatures() {
+        return Collections.unmodifiableList(chainSignatures);
+    }
+
+    /**
+     * 以模式本身为键记录异常链。若模式是 PatternSpace 的视图，仅保存其 rank，不再构造拼接字符串。
+     */
+    public void addSutExceptionChain(String testName, List<String> pattern, ExceptionDetails exceptionChainDetails) {
+        if (pattern instanceof TrackingPattern) {
+            pattern = ((TrackingPattern) pattern).delegate();
+        }
+        if (pattern instanceof PatternSpace.PatternView) {
+            PatternSpace.PatternView view = (PatternSpace.PatternView) pattern;
+            if (view.space().isRankable()) {
+                PatternSpace previous = compactSpaces.putIfAbsent(testName, view.space());
+                if (previous == null || previous == view.space()) {
+                    compactExceptionStats.computeIfAbsent(testName, k -> new HashMap<>())
+                            .computeIfAbsent(view.rank(), k -> new ArrayList<>())
+                            .add(exceptionChainDetails);
+                    recordChainSignature(exceptionChainDetails);
+                    return;
+                }
+            }
+        }
+        addSutExceptionChain(testName, String.join(", ", pattern), exceptionChainDetails);
+    }
+
+    /**
+     * 记录 TIMEOUT 结果：模式在时限内没有执行完，被 TestExplorer 放弃
+     */
+    public void addTimeout(List<String> pattern) {
+        if (pattern instanceof TrackingPattern) {
+            pattern = ((TrackingPattern) pattern).delegate();
+        }
+        timedOutPatterns.add(String.join(", ", pattern));
+    }
+
+    public int getTimeoutCount() {
+        return timedOutPatterns.size();
+    }
+
+    public List<String> getTimedOutPatterns() {
+        return Collections.unmodifiableList(timedOutPatterns);
+    }
+
+    /**
+     * 合并另一个 reporter（例如并行执行时某个工作单元的 reporter）的全部统计
+     */
+    public void merge(CoverageStatsReporter other) {
+        for (Map.Entry<String, List<String>> entry : other.normalPathStats.entrySet()) {
+            normalPathStats.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+        }
+        for (Map.Entry<String, Set<String>> entry : other.exceptionStats.entrySet()) {
+            exceptionStats.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).addAll(entry.getValue());
+        }
+        for (Map.Entry<String, Set<String>> entry : other.requiredExceptions.entrySet()) {
+            registerExceptionTypes(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, Set<String>> entry : other.coveredExceptions.entrySet()) {
+            coveredExceptions.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).addAll(entry.getValue());
+        }
+        for (Map.Entry<String, List<ExceptionDetails>> entry : other.detailedExceptionStats.entrySet()) {
+            detailedExceptionStats.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+        }
+        for (Map.Entry<String, Map<Long, List<ExceptionDetails>>> byTest : other.compactExceptionStats.entrySet()) {
+            String testName = byTest.getKey();
+            PatternSpace otherSpace = other.compactSpaces.get(testName);
+            PatternSpace space = compactSpaces.putIfAbsent(testName, otherSpace);
+            for (Map.Entry<Long, List<ExceptionDetails>> entry : byTest.getValue().entrySet()) {
+                if (space == null || space == otherSpace) {
+                    compactExceptionStats.computeIfAbsent(testName, k -> new HashMap<>())
+                            .computeIfAbsent(entry.getKey(), k -> new ArrayList<>())
+                            .addAll(entry.getValue());
+                } else {
+                    // 不同的编码空间，退化为字符串键
+                    String key = testName + "::" + otherSpace.toPatternString(entry.getKey(), ", ");
+                    detailedExceptionStats.computeIfAbsent(key, k -> new ArrayList<>()).addAll(entry.getValue());
+                }
+            }
+        }
+        for (String signature : other.chainSignatures) {
+            if (chainSignatureSet.add(signature)) {
+                chainSignatures.add(signature);
+            }
+        }
+        timedOutPatterns.addAll(other.timedOutPatterns);
+    }
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * 以二进制形式写出全部统计（例如由分片子进程传回父进程），可用 {@link #readSnapshot} 还原后 {@link #merge}
+     * Chains keyed by a compact pattern rank are written under their decoded pattern string, since the
+     * encoding space is not transferable; the printed reports are unchanged.
+     */
+    public void writeSnapshot(DataOutput out) throws IOException {
+        out.writeInt(SNAPSHOT_VERSION);
+        writeListMap(out, normalPathStats);
+        writeSetMap(out, exceptionStats);
+        writeSetMap(out, requiredExceptions);
+        writeSetMap(out, coveredExceptions);
+        Map<String, List<ExceptionDetails>> details = allDetailedExceptionStats();
+        out.writeInt(details.size());
+        for (Map.Entry<String, List<ExceptionDetails>> entry : details.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (ExceptionDetails chain : entry.getValue()) {
+                writeDetails(out, chain);
+            }
+        }
+        writeStrings(out, chainSignatures);
+        writeStrings(out, timedOutPatterns);
+    }
+
+    public static CoverageStatsReporter readSnapshot(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported reporter snapshot version: " + version);
+        }
+        CoverageStatsReporter reporter = new CoverageStatsReporter();
+        readListMap(in, reporter.normalPathStats);
+        readSetMap(in, reporter.exceptionStats);
+        readSetMap(in, reporter.requiredExceptions);
+        readSetMap(in, reporter.coveredExceptions);
+        int keys = in.readInt();
+        for (int i = 0; i < keys; i++) {
+            String key = readString(in);
+            int count = in.readInt();
+            List<ExceptionDetails> chains = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                chains.add(readDetails(in));
+            }
+            reporter.detailedExceptionStats.put(key, chains);
+        }
+        for (String signature : readStrings(in)) {
+            if (reporter.chainSignatureSet.add(signature)) {
+                reporter.chainSignatures.add(signature);
+            }
+        }
+        reporter.timedOutPatterns.addAll(readStrings(in));
+        return reporter;
+    }
+
+    private static void writeListMap(DataOutput out, Map<String, List<String>> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, List<String>> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeStrings(out, entry.getValue());
+        }
+    }
+
+    private static void readListMap(DataInput in, Map<String, List<String>> map) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), readStrings(in));
+        }
+    }
+
+    private static void writeSetMap(DataOutput out, Map<String, Set<String>> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, Set<String>> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeStrings(out, entry.getValue());
+        }
+    }
+
+    private static void readSetMap(DataInput in, Map<String, Set<String>> map) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            map.put(readString(in), new HashSet<>(readStrings(in)));
+        }
+    }
+
+    private static void writeDetails(DataOutput out, ExceptionDetails details) throws IOException {
+        for (ExceptionDetails current = details; current != null; current = current.cause) {
+            out.writeBoolean(true);
+            writeString(out, current.exceptionType);
+            writeString(out, current.message);
+            out.writeBoolean(current.stackTrace != null);
+            if (current.stackTrace != null) {
+                writeStrings(out, current.stackTrace);
+            }
+            writeString(out, current.injectedByPattern);
+        }
+        out.writeBoolean(false);
+    }
+
+    private static ExceptionDetails readDetails(DataInput in) throws IOException {
+        List<ExceptionDetails> chain = new ArrayList<>();
+        while (in.readBoolean()) {
+            String type = readString(in);
+            String message = readString(in);
+            List<String> stackTrace = in.readBoolean() ? readStrings(in) : null;
+            chain.add(new ExceptionDetails(type, message, stackTrace, null, readString(in)));
+        }
+        for (int i = chain.size() - 2; i >= 0; i--) {
+            chain.get(i).cause = chain.get(i + 1);
+        }
+        return chain.isEmpty() ? null : chain.get(0);
+    }
+
+    private static void writeStrings(DataOutput out, Collection<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    // writeUTF 限制 64KB，异常消息和栈帧可能更长，因此使用长度前缀的 UTF-8
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Map<String, List<ExceptionDetails>> allDetailedExceptionStats() {
+        if (compactExceptionStats.isEmpty()) {
+            return detailedExceptionStats;
+        }
+        Map<String, List<ExceptionDetails>> all = new HashMap<>(detailedExceptionStats);
+        for (Map.Entry<String, Map<Long, List<ExceptionDetails>>> byTest : compactExceptionStats.entrySet()) {
+            PatternSpace space = compactSpaces.get(byTest.getKey());
+            for (Map.Entry<Long, List<ExceptionDetails>> entry : byTest.getValue().entrySet()) {
+                String key = byTest.getKey() + "::" + space.toPatternString(entry.getKey(), ", ");
+                all.computeIfAbsent(key, k -> new ArrayList<>()).addAll(entry.getValue());
+            }
+        }
+        return all;
     }
 
     public void printSummaryReport() {
@@ -129,12 +438,13 @@ public class CoverageStatsReporter {
 
     public void printSutExceptionAnalysisReport() {
         System.out.println("\n[SUT 异常详细分析报告]");
-        if (detailedExceptionStats.isEmpty()) {
+        Map<String, List<ExceptionDetails>> allStats = allDetailedExceptionStats();
+        if (allStats.isEmpty()) {
             System.out.println("没有捕获到SUT异常详细信息。");
             return;
         }
 
-        for (Map.Entry<String, List<ExceptionDetails>> entry : detailedExceptionStats.entrySet()) {
+        for (Map.Entry<String, List<ExceptionDetails>> entry : allStats.entrySet()) {
             System.out.println("\nTest Pattern Key: " + entry.getKey());
             for (ExceptionDetails details : entry.getValue()) {
                 System.out.println("  Injected Exception Pattern: " + details.injectedByPattern);
@@ -199,6 +509,13 @@ public class CoverageStatsReporter {
                 System.out.printf("    - %s\n", ex);
             }
         }
+
+        if (!timedOutPatterns.isEmpty()) {
+            System.out.printf("\n%s: %d 个模式超时\n", TIMEOUT, timedOutPatterns.size());
+            for (String pattern : timedOutPatterns) {
+                System.out.printf("    路径组合: %s\n", pattern);
+            }
+        }
     }
 
     public void printCoverageTree() {
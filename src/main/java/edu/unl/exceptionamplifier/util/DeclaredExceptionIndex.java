@@ -0,0 +1,144 @@
+package edu.unl.exceptionamplifier.util;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 被测类公开方法声明的异常索引，每个类只扫描一次
+ * Maps every public method of a class (including inherited ones) to its {@code throws} clause, both
+ * by full signature, e.g. {@code "getPosition(java.lang.String)"}, and by plain name. A plain name
+ * stands for all overloads of that name: its declared exceptions are the union of theirs, in the
+ * order they were first seen. Indexes are cached per class and, for {@link #forName}, per class name.
+ *
+ * <p>{@link #mayThrow} tells whether an injected exception is legal for a method: unchecked
+ * exceptions always are, a checked one only if it is assignable to a declared type. Generators use
+ * this to skip patterns that inject checked exceptions a call can never throw.
+ */
+public final class DeclaredExceptionIndex {
+    private static final ClassValue<DeclaredExceptionIndex> BY_CLASS = new ClassValue<DeclaredExceptionIndex>() {
+        @Override
+        protected DeclaredExceptionIndex computeValue(Class<?> type) {
+            return new DeclaredExceptionIndex(type);
+        }
+    };
+    private static final Map<String, DeclaredExceptionIndex> BY_NAME = new ConcurrentHashMap<>();
+    private static final Map<String, Class<?>> EXCEPTION_TYPES = new ConcurrentHashMap<>();
+
+    private final Class<?> type;
+    private final Map<String, List<Class<?>>> bySignature = new HashMap<>();
+    private final Map<String, List<Class<?>>> byName = new HashMap<>();
+
+    private DeclaredExceptionIndex(Class<?> type) {
+        this.type = type;
+        Map<String, Set<Class<?>>> overloads = new LinkedHashMap<>();
+        for (Method method : type.getMethods()) {
+            List<Class<?>> declared = Collections.unmodifiableList(Arrays.asList(method.getExceptionTypes()));
+            bySignature.put(signatureOf(method), declared);
+            overloads.computeIfAbsent(method.getName(), k -> new LinkedHashSet<>()).addAll(declared);
+        }
+        for (Map.Entry<String, Set<Class<?>>> entry : overloads.entrySet()) {
+            byName.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+        }
+    }
+
+    public static DeclaredExceptionIndex of(Class<?> type) {
+        return BY_CLASS.get(type);
+    }
+
+    /**
+     * 按类名查找索引；类只加载一次
+     *
+     * @throws ClassNotFoundException if the class cannot be loaded; failures are not cached.
+     */
+    public static DeclaredExceptionIndex forName(String className) throws ClassNotFoundException {
+        DeclaredExceptionIndex index = BY_NAME.get(className);
+        if (index == null) {
+            index = of(Class.forName(className));
+            BY_NAME.putIfAbsent(className, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return e.g. {@code "executeTradeTransaction(java.lang.String,int,double,java.lang.String)"}.
+     */
+    public static String signatureOf(Method method) {
+        StringBuilder signature = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameters = method.getParameterTypes();
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) {
+                signature.append(',');
+            }
+            signature.append(parameters[i].getTypeName());
+        }
+        return signature.append(')').toString();
+    }
+
+    public Class<?> type() {
+        return type;
+    }
+
+    public boolean hasMethod(String methodOrSignature) {
+        return lookup(methodOrSignature) != null;
+    }
+
+    /**
+     * @param methodOrSignature A full signature, or a method name standing for all its overloads.
+     * @return the declared exception types, or null if the class has no such public method.
+     */
+    public List<Class<?>> declaredExceptions(String methodOrSignature) {
+        return lookup(methodOrSignature);
+    }
+
+    private List<Class<?>> lookup(String methodOrSignature) {
+        return methodOrSignature.indexOf('(') >= 0 ? bySignature.get(methodOrSignature) : byName.get(methodOrSignature);
+    }
+
+    /**
+     * 注入的异常对该方法是否合法：非受检异常总是合法，受检异常须能赋值给声明的某个类型
+     * Unknown methods and exception classes that cannot be loaded are treated as legal, so they are
+     * never excluded by mistake.
+     */
+    public boolean mayThrow(String methodOrSignature, String exceptionType) {
+        List<Class<?>> declared = lookup(methodOrSignature);
+        Class<?> exception = loadException(exceptionType);
+        if (declared == null || exception == null || !isChecked(exception)) {
+            return true;
+        }
+        for (Class<?> allowed : declared) {
+            if (allowed.isAssignableFrom(exception)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean isChecked(Class<?> exceptionType) {
+        return Throwable.class.isAssignableFrom(exceptionType)
+                && !RuntimeException.class.isAssignableFrom(exceptionType)
+                && !Error.class.isAssignableFrom(exceptionType);
+    }
+
+    private static Class<?> loadException(String exceptionType) {
+        Class<?> known = EXCEPTION_TYPES.get(exceptionType);
+        if (known != null) {
+            return known;
+        }
+        try {
+            Class<?> loaded = Class.forName(exceptionType, false, DeclaredExceptionIndex.class.getClassLoader());
+            EXCEPTION_TYPES.putIfAbsent(exceptionType, loaded);
+            return loaded;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package edu.unl.exceptionamplifier.util; // THIS MUST BE THE FIRST LINE
 
-import java.lang.reflect.Method;
+import edu.unl.exceptionamplifier.model.PatternSpace;
+
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 
 public class ExceptionReflectionUtils {
     // ... (rest of the code as provided previously)
+    /**
+     * 统计调用序列中各方法声明的异常数；重载方法按所有重载声明的异常并集计算
+     * Classes are scanned once through {@link DeclaredExceptionIndex}; a call string may name a full
+     * signature ({@code "service.method(java.lang.String)"}) to pick one overload.
+     */
     public static int countDeclaredExceptions(
             List<String> apiCallStrings,
             Map<String, String> serviceKeyToClassNameMap) {
@@ -40,65 +45,69 @@ public class ExceptionReflectionUtils {
                 continue;
             }
 
-            try {
-                Class<?> targetClass = Class.forName(fqcn);
-                Method[] methods = targetClass.getMethods(); 
-                boolean methodFound = false;
-                for (Method method : methods) {
-                    if (method.getName().equals(methodName)) {
-                        Class<?>[] exceptionTypes = method.getExceptionTypes();
-                        totalPotentialExceptions += exceptionTypes.length;
-                        methodFound = true;
-                        break; 
-                    }
-                }
-                if (!methodFound) {
-                   // System.err.println("Method \"" + methodName + "\" not found in class \"" + fqcn + "\" (or its public supertypes) for API call: \"" + apiCallString + "\"");
+            DeclaredExceptionIndex index = indexOf(fqcn, apiCallString);
+            if (index != null) {
+                List<Class<?>> declared = index.declaredExceptions(methodName);
+                if (declared != null) {
+                    totalPotentialExceptions += declared.size();
                 }
-            } catch (ClassNotFoundException e) {
-                System.err.println("Class not found: \"" + fqcn + "\" for API call: \"" + apiCallString + "\". Error: " + e.getMessage());
-            } catch (SecurityException e) {
-                System.err.println("Security exception accessing class/method for: \"" + apiCallString + "\". Error: " + e.getMessage());
-            } catch (LinkageError e) { 
-                 System.err.println("Linkage error processing method " + methodName + " in class " + fqcn + ". Error: " + e.getMessage());
             }
         }
         return totalPotentialExceptions;
     }
 
-    public static Throwable createExceptionInstance(String className, String message) {
+    private static DeclaredExceptionIndex indexOf(String fqcn, String apiCallString) {
         try {
-            Class<?> clazz = Class.forName(className);
-            Constructor<?> constructor = null;
-            Throwable instance = null;
+            return DeclaredExceptionIndex.forName(fqcn);
+        } catch (ClassNotFoundException e) {
+            System.err.println("Class not found: \"" + fqcn + "\" for API call: \"" + apiCallString + "\". Error: " + e.getMessage());
+        } catch (SecurityException e) {
+            System.err.println("Security exception accessing class/method for: \"" + apiCallString + "\". Error: " + e.getMessage());
+        } catch (LinkageError e) {
+            System.err.println("Linkage error processing class " + fqcn + " for API call: \"" + apiCallString + "\". Error: " + e.getMessage());
+        }
+        return null;
+    }
 
-            // Try to find a constructor that takes a String (message)
-            try {
-                constructor = clazz.getConstructor(String.class);
-                instance = (Throwable) constructor.newInstance(message);
-            } catch (NoSuchMethodException e) {
-                // If no String constructor, try a no-arg constructor
-                try {
-                    constructor = clazz.getConstructor();
-                    instance = (Throwable) constructor.newInstance();
-                    // Attempt to set message if possible (e.g. via initCause or if it's a RuntimeException)
-                    // This part is a bit speculative as there's no standard setCauseWithMessage method.
-                    // For simplicity, we'll rely on the constructor or let it be without a message if no String constructor.
-                } catch (NoSuchMethodException ex) {
-                    System.err.println("No suitable constructor found for " + className + " (tried String and no-arg). Returning generic RuntimeException.");
-                    return new RuntimeException("Could not instantiate " + className + ": " + message + " (no suitable constructor)");
+    /**
+     * 每个调用位置可合法注入的状态
+     * {@code result[i][id]} is false when state {@code id} of the space is a checked exception that
+     * the method called at position i does not declare. "normal", unchecked exceptions, calls that
+     * cannot be resolved and exception classes that cannot be loaded are always allowed.
+     *
+     * @return the per-position table, or null if every state is allowed everywhere.
+     */
+    public static boolean[][] legalStates(PatternSpace space, List<String> apiCallStrings,
+                                          Map<String, String> serviceKeyToClassNameMap) {
+        boolean[][] legal = new boolean[space.length()][space.radix()];
+        boolean restricted = false;
+        for (int i = 0; i < legal.length; i++) {
+            Arrays.fill(legal[i], true);
+            String apiCallString = i < apiCallStrings.size() ? apiCallStrings.get(i) : null;
+            int dot = apiCallString == null ? -1 : apiCallString.indexOf('.');
+            if (dot <= 0 || dot == apiCallString.length() - 1) {
+                continue;
+            }
+            String fqcn = serviceKeyToClassNameMap.get(apiCallString.substring(0, dot));
+            DeclaredExceptionIndex index = fqcn == null ? null : indexOf(fqcn, apiCallString);
+            if (index == null) {
+                continue;
+            }
+            String methodName = apiCallString.substring(dot + 1);
+            for (int id = 0; id < space.radix(); id++) {
+                if (id != space.normalId() && !index.mayThrow(methodName, space.stateName(id))) {
+                    legal[i][id] = false;
+                    restricted = true;
                 }
             }
-            return instance;
-        } catch (ClassNotFoundException e) {
-            System.err.println("Exception class not found: " + className + ". Returning generic RuntimeException.");
-            return new RuntimeException("Original exception class not found: " + className + ", message: " + message, e);
-        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-            System.err.println("Error instantiating exception " + className + ": " + e.getMessage() + ". Returning generic RuntimeException.");
-            return new RuntimeException("Error instantiating " + className + ": " + message, e);
-        } catch (SecurityException e) {
-            System.err.println("Security exception while creating instance of " + className + ": " + e.getMessage() + ". Returning generic RuntimeException.");
-            return new RuntimeException("Security issue creating " + className + ": " + message, e);
         }
+        return restricted ? legal : null;
+    }
+
+    /**
+     * 通过 {@link InjectedExceptionFactory} 创建（构造器查找结果按类缓存），每次返回带栈帧的新实例
+     */
+    public static Throwable createExceptionInstance(String className, String message) {
+        return InjectedExceptionFactory.withStackTraces().create(className, message);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+package edu.unl.exceptionamplifier.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 注入异常的工厂：每个异常类只查找一次构造器，并可返回不带栈帧的复用实例
+ * The first request for a class resolves its {@code (String)} constructor, or its no-arg
+ * constructor when there is none, to a {@link MethodHandle}; later instances cost one handle
+ * invocation instead of {@code Class.forName}, {@code getConstructor} and a reflective call. Classes
+ * that cannot be loaded or instantiated yield a {@link RuntimeException} describing the problem, as
+ * {@link ExceptionReflectionUtils#createExceptionInstance} always did.
+ *
+ * <p>With stack traces disabled the factory hands out one prototype per (class, message) whose
+ * stack trace is empty, so an injection allocates nothing and walks no stack. Use this only when
+ * the reporter does not need the frames of injected exceptions. A prototype that the SUT has
+ * mutated (a cause set with {@code initCause} or suppressed exceptions added) is replaced by a fresh
+ * one on its next use; a prototype may still be in flight on two threads at once.
+ */
+public class InjectedExceptionFactory {
+    private static final MethodType MESSAGE_CONSTRUCTOR = MethodType.methodType(void.class, String.class);
+    private static final MethodType NO_ARG_CONSTRUCTOR = MethodType.methodType(void.class);
+    private static final StackTraceElement[] NO_FRAMES = new StackTraceElement[0];
+    private static final InjectedExceptionFactory WITH_STACK_TRACES = new InjectedExceptionFactory(true);
+
+    private final boolean stackTraces;
+    private final Map<String, Constructor> constructors = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Throwable>> prototypes = new ConcurrentHashMap<>();
+
+    /**
+     * @param stackTraces false to reuse stackless prototypes instead of creating a new exception per injection.
+     */
+    public InjectedExceptionFactory(boolean stackTraces) {
+        this.stackTraces = stackTraces;
+    }
+
+    /**
+     * @return the shared factory that creates a new exception, with its stack trace, per call.
+     */
+    public static InjectedExceptionFactory withStackTraces() {
+        return WITH_STACK_TRACES;
+    }
+
+    public boolean isStackTraces() {
+        return stackTraces;
+    }
+
+    public Throwable create(String className, String message) {
+        if (stackTraces) {
+            return constructorOf(className).newInstance(message);
+        }
+        Map<String, Throwable> byMessage = prototypes.computeIfAbsent(className, k -> new ConcurrentHashMap<>());
+        Throwable prototype = byMessage.get(message);
+        if (prototype == null || isMutated(prototype)) {
+            prototype = constructorOf(className).newInstance(message);
+            prototype.setStackTrace(NO_FRAMES);
+            byMessage.put(message, prototype);
+        }
+        return prototype;
+    }
+
+    private static boolean isMutated(Throwable prototype) {
+        return prototype.getCause() != null || prototype.getSuppressed().length > 0
+                || prototype.getStackTrace().length > 0;
+    }
+
+    private Constructor constructorOf(String className) {
+        Constructor constructor = constructors.get(className);
+        if (constructor == null) {
+            constructor = constructors.computeIfAbsent(className, Constructor::resolve);
+        }
+        return constructor;
+    }
+
+    /**
+     * 解析后的构造方式；失败时记住原因，之后每次返回同样的替代异常
+     */
+    private static final class Constructor {
+        private final String className;
+        private final MethodHandle handle;  // (String)Throwable，无参构造器时忽略消息
+        private final String failure;
+        private final Throwable failureCause;
+
+        private Constructor(String className, MethodHandle handle, String failure, Throwable failureCause) {
+            this.className = className;
+            this.handle = handle;
+            this.failure = failure;
+            this.failureCause = failureCause;
+        }
+
+        static Constructor resolve(String className) {
+            Class<?> type;
+            try {
+                type = Class.forName(className);
+            } catch (ClassNotFoundException | LinkageError e) {
+                System.err.println("Exception class not found: " + className + ". Returning generic RuntimeException.");
+                return new Constructor(className, null, "Original exception class not found: " + className, e);
+            }
+            if (!Throwable.class.isAssignableFrom(type)) {
+                return new Constructor(className, null, "Not a Throwable: " + className, null);
+            }
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            try {
+                MethodHandle handle = lookup.findConstructor(type, MESSAGE_CONSTRUCTOR)
+                        .asType(MethodType.methodType(Throwable.class, String.class));
+                return new Constructor(className, handle, null, null);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // 没有 (String) 构造器时使用无参构造器
+            }
+            try {
+                MethodHandle handle = MethodHandles.dropArguments(
+                        lookup.findConstructor(type, NO_ARG_CONSTRUCTOR).asType(MethodType.methodType(Throwable.class)),
+                        0, String.class);
+                return new Constructor(className, handle, null, null);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                System.err.println("No suitable constructor found for " + className + " (tried String and no-arg). Returning generic RuntimeException.");
+                return new Constructor(className, null, "Could not instantiate " + className, null);
+            }
+        }
+
+        Throwable newInstance(String message) {
+            if (handle == null) {
+                return new RuntimeException(failure + ", message: " + message, failureCause);
+            }
+            try {
+                return (Throwable) handle.invokeExact(message);
+            } catch (Throwable e) {
+                return new RuntimeException("Error instantiating " + className + ": " + message, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package edu.unl.exceptionamplifier.util;
+
+import java.util.Arrays;
+
+/**
+ * 基于开放寻址的 long 集合
+ * Stores primitive longs without boxing; used to de-duplicate pattern ranks.
+ */
+public class LongHashSet {
+    private static final long FREE = 0L;
+
+    private long[] table;
+    private boolean containsFree;
+    private int size;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        table = new long[capacity];
+    }
+
+    /**
+     * @return true if the value was not present before.
+     */
+    public boolean add(long value) {
+        if (value == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int slot = indexOf(table, value);
+        if (table[slot] == value) {
+            return false;
+        }
+        table[slot] = value;
+        if (++size * 2 > table.length) {
+            rehash();
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == FREE) {
+            return containsFree;
+        }
+        return table[indexOf(table, value)] == value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(table, FREE);
+        containsFree = false;
+        size = 0;
+    }
+
+    private static int indexOf(long[] table, long value) {
+        int mask = table.length - 1;
+        int slot = mix(value) & mask;
+        while (table[slot] != FREE && table[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void rehash() {
+        long[] old = table;
+        table = new long[old.length << 1];
+        for (long value : old) {
+            if (value != FREE) {
+                table[indexOf(table, value)] = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package edu.unl.exceptionamplifier.util;
+
+/**
+ * 基于开放寻址的 long -> int 映射
+ * The map counterpart of {@link LongHashSet}: primitive keys and values without boxing, used to keep
+ * one small value per pattern rank or index for very large explorations.
+ */
+public class LongIntHashMap {
+    private static final long FREE = 0L;
+
+    private long[] keys;
+    private int[] values;
+    private boolean containsFree;
+    private int freeValue;
+    private int size;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    public void put(long key, int value) {
+        if (key == FREE) {
+            if (!containsFree) {
+                containsFree = true;
+                size++;
+            }
+            freeValue = value;
+            return;
+        }
+        int slot = indexOf(keys, key);
+        values[slot] = value;
+        if (keys[slot] == key) {
+            return;
+        }
+        keys[slot] = key;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    /**
+     * @return the value of the key, or {@code missing} if it is absent.
+     */
+    public int get(long key, int missing) {
+        if (key == FREE) {
+            return containsFree ? freeValue : missing;
+        }
+        int slot = indexOf(keys, key);
+        return keys[slot] == key ? values[slot] : missing;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == FREE) {
+            return containsFree;
+        }
+        return keys[indexOf(keys, key)] == key;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static int indexOf(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new int[oldKeys.length << 1];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = indexOf(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package edu.unl.exceptionamplifier.benchmark;
+
+import edu.unl.exceptionamplifier.mocker.ResourceCallInjector;
+import edu.unl.stock.MarketDataService;
+import edu.unl.stock.MockMarketDataService;
+import edu.unl.stock.StockTradingRepository;
+import edu.unl.stock.StockTradingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 织入但未启用注入时资源调用的开销
+ * Measures the same call, {@code StockTradingService.getBalance} -> {@code StockTradingRepository.getBalance},
+ * in three builds of the service:
+ * <ul>
+ *   <li>{@code unwoven}: StockTradingService compiled from its source with plain javac at setup and
+ *   loaded in a child class loader, so the call site carries no advice;</li>
+ *   <li>{@code guardOff}: the woven class from target/classes with the guard switched off, i.e. the
+ *   cost of weaving for builds that never inject;</li>
+ *   <li>{@code guardOn}: the woven class with the guard on but no pattern active on the thread, i.e.
+ *   the cost of the advice itself.</li>
+ * </ul>
+ * All three call through a {@code static final} bound method handle, which the JIT inlines, so the
+ * call path is identical apart from the woven advice. The repository returns a constant and does not
+ * touch the database. Each mode needs its own fork (the handle is a constant per JVM), so keep
+ * {@code @Fork} above 0.
+ *
+ * <p>Run from the project directory after {@code mvn test-compile} (the aspect must be woven into
+ * target/classes):
+ * <pre>
+ * mvn -q dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main ResourceCallBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ResourceCallBenchmark {
+    static final String SERVICE_CLASS = "edu.unl.stock.StockTradingService";
+    static final String SOURCE_ROOT_PROPERTY = "exceptionamplifier.sourceRoot";
+
+    private static volatile MethodHandle target; // 由 setUp 设置，Holder 初始化时读入常量
+
+    @Param({"unwoven", "guardOff", "guardOn"})
+    public String mode;
+
+    @Setup
+    public void setUp() throws Exception {
+        Class<?> serviceClass = "unwoven".equals(mode) ? compileUnwoven() : StockTradingService.class;
+        if (!"unwoven".equals(mode) && !isWoven(serviceClass)) {
+            throw new IllegalStateException(SERVICE_CLASS + " on the classpath is not woven; run mvn test-compile first");
+        }
+        StockTradingRepository repository = new StockTradingRepository() {
+            private double balance = 100000.0;
+
+            @Override
+            public double getBalance() {
+                return balance;
+            }
+        };
+        Object service = serviceClass
+                .getConstructor(StockTradingRepository.class, MarketDataService.class)
+                .newInstance(repository, new MockMarketDataService());
+        target = MethodHandles.publicLookup()
+                .findVirtual(serviceClass, "getBalance", MethodType.methodType(double.class))
+                .bindTo(service);
+        ResourceCallInjector.setEnabled("guardOn".equals(mode));
+    }
+
+    @TearDown
+    public void tearDown() {
+        ResourceCallInjector.setEnabled(false);
+    }
+
+    private static final class Holder {
+        static final MethodHandle GET_BALANCE = target;
+    }
+
+    @Benchmark
+    public double getBalance() throws Throwable {
+        return (double) Holder.GET_BALANCE.invokeExact();
+    }
+
+    /**
+     * 织入后的类引用 aspect 的类型
+     */
+    static boolean isWoven(Class<?> serviceClass) throws IOException {
+        String resource = "/" + serviceClass.getName().replace('.', '/') + ".class";
+        byte[] bytes = readAll(serviceClass.getResourceAsStream(resource));
+        return new String(bytes, "ISO-8859-1").contains("ExceptionMockAspect");
+    }
+
+    /**
+     * 用 javac 从源码编译未织入的 StockTradingService，并在子类加载器中只定义这一个类
+     */
+    static Class<?> compileUnwoven() throws Exception {
+        Path source = Paths.get(System.getProperty(SOURCE_ROOT_PROPERTY, "src/main/java"),
+                SERVICE_CLASS.replace('.', '/') + ".java");
+        if (!Files.isRegularFile(source)) {
+            throw new IllegalStateException("Source not found: " + source.toAbsolutePath()
+                    + "; run from the project directory or set -D" + SOURCE_ROOT_PROPERTY);
+        }
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            throw new IllegalStateException("The unwoven mode needs a JDK, not a JRE");
+        }
+        Path output = Files.createTempDirectory("unwoven");
+        try {
+            int exitCode = javac.run(null, null, null, "-nowarn", "-encoding", "UTF-8",
+                    "-cp", System.getProperty("java.class.path"), "-d", output.toString(), source.toString());
+            if (exitCode != 0) {
+                throw new IllegalStateException("javac failed for " + source);
+            }
+            byte[] bytes = Files.readAllBytes(output.resolve(SERVICE_CLASS.replace('.', '/') + ".class"));
+            return new ChildFirstLoader(ResourceCallBenchmark.class.getClassLoader(), bytes).loadClass(SERVICE_CLASS);
+        } finally {
+            deleteRecursively(output);
+        }
+    }
+
+    private static final class ChildFirstLoader extends ClassLoader {
+        private final byte[] serviceBytes;
+
+        ChildFirstLoader(ClassLoader parent, byte[] serviceBytes) {
+            super(parent);
+            this.serviceBytes = serviceBytes;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!SERVICE_CLASS.equals(name)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                return loaded != null ? loaded : defineClass(name, serviceBytes, 0, serviceBytes.length);
+            }
+        }
+    }
+
+    private static byte[] readAll(java.io.InputStream in) throws IOException {
+        try (java.io.InputStream stream = in) {
+            java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = stream.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (java.util.stream.Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(java.util.Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package edu.unl.exceptionamplifier.testcases;
+
+import edu.unl.exceptionamplifier.builder.CoveringArrayGenerator;
+import edu.unl.exceptionamplifier.builder.ExceptionalSpaceBuilder;
+import edu.unl.exceptionamplifier.builder.HighRiskPatternSelector;
+import edu.unl.exceptionamplifier.explorer.TestExplorer;
+import edu.unl.exceptionamplifier.llm.LLMPatternProvider;
+import edu.unl.exceptionamplifier.llm.LLMResponseCache;
+import edu.unl.exceptionamplifier.model.ExceptionDependencyMatrix;
+import edu.unl.exceptionamplifier.model.PatternSpace;
+import edu.unl.exceptionamplifier.util.DeclaredExceptionIndex;
+import edu.unl.exceptionamplifier.util.ExceptionReflectionUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExceptionalSpaceBuilderTest {
+    private static final List<String> API_CALL_SEQUENCE = Arrays.asList(
+            "marketDataService.getRealtimePrice",
+            "stockTradingRepository.getPosition",
+            "stockTradingRepository.getBalance",
+            "stockTradingRepository.executeTradeTransaction",
+            "stockTradingRepository.getPosition",
+            "marketDataService.getRealtimePrice",
+            "stockTradingRepository.executeTradeTransaction"
+    );
+
+    private static final List<String> EXCEPTION_TYPES = Arrays.asList(
+            "java.io.IOException",
+            "java.sql.SQLException",
+            "java.util.concurrent.TimeoutException"
+    );
+
+    private static final List<String> ALL_EXCEPTION_TYPES = Arrays.asList(
+            "java.io.IOException",
+            "java.sql.SQLException",
+            "java.util.concurrent.TimeoutException",
+            "edu.unl.stock.InsufficientBalanceException",
+            "edu.unl.stock.PositionNotEnoughException",
+            "edu.unl.stock.RemoteApiException",
+            "java.lang.IllegalArgumentException",
+            "java.lang.NullPointerException"
+    );
+
+    private static void assertTWiseCovered(List<List<String>> patterns, List<String> states, int t, int positions) {
+        int[] chosen = new int[t];
+        assertCombinationsCovered(patterns, states, chosen, 0, 0, positions);
+    }
+
+    private static void assertCombinationsCovered(List<List<String>> patterns, List<String> states,
+                                                  int[] chosen, int depth, int start, int positions) {
+        if (depth == chosen.length) {
+            Set<List<String>> seen = new HashSet<>();
+            for (List<String> pattern : patterns) {
+                List<String> projection = new ArrayList<>();
+                for (int position : chosen) {
+                    projection.add(pattern.get(position));
+                }
+                seen.add(projection);
+            }
+            assertEquals((int) Math.pow(states.size(), chosen.length), seen.size(),
+                    "missing combinations at positions " + Arrays.toString(chosen));
+            return;
+        }
+        for (int i = start; i < positions; i++) {
+            chosen[depth] = i;
+            assertCombinationsCovered(patterns, states, chosen, depth + 1, i + 1, positions);
+        }
+    }
+
+    @Test
+    public void testLazyExhaustiveMatchesMaterializedList() {
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        List<List<String>> materialized = builder.generateExhaustivePatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES, 3);
+
+        List<List<String>> streamed = new ArrayList<>();
+        Iterator<List<String>> iterator = builder.iterateExhaustivePatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES, 3);
+        while (iterator.hasNext()) {
+            streamed.add(iterator.next());
+        }
+
+        assertEquals(64, materialized.size());
+        assertEquals(materialized, streamed);
+        assertEquals(64L, builder.countExhaustivePatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES, 3));
+    }
+
+    @Test
+    public void testLazyExhaustiveBeyondMaterializationLimit() {
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        List<String> longSequence = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            longSequence.addAll(API_CALL_SEQUENCE);
+        }
+
+        assertTrue(builder.generateExhaustivePatterns(longSequence, EXCEPTION_TYPES, 20).isEmpty());
+        assertEquals(Long.MAX_VALUE, builder.countExhaustivePatterns(longSequence, EXCEPTION_TYPES, 140));
+
+        // 只消费执行预算内的模式
+        TestExplorer explorer = new TestExplorer();
+        explorer.setMaxExecutions(50);
+        AtomicInteger executed = new AtomicInteger();
+        explorer.explore(longSequence,
+                builder.iterateExhaustivePatterns(longSequence, EXCEPTION_TYPES, 140),
+                pattern -> executed.incrementAndGet());
+        assertTrue(executed.get() > 0);
+        assertTrue(executed.get() <= 50);
+    }
+
+    @Test
+    public void testPairwiseCoveringArray() {
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        List<List<String>> patterns = builder.generateMockingPatterns(API_CALL_SEQUENCE, ALL_EXCEPTION_TYPES,
+                ExceptionalSpaceBuilder.PatternGenerationStrategy.T_WISE, 2);
+
+        List<String> states = new ArrayList<>(ALL_EXCEPTION_TYPES);
+        states.add("normal");
+        assertTWiseCovered(patterns, states, 2, API_CALL_SEQUENCE.size());
+        // 穷尽空间为 9^7 = 4,782,969
+        assertTrue(patterns.size() < 150, "pairwise array too large: " + patterns.size());
+    }
+
+    @Test
+    public void testThreeWiseCoveringArray() {
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        List<List<String>> patterns = builder.generateTWisePatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES, 3);
+
+        List<String> states = new ArrayList<>(EXCEPTION_TYPES);
+        states.add("normal");
+        assertTWiseCovered(patterns, states, 3, API_CALL_SEQUENCE.size());
+        assertTrue(patterns.size() < 4 * 4 * 4 * 4);
+    }
+
+    @Test
+    public void testSplittableSpacesMatchSequentialGeneration() {
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        builder.setApiRiskScore("stockTradingRepository.getBalance", 1.5);
+        builder.setApiRiskScore("stockTradingRepository.executeTradeTransaction", 1.5);
+
+        List<List<String>> riskBased = builder.generateRiskBasedPatterns(API_CALL_SEQUENCE, ALL_EXCEPTION_TYPES);
+        // 高风险位置 2, 3, 6 (executeTradeTransaction 出现两次) 两两组合
+        assertEquals(1 + 7 * 8 + 3 * 8 * 8, riskBased.size());
+        assertEquals(riskBased, builder.streamMockingPatterns(API_CALL_SEQUENCE, ALL_EXCEPTION_TYPES,
+                ExceptionalSpaceBuilder.PatternGenerationStrategy.DEFAULT_RISK_BASED, 0, true)
+                .collect(Collectors.toList()));
+
+        List<List<String>> exhaustive = builder.streamMockingPatterns(API_CALL_SEQUENCE, ALL_EXCEPTION_TYPES,
+                ExceptionalSpaceBuilder.PatternGenerationStrategy.EXHAUSTIVE, 5, true)
+                .collect(Collectors.toList());
+        assertEquals(59049, exhaustive.size());
+        assertEquals(builder.generateExhaustivePatterns(API_CALL_SEQUENCE, ALL_EXCEPTION_TYPES, 5), exhaustive);
+    }
+
+    @Test
+    public void testDependentExceptionsAreNeverGenerated() {
+        List<String> types = Arrays.asList("java.io.IOException", "java.io.FileNotFoundException", "java.sql.SQLException");
+        ExceptionDependencyMatrix matrix = ExceptionDependencyMatrix.of(types);
+        assertTrue(matrix.isDependent("java.io.IOException", "java.io.FileNotFoundException"));
+        assertTrue(matrix.isDependent("java.io.FileNotFoundException", "java.io.EOFException")); // 同属 IOException
+        assertFalse(matrix.isDependent("java.io.IOException", "java.sql.SQLException"));
+        assertFalse(matrix.isDependent("java.lang.IllegalArgumentException", "java.lang.NullPointerException"));
+        assertFalse(matrix.isDependent("java.io.IOException", "java.io.IOException"));
+
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        builder.setExcludeDependentExceptions(false);
+        List<List<String>> expected = builder.generateExhaustivePatterns(API_CALL_SEQUENCE, types, 4).stream()
+                .filter(matrix::isValid).collect(Collectors.toList());
+        builder.setExcludeDependentExceptions(true);
+        List<List<String>> exhaustive = builder.generateExhaustivePatterns(API_CALL_SEQUENCE, types, 4);
+        // 4^4 个模式中，IOException 与 FileNotFoundException 同时出现的被排除
+        assertEquals(256 - (256 - 2 * 81 + 16), exhaustive.size());
+        assertEquals(expected, exhaustive);
+        assertEquals(exhaustive, builder.streamMockingPatterns(API_CALL_SEQUENCE, types,
+                ExceptionalSpaceBuilder.PatternGenerationStrategy.EXHAUSTIVE, 4, true).collect(Collectors.toList()));
+
+        List<List<String>> pairwise = builder.generateTWisePatterns(API_CALL_SEQUENCE, types, 2);
+        Set<String> coveredPairs = new HashSet<>();
+        for (List<String> pattern : pairwise) {
+            assertTrue(matrix.isValid(pattern), "dependent exceptions in " + pattern);
+            for (int i = 0; i < pattern.size(); i++) {
+                for (int j = i + 1; j < pattern.size(); j++) {
+                    coveredPairs.add(i + "=" + pattern.get(i) + "," + j + "=" + pattern.get(j));
+                }
+            }
+        }
+        List<String> states = new ArrayList<>(types);
+        states.add("normal");
+        for (int i = 0; i < API_CALL_SEQUENCE.size(); i++) {
+            for (int j = i + 1; j < API_CALL_SEQUENCE.size(); j++) {
+                for (String a : states) {
+                    for (String b : states) {
+                        if (!matrix.isDependent(a, b)) {
+                            assertTrue(coveredPairs.contains(i + "=" + a + "," + j + "=" + b), "missing " + i + "=" + a + "," + j + "=" + b);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHighRiskSelectiveReturnsBestScoredPatterns() {
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        builder.setApiRiskScore("stockTradingRepository.executeTradeTransaction", 2.0);
+        builder.setPositionRiskScore(5, 3.0); // 第二次 getRealtimePrice
+        builder.setExceptionWeight("java.sql.SQLException", 2.0);
+        builder.setBaseFailureOdds(0.2);
+
+        int budget = 200;
+        List<List<String>> selected = builder.generateMockingPatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES,
+                ExceptionalSpaceBuilder.PatternGenerationStrategy.HIGH_RISK_SELECTIVE, budget);
+        assertEquals(budget, selected.size());
+        assertEquals(budget, new HashSet<>(selected).size());
+
+        // 与穷尽空间按分数排序后的前 budget 个比较
+        double[] risk = {1, 1, 1, 2, 1, 3, 2};
+        List<Double> expected = new ArrayList<>();
+        Iterator<List<String>> all = builder.iterateExhaustivePatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES, 7);
+        while (all.hasNext()) {
+            expected.add(score(all.next(), risk));
+        }
+        expected.sort((a, b) -> Double.compare(b, a));
+        for (int i = 0; i < budget; i++) {
+            assertEquals(expected.get(i), score(selected.get(i), risk), 1e-12, "rank " + i);
+        }
+        assertEquals(Arrays.asList("normal", "normal", "normal", "normal", "normal", "java.sql.SQLException", "normal"),
+                selected.get(1));
+
+        // 权重或几率为 0 时对数评分为 NaN，直接拒绝
+        assertThrows(IllegalArgumentException.class, () -> builder.setExceptionWeight("java.io.IOException", 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.setBaseFailureOdds(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.setBaseFailureOdds(Double.NaN));
+        PatternSpace space = new PatternSpace(2, EXCEPTION_TYPES);
+        assertThrows(IllegalArgumentException.class, () -> new HighRiskPatternSelector(space,
+                new double[]{1, 1}, new double[space.radix()], 0.1));
+    }
+
+    private static double score(List<String> pattern, double[] risk) {
+        double score = 1;
+        for (int i = 0; i < pattern.size(); i++) {
+            if (!"normal".equals(pattern.get(i))) {
+                // 权重 (1, 2, 1) 归一化后均值为 1
+                double weight = "java.sql.SQLException".equals(pattern.get(i)) ? 1.5 : 0.75;
+                score *= 0.2 * risk[i] * weight;
+            }
+        }
+        return score;
+    }
+
+    @Test
+    public void testOfflineLLMStrategyReplaysCachedResponse() throws Exception {
+        Path cacheDir = Files.createTempDirectory("llm-cache");
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        builder.setLLMCache(new LLMResponseCache(cacheDir));
+        builder.setLLMOffline(true);
+        List<String> apiCalls = API_CALL_SEQUENCE.subList(0, 2);
+
+        // 缓存未命中时离线模式不访问网络
+        assertTrue(builder.generateMockingPatterns(apiCalls, EXCEPTION_TYPES,
+                ExceptionalSpaceBuilder.PatternGenerationStrategy.LLM_BASED, 0).isEmpty());
+
+        String key = LLMResponseCache.key(ExceptionalSpaceBuilder.LLM_MODEL,
+                builder.buildLLMPrompt(apiCalls, EXCEPTION_TYPES), apiCalls, EXCEPTION_TYPES);
+        new LLMResponseCache(cacheDir).put(key, "[[\"normal\", \"java.io.IOException\"], [\"java.sql.SQLException\", \"normal\"]]");
+
+        List<List<String>> patterns = builder.generateMockingPatterns(apiCalls, EXCEPTION_TYPES,
+                ExceptionalSpaceBuilder.PatternGenerationStrategy.LLM_BASED, 0);
+        assertEquals(Arrays.asList(
+                Arrays.asList("normal", "java.io.IOException"),
+                Arrays.asList("java.sql.SQLException", "normal")), patterns);
+        assertNotEquals(key, LLMResponseCache.key(ExceptionalSpaceBuilder.LLM_MODEL,
+                builder.buildLLMPrompt(apiCalls, EXCEPTION_TYPES), apiCalls, ALL_EXCEPTION_TYPES));
+        // 键覆盖实际发送的 system prompt 与带后缀的用户消息
+        assertEquals(key, LLMResponseCache.key(ExceptionalSpaceBuilder.LLM_MODEL, LLMPatternProvider.SYSTEM_PROMPT,
+                LLMPatternProvider.userMessage(builder.buildLLMPrompt(apiCalls, EXCEPTION_TYPES)), apiCalls, EXCEPTION_TYPES));
+        assertNotEquals(key, LLMResponseCache.key(ExceptionalSpaceBuilder.LLM_MODEL, "",
+                LLMPatternProvider.userMessage(builder.buildLLMPrompt(apiCalls, EXCEPTION_TYPES)), apiCalls, EXCEPTION_TYPES));
+
+        // 换用其他模型的调用器后，按默认模型缓存的响应不再命中
+        try (LLMPatternProvider other = LLMPatternProvider.forEndpoint("http://127.0.0.1:9", "unused", "other-model", 1)) {
+            builder.setLLMProvider(other);
+            assertTrue(builder.generateMockingPatterns(apiCalls, EXCEPTION_TYPES,
+                    ExceptionalSpaceBuilder.PatternGenerationStrategy.LLM_BASED, 0).isEmpty());
+        }
+        try (java.util.stream.Stream<Path> entries = Files.list(cacheDir)) {
+            assertEquals(1, entries.count()); // 没有残留的临时文件
+        }
+    }
+
+    @Test
+    public void testCoveringArrayGeneratorRejectsBadFillValueAndOverflow() {
+        // 填充值必须在每个位置的取值范围内，不能悄悄换成别的状态
+        assertThrows(IllegalArgumentException.class, () -> new CoveringArrayGenerator(new int[]{4, 2, 4}, 2, 3));
+        assertEquals(16, new CoveringArrayGenerator(new int[]{4, 2, 4}, 2, 0).generate().size());
+        // 元组数超出 int 时给出明确的错误，而不是回绕后越界
+        IllegalStateException overflow = assertThrows(IllegalStateException.class,
+                () -> new CoveringArrayGenerator(new int[]{50000, 50000, 50000}, 3, 0).generate());
+        assertTrue(overflow.getMessage().contains("3-wise"), overflow.getMessage());
+    }
+
+    public interface OverloadedService {
+        void send(String message) throws java.io.IOException;
+
+        void send(int code) throws java.sql.SQLException, java.io.IOException;
+    }
+
+    @Test
+    public void testDeclaredExceptionIndexRestrictsIllegalCheckedExceptions() {
+        Map<String, String> serviceClasses = new HashMap<>();
+        serviceClasses.put("marketDataService", "edu.unl.stock.MarketDataService");
+        serviceClasses.put("stockTradingRepository", "edu.unl.stock.StockTradingRepository");
+        serviceClasses.put("overloaded", OverloadedService.class.getName());
+
+        // 重载按声明异常的并集计算，完整签名只取对应的重载
+        assertEquals(2, ExceptionReflectionUtils.countDeclaredExceptions(
+                Arrays.asList("overloaded.send"), serviceClasses));
+        assertEquals(1, ExceptionReflectionUtils.countDeclaredExceptions(
+                Arrays.asList("overloaded.send(java.lang.String)"), serviceClasses));
+        DeclaredExceptionIndex index = DeclaredExceptionIndex.of(OverloadedService.class);
+        assertSame(index, DeclaredExceptionIndex.of(OverloadedService.class));
+        assertFalse(index.mayThrow("send(java.lang.String)", "java.sql.SQLException"));
+        assertTrue(index.mayThrow("send", "java.sql.SQLException"));
+        assertTrue(index.mayThrow("send(java.lang.String)", "java.io.FileNotFoundException"));
+        assertTrue(index.mayThrow("send(java.lang.String)", "java.lang.IllegalStateException"));
+
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        builder.setServiceClasses(serviceClasses);
+        // getRealtimePrice 只能抛 IOException，仓储方法只能抛 SQLException/TimeoutException
+        long expected = 2 * 3 * 3 * 3 * 3 * 2 * 3;
+        assertEquals(expected, builder.countExhaustivePatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES, API_CALL_SEQUENCE.size()));
+
+        Set<List<String>> iterated = new HashSet<>();
+        Iterator<List<String>> iterator = builder.iterateExhaustivePatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES, API_CALL_SEQUENCE.size());
+        while (iterator.hasNext()) {
+            List<String> pattern = iterator.next();
+            assertTrue(isLegal(pattern), pattern.toString());
+            assertTrue(iterated.add(new ArrayList<>(pattern)));
+        }
+        assertEquals(expected, iterated.size());
+        Set<List<String>> streamed = builder.streamExhaustivePatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES, API_CALL_SEQUENCE.size())
+                .parallel()
+                .map(ArrayList::new)
+                .collect(Collectors.toSet());
+        assertEquals(iterated, streamed);
+
+        List<List<String>> selected = builder.generateHighRiskSelectivePatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES, 200);
+        assertEquals(200, selected.size());
+        for (List<String> pattern : selected) {
+            assertTrue(isLegal(pattern), pattern.toString());
+        }
+        assertTrue(builder.generateRiskBasedPatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES).stream().allMatch(this::isLegal));
+
+        // T_WISE 只在合法状态上构造覆盖数组，合法状态的两两组合仍全部覆盖
+        List<List<String>> pairwise = builder.generateTWisePatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES, 2);
+        assertTrue(pairwise.stream().allMatch(this::isLegal));
+        Set<List<String>> firstTwo = new HashSet<>();
+        for (List<String> pattern : pairwise) {
+            firstTwo.add(Arrays.asList(pattern.get(0), pattern.get(1)));
+        }
+        assertEquals(2 * 3, firstTwo.size());
+    }
+
+    private boolean isLegal(List<String> pattern) {
+        for (int i = 0; i < pattern.size(); i++) {
+            String state = pattern.get(i);
+            boolean market = API_CALL_SEQUENCE.get(i).startsWith("marketDataService.");
+            if (market ? state.equals("java.sql.SQLException") || state.equals("java.util.concurrent.TimeoutException")
+                    : state.equals("java.io.IOException")) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+package edu.unl.exceptionamplifier.testcases;
+
+import edu.unl.exceptionamplifier.util.InjectedExceptionFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InjectedExceptionFactoryTest {
+
+    /**
+     * 只有无参构造器的异常
+     */
+    public static class NoMessageException extends RuntimeException {
+        public NoMessageException() {
+            super();
+        }
+    }
+
+    @Test
+    public void testFactoryCreatesFreshExceptionsWithStackTraces() {
+        InjectedExceptionFactory factory = InjectedExceptionFactory.withStackTraces();
+        Throwable first = factory.create("java.io.IOException", "call 0");
+        Throwable second = factory.create("java.io.IOException", "call 0");
+
+        assertTrue(first instanceof IOException);
+        assertEquals("call 0", first.getMessage());
+        assertNotSame(first, second);
+        assertTrue(first.getStackTrace().length > 0);
+        // 没有 (String) 构造器时使用无参构造器
+        Throwable noMessage = factory.create(NoMessageException.class.getName(), "x");
+        assertEquals(NoMessageException.class, noMessage.getClass());
+        assertNull(noMessage.getMessage());
+        Throwable missing = factory.create("com.example.NoSuchException", "call 1");
+        assertEquals(RuntimeException.class, missing.getClass());
+        assertTrue(missing.getMessage().contains("com.example.NoSuchException"));
+    }
+
+    @Test
+    public void testStacklessPrototypesAreReusedUntilMutated() {
+        InjectedExceptionFactory factory = new InjectedExceptionFactory(false);
+        Throwable prototype = factory.create("java.sql.SQLException", "call 2");
+
+        assertTrue(prototype instanceof SQLException);
+        assertEquals(0, prototype.getStackTrace().length);
+        assertSame(prototype, factory.create("java.sql.SQLException", "call 2"));
+        assertNotSame(prototype, factory.create("java.sql.SQLException", "call 3"));
+
+        // 被测系统修改过的原型不再复用
+        prototype.addSuppressed(new IOException("close failed"));
+        Throwable replaced = factory.create("java.sql.SQLException", "call 2");
+        assertNotSame(prototype, replaced);
+        assertEquals(0, replaced.getSuppressed().length);
+        assertEquals(0, replaced.getStackTrace().length);
+    }
+}
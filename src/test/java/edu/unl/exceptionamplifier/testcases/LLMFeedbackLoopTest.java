@@ -0,0 +1,98 @@
+package edu.unl.exceptionamplifier.testcases;
+
+import edu.unl.exceptionamplifier.builder.ExceptionalSpaceBuilder;
+import edu.unl.exceptionamplifier.explorer.LLMFeedbackLoop;
+import edu.unl.exceptionamplifier.explorer.TestExplorer;
+import edu.unl.exceptionamplifier.llm.LLMPatternProvider;
+import edu.unl.exceptionamplifier.llm.LocalLLMStubServer;
+import edu.unl.exceptionamplifier.util.CoverageStatsReporter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LLMFeedbackLoopTest {
+    private static final List<String> API_CALLS = Arrays.asList(
+            "walletRepository.getBalance",
+            "walletRepository.updateBalance",
+            "walletRepository.exchangeToken"
+    );
+
+    private static final List<String> EXCEPTION_TYPES = Arrays.asList(
+            "java.io.IOException",
+            "java.sql.SQLException"
+    );
+
+    // 每轮 LLM 的回答：第 2 轮发现新的异常链，第 3 轮只重复已知的异常链
+    private static final List<String> ROUNDS = Arrays.asList(
+            "[[\"normal\", \"normal\", \"normal\"], [\"java.io.IOException\", \"normal\", \"normal\"]]",
+            "[[\"java.io.IOException\", \"normal\", \"normal\"], [\"normal\", \"SQLException\", \"normal\"]]",
+            "[[\"normal\", \"java.sql.SQLException\", \"java.io.IOException\"], [\"normal\", \"java.sql.SQLException\", \"normal\"]]",
+            "[[\"normal\", \"normal\", \"java.io.IOException\"]]"
+    );
+
+    @Test
+    public void testRoundsStopWhenFindingsPlateau() throws Exception {
+        assertRoundsStopWhenFindingsPlateau(new TestExplorer());
+    }
+
+    @Test
+    public void testChainsCreditedPerPatternWithParallelExplorer() throws Exception {
+        TestExplorer explorer = new TestExplorer();
+        explorer.setParallelism(4);
+        assertRoundsStopWhenFindingsPlateau(explorer);
+    }
+
+    private static void assertRoundsStopWhenFindingsPlateau(TestExplorer explorer) throws Exception {
+        List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        try (LocalLLMStubServer server = new LocalLLMStubServer(request -> {
+                 requests.add(request);
+                 return ROUNDS.get(Math.min(requests.size(), ROUNDS.size()) - 1);
+             }, 0);
+             LLMPatternProvider provider = LLMPatternProvider.forEndpoint(server.getBaseUrl(), "test-key",
+                     ExceptionalSpaceBuilder.LLM_MODEL, 1)) {
+            ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+            builder.setLLMCache(null);
+            builder.setLLMProvider(provider);
+            CoverageStatsReporter reporter = new CoverageStatsReporter();
+
+            LLMFeedbackLoop loop = new LLMFeedbackLoop(builder, explorer, reporter);
+            List<LLMFeedbackLoop.RoundSummary> rounds = loop.run(API_CALLS, EXCEPTION_TYPES, (pattern, chains) -> {
+                // 第一个失败的调用终止执行，异常链为 IllegalStateException <- 注入的异常
+                for (int i = 0; i < pattern.size(); i++) {
+                    if (!"normal".equals(pattern.get(i))) {
+                        CoverageStatsReporter.ExceptionDetails injected = new CoverageStatsReporter.ExceptionDetails(
+                                pattern.get(i), "injected", null, null, String.join(", ", pattern));
+                        chains.addSutExceptionChain("wallet", pattern, new CoverageStatsReporter.ExceptionDetails(
+                                "java.lang.IllegalStateException", "call " + i + " failed",
+                                Collections.singletonList("edu.unl.wallet.WalletService.call" + i), injected,
+                                String.join(", ", pattern)));
+                        return;
+                    }
+                }
+            });
+
+            assertEquals(3, rounds.size());
+            assertEquals(1, rounds.get(0).newChains);
+            assertEquals(1, rounds.get(1).patternsExecuted); // 重复的模式不再执行
+            assertEquals(1, rounds.get(1).newChains);
+            assertEquals(0, rounds.get(2).newChains);
+            assertEquals(2, reporter.getDistinctChainCount());
+
+            // 第二轮的 prompt 带有上一轮的反馈
+            assertTrue(requests.get(1).contains("Productive patterns"));
+            assertTrue(requests.get(1).contains("edu.unl.wallet.WalletService.call0"));
+            assertFalse(requests.get(0).contains("Productive patterns"));
+
+            // 脱离执行结果无法生成反馈轮次，直接调用时提示改用 LLMFeedbackLoop
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> builder.generateMockingPatterns(
+                    API_CALLS, EXCEPTION_TYPES, ExceptionalSpaceBuilder.PatternGenerationStrategy.LLM_FEEDBACK, 0));
+            assertTrue(e.getMessage().contains("LLMFeedbackLoop"));
+            assertEquals(3, requests.size());
+        }
+    }
+}
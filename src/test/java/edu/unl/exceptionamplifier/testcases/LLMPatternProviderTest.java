@@ -0,0 +1,67 @@
+package edu.unl.exceptionamplifier.testcases;
+
+import edu.unl.exceptionamplifier.builder.ExceptionalSpaceBuilder;
+import edu.unl.exceptionamplifier.llm.LLMPatternProvider;
+import edu.unl.exceptionamplifier.llm.LocalLLMStubServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LLMPatternProviderTest {
+    private static final List<String> EXCEPTION_TYPES = Arrays.asList(
+            "java.io.IOException",
+            "java.sql.SQLException",
+            "java.util.concurrent.TimeoutException"
+    );
+
+    @Test
+    public void testConcurrentPromptsAgainstLocalStub() throws Exception {
+        // 前 4 个请求互相等待，直到 4 个同时在处理中；并发不足 4 时等待超时，fullyParallel 记为 false
+        CountDownLatch fourInFlight = new CountDownLatch(4);
+        AtomicBoolean fullyParallel = new AtomicBoolean(true);
+        try (LocalLLMStubServer server = new LocalLLMStubServer(request -> {
+                fourInFlight.countDown();
+                try {
+                    if (!fourInFlight.await(10, TimeUnit.SECONDS)) {
+                        fullyParallel.set(false);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "[[\"normal\", \"java.io.IOException\"], [\"java.sql.SQLException\", \"normal\"]]";
+            }, 0);
+             LLMPatternProvider provider = LLMPatternProvider.forEndpoint(server.getBaseUrl(), "test-key",
+                     ExceptionalSpaceBuilder.LLM_MODEL, 4)) {
+            ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+            builder.setLLMCache(null);
+            builder.setLLMProvider(provider);
+
+            List<List<String>> sequences = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                sequences.add(Arrays.asList("service.call" + i, "repository.save" + i));
+            }
+            List<List<List<String>>> results = builder.generateLLMPatternsForSequences(sequences, EXCEPTION_TYPES);
+
+            assertEquals(8, results.size());
+            for (List<List<String>> patterns : results) {
+                assertEquals(Arrays.asList("normal", "java.io.IOException"), patterns.get(0));
+            }
+            assertEquals(8, server.getRequestCount());
+            // 8 个请求在并发上限 4 下同时处理的峰值恰好为 4
+            assertTrue(fullyParallel.get(), "fewer than 4 prompts were in flight at once");
+            assertEquals(4, server.getMaxConcurrentRequests());
+
+            // 按异常分块的请求合并去重
+            List<List<String>> merged = builder.generateLLMPatternsConcurrently(sequences.get(0), EXCEPTION_TYPES, 3);
+            assertEquals(2, merged.size());
+            assertEquals(11, server.getRequestCount());
+        }
+    }
+}
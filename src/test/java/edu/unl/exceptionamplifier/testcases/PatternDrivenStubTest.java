@@ -0,0 +1,71 @@
+package edu.unl.exceptionamplifier.testcases;
+
+import edu.unl.exceptionamplifier.mocker.PatternDrivenStub;
+import edu.unl.exceptionamplifier.model.PatternSpace;
+import edu.unl.stock.MarketDataService;
+import edu.unl.stock.StockTradingRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PatternDrivenStubTest {
+
+    @Test
+    public void testInterfaceFakeFollowsCallPositions() throws Exception {
+        PatternDrivenStub stub = new PatternDrivenStub();
+        int getRealtimePrice = stub.register("MarketDataService.getRealtimePrice", 0, 1);
+        MarketDataService prices = new MarketDataService() {
+            @Override
+            public double getRealtimePrice(String symbol) {
+                return stub.call(getRealtimePrice) == 0 ? 100.0 : 110.0;
+            }
+        };
+
+        stub.reset(Arrays.asList("normal", "normal", "java.io.IOException"));
+        assertEquals(100.0, prices.getRealtimePrice("AAPL"));
+        assertEquals(110.0, prices.getRealtimePrice("AAPL"));
+        assertEquals(110.0, prices.getRealtimePrice("AAPL")); // 第三次调用没有对应位置
+
+        // 同一个替身切换到下一个模式：第二次调用对应位置 2
+        stub.reset(Arrays.asList("normal", "normal", "java.io.IOException"));
+        stub.register("MarketDataService.getRealtimePrice", 1, 2);
+        prices.getRealtimePrice("AAPL");
+        IOException injected = assertThrows(IOException.class, () -> prices.getRealtimePrice("AAPL"));
+        assertTrue(injected.getMessage().contains("position 2"));
+        assertEquals(2, stub.getCallCount("MarketDataService.getRealtimePrice"));
+
+        // getRealtimePrice 未声明 SQLException：照样原样抛出，不被包装
+        PatternSpace space = new PatternSpace(3, Arrays.asList("java.io.IOException", "java.sql.SQLException"));
+        stub.reset(space.view(space.rank(Arrays.asList("normal", "normal", "java.sql.SQLException"))));
+        prices.getRealtimePrice("AAPL");
+        Throwable undeclared = assertThrows(Throwable.class, () -> prices.getRealtimePrice("AAPL"));
+        assertEquals(SQLException.class, undeclared.getClass());
+    }
+
+    @Test
+    public void testClassDispatcherThrowsCheckedExceptionsUnchanged() throws Exception {
+        PatternDrivenStub stub = new PatternDrivenStub();
+        int getBalance = stub.register("StockTradingRepository.getBalance", 0, 1);
+        StockTradingRepository repository = new StockTradingRepository() {
+            @Override
+            public double getBalance() {
+                return stub.call(getBalance) * 10.0;
+            }
+        };
+
+        stub.reset(Arrays.asList("normal", "java.io.IOException"));
+        assertEquals(0.0, repository.getBalance());
+        // getBalance 只声明 SQLException、TimeoutException 与 InsufficientBalanceException
+        Throwable undeclared = assertThrows(Throwable.class, repository::getBalance);
+        assertEquals(IOException.class, undeclared.getClass());
+        assertEquals(2, stub.getCallCount("StockTradingRepository.getBalance"));
+
+        stub.reset(Arrays.asList("normal", "normal"));
+        repository.getBalance();
+        assertEquals(10.0, repository.getBalance());
+    }
+}
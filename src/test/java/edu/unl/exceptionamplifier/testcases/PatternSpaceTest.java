@@ -0,0 +1,53 @@
+package edu.unl.exceptionamplifier.testcases;
+
+import edu.unl.exceptionamplifier.model.PatternSpace;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PatternSpaceTest {
+    private static final List<String> EXCEPTION_TYPES = Arrays.asList(
+            "java.io.IOException",
+            "java.sql.SQLException",
+            "edu.unl.stock.RemoteApiException"
+    );
+
+    @Test
+    public void testPackRankAndViewRoundTrip() {
+        PatternSpace space = new PatternSpace(4, EXCEPTION_TYPES);
+        List<String> pattern = Arrays.asList("normal", "java.sql.SQLException", "normal", "edu.unl.stock.RemoteApiException");
+
+        byte[] packed = space.pack(pattern);
+        long rank = space.rank(pattern);
+
+        assertEquals(4, space.radix());
+        assertEquals(256L, space.cardinality());
+        assertEquals(rank, space.rank(packed));
+        assertArrayEquals(packed, space.unrank(rank));
+        assertEquals(pattern, space.view(packed));
+        assertEquals(pattern, space.view(rank));
+        assertEquals(pattern.hashCode(), space.view(rank).hashCode());
+        assertEquals("normal,java.sql.SQLException,normal,edu.unl.stock.RemoteApiException", space.toPatternString(rank, ","));
+    }
+
+    @Test
+    public void testAllNormalIsLastRank() {
+        PatternSpace space = new PatternSpace(3, EXCEPTION_TYPES);
+        assertEquals(space.cardinality() - 1, space.rank(Collections.nCopies(3, "normal")));
+        assertEquals(-1, space.stateId("java.lang.NullPointerException"));
+        assertFalse(space.contains(Arrays.asList("normal", "normal", "java.lang.NullPointerException")));
+    }
+
+    @Test
+    public void testLongSpacesFallBackToPackedPatterns() {
+        PatternSpace space = new PatternSpace(40, EXCEPTION_TYPES);
+        assertFalse(space.isRankable());
+        List<String> pattern = Collections.nCopies(40, "java.io.IOException");
+        assertEquals(pattern, space.view(space.pack(pattern)));
+        assertThrows(IllegalStateException.class, () -> space.rank(pattern));
+    }
+}
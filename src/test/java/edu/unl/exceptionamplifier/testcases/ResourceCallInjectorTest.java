@@ -0,0 +1,71 @@
+package edu.unl.exceptionamplifier.testcases;
+
+import edu.unl.exceptionamplifier.mocker.ResourceCallInjector;
+import edu.unl.exceptionamplifier.model.PatternSpace;
+import edu.unl.exceptionamplifier.model.TrackingPattern;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 织入后 advice 在每次资源调用前调用 onCall；这里直接调用 onCall 模拟织入点
+ */
+public class ResourceCallInjectorTest {
+
+    @Test
+    public void testCallsConsultConsecutivePatternPositions() {
+        List<String> states = Arrays.asList("normal", "java.sql.SQLException", "normal");
+        PatternSpace space = new PatternSpace(3, Arrays.asList("java.sql.SQLException"));
+        TrackingPattern pattern = new TrackingPattern(space.view(space.rank(states)));
+
+        // 未激活时不注入
+        ResourceCallInjector.onCall("call(StockTradingRepository.getBalance())");
+
+        Throwable injected = null;
+        try (ResourceCallInjector.Activation activation = ResourceCallInjector.activate(pattern)) {
+            assertEquals(-1, pattern.maxConsultedIndex());
+            ResourceCallInjector.onCall("call(MarketDataService.getRealtimePrice(String))");
+            try {
+                ResourceCallInjector.onCall("call(StockTradingRepository.getPosition(String))");
+            } catch (Throwable t) {
+                injected = t;
+            }
+            assertEquals(2, activation.getCallCount());
+        }
+        assertTrue(injected instanceof SQLException);
+        assertTrue(injected.getMessage().contains("getPosition"));
+        assertEquals(1, pattern.maxConsultedIndex());
+
+        ResourceCallInjector.onCall("call(StockTradingRepository.getPosition(String))");
+    }
+
+    @Test
+    public void testNestedActivationRestoresOuterPattern() {
+        try (ResourceCallInjector.Activation outer = ResourceCallInjector.activate(Arrays.asList("normal", "java.lang.IllegalStateException"))) {
+            try (ResourceCallInjector.Activation inner = ResourceCallInjector.activate(Arrays.asList("normal", "normal"))) {
+                ResourceCallInjector.onCall("inner 0");
+                ResourceCallInjector.onCall("inner 1");
+                ResourceCallInjector.onCall("inner 2"); // 超出模式长度的调用不注入
+                assertEquals(3, inner.getCallCount());
+            }
+            ResourceCallInjector.onCall("outer 0");
+            assertThrows(IllegalStateException.class, () -> ResourceCallInjector.onCall("outer 1"));
+            assertEquals(2, outer.getCallCount());
+        }
+    }
+
+    @Test
+    public void testActivationSwitchesTheGuardOn() {
+        ResourceCallInjector.setEnabled(false);
+        assertFalse(ResourceCallInjector.isEnabled());
+        try (ResourceCallInjector.Activation activation = ResourceCallInjector.activate(Arrays.asList("normal"))) {
+            assertTrue(ResourceCallInjector.isEnabled());
+        }
+        ResourceCallInjector.setEnabled(false);
+        assertFalse(ResourceCallInjector.isEnabled());
+    }
+}
@@ -0,0 +1,113 @@
+package edu.unl.exceptionamplifier.testcases;
+
+import edu.unl.exceptionamplifier.builder.ExceptionalSpaceBuilder;
+import edu.unl.exceptionamplifier.collector.SequenceCollector;
+import edu.unl.stock.MarketDataService;
+import edu.unl.stock.MockMarketDataService;
+import edu.unl.stock.StockTradingRepository;
+import edu.unl.stock.StockTradingService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SequenceCollectorTest {
+
+    @Test
+    public void testCapturedSequenceFeedsTheBuilder() throws Exception {
+        SequenceCollector collector = new SequenceCollector();
+        StockTradingRepository repository = new StockTradingRepository() {
+            private int position;
+
+            @Override
+            public int getPosition(String symbol) {
+                return position;
+            }
+
+            @Override
+            public double getBalance() {
+                return 100000.0;
+            }
+
+            @Override
+            public void executeTradeTransaction(String symbol, int quantity, double price, String type) {
+                position += "buy".equals(type) ? quantity : -quantity;
+            }
+        };
+        StockTradingService service = new StockTradingService(repository, new MockMarketDataService());
+
+        // 织入的切面在真实调用处记录，不需要代理或在子类中手动 record
+        try (SequenceCollector.WovenCapture capture = collector.captureWoven()) {
+            service.buyStock("AAPL", 10);
+            service.sellStock("AAPL", 10);
+        }
+        service.buyStock("AAPL", 10); // 作用域外不再记录
+
+        List<String> sequence = collector.getSequence();
+        assertEquals(Arrays.asList(
+                "marketDataService.getRealtimePrice",
+                "stockTradingRepository.getPosition",
+                "stockTradingRepository.getBalance",
+                "stockTradingRepository.executeTradeTransaction",
+                "stockTradingRepository.getPosition",
+                "marketDataService.getRealtimePrice",
+                "stockTradingRepository.executeTradeTransaction"), sequence);
+
+        // 采集到的序列与服务类映射直接用于生成模式
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        builder.setServiceClasses(collector.getServiceClasses());
+        List<String> exceptionTypes = Arrays.asList("java.io.IOException", "java.sql.SQLException");
+        assertEquals(2L * 2 * 2 * 2 * 2 * 2 * 2,
+                builder.countExhaustivePatterns(sequence, exceptionTypes, sequence.size()));
+
+        assertEquals("edu.unl.stock.StockTradingRepository", collector.getServiceClasses().get("stockTradingRepository"));
+
+        // 接口也可以用动态代理采集
+        collector.clear();
+        assertTrue(collector.getSequence().isEmpty());
+        MarketDataService marketService = collector.capture(MarketDataService.class, new MockMarketDataService());
+        marketService.getRealtimePrice("AAPL");
+        assertEquals(Collections.singletonList("marketDataService.getRealtimePrice"), collector.getSequence());
+        collector.setRecording(false);
+        marketService.getRealtimePrice("AAPL");
+        assertEquals(1, collector.getSequence().size());
+    }
+
+    @Test
+    public void testThreadsAreMergedInCallOrder() throws Exception {
+        SequenceCollector collector = new SequenceCollector();
+        int a = collector.intern("service.a");
+        int b = collector.intern("service.b");
+        assertEquals(a, collector.intern("service.a"));
+
+        Thread worker = new Thread(() -> {
+            for (int i = 0; i < 10000; i++) {
+                collector.record(b);
+            }
+        }, "capture-worker");
+        collector.record(a);
+        worker.start();
+        worker.join();
+        collector.record(a);
+
+        // 缓冲区按需增长，不丢调用；合并顺序按全局戳而非线程
+        List<String> sequence = collector.getSequence();
+        assertEquals(10002, sequence.size());
+        assertEquals("service.a", sequence.get(0));
+        assertEquals(Collections.nCopies(10000, "service.b"), sequence.subList(1, 10001));
+        assertEquals("service.a", sequence.get(10001));
+
+        Map<String, List<String>> byThread = collector.getSequencesByThread();
+        assertEquals(Arrays.asList("service.a", "service.a"), byThread.get(Thread.currentThread().getName()));
+        assertEquals(10000, byThread.get("capture-worker").size());
+
+        collector.clear();
+        assertTrue(collector.getSequencesByThread().isEmpty());
+        collector.record(b);
+        assertEquals(Collections.singletonList("service.b"), collector.getSequence());
+    }
+}
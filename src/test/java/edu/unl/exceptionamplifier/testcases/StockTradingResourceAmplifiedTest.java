@@ -1,7 +1,10 @@
 package edu.unl.exceptionamplifier.testcases;
 
 import edu.unl.exceptionamplifier.builder.ExceptionalSpaceBuilder;
+import edu.unl.exceptionamplifier.explorer.AsyncBatchingListener;
+import edu.unl.exceptionamplifier.explorer.LoggingExplorationListener;
 import edu.unl.exceptionamplifier.explorer.TestExplorer;
+import edu.unl.exceptionamplifier.mocker.PatternDrivenStub;
 import edu.unl.exceptionamplifier.util.CoverageStatsReporter;
 import edu.unl.exceptionamplifier.util.ExceptionReflectionUtils;
 import edu.unl.stock.*;
@@ -16,14 +19,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
-
-import static org.mockito.ArgumentMatchers.anyDouble;
-import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doAnswer;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
 
 public class StockTradingResourceAmplifiedTest {
 
@@ -196,109 +191,63 @@ public class StockTradingResourceAmplifiedTest {
     }
 
     private void executeStrategyPatterns(String testName, List<List<String>> patterns, CoverageStatsReporter currentPatternReporter) throws Exception {
+        // 替身只创建一次，每个模式通过 reset 切换；第 n 次调用对应 API_CALL_SEQUENCE 中的位置
+        PatternDrivenStub stub = new PatternDrivenStub();
+        int getRealtimePrice = stub.register("MarketDataService.getRealtimePrice", 0, 5);
+        int getPosition = stub.register("StockTradingRepository.getPosition", 1, 4);
+        int getBalance = stub.register("StockTradingRepository.getBalance", 2);
+        int executeTradeTransaction = stub.register("StockTradingRepository.executeTradeTransaction", 3, 6);
+        MarketDataService marketService = new MarketDataService() {
+            @Override
+            public double getRealtimePrice(String symbol) {
+                return stub.call(getRealtimePrice) == 1 ? 110.0 : 100.0;
+            }
+        };
+        StockTradingRepository repository = new StockTradingRepository() {
+            @Override
+            public int getPosition(String symbol) {
+                return stub.call(getPosition) == 1 ? TEST_QUANTITY + 10 : 0;
+            }
+
+            @Override
+            public double getBalance() {
+                stub.call(getBalance);
+                return 100000.0;
+            }
+
+            @Override
+            public void executeTradeTransaction(String symbol, int quantity, double price, String type) {
+                stub.call(executeTradeTransaction);
+            }
+        };
+        StockTradingResource sut = new StockTradingResource(new StockTradingService(repository, marketService));
+
         TestExplorer explorer = new TestExplorer();
+        // 每个模式的控制台输出会拖慢探索，这里只在后台线程上采样记录
+        AsyncBatchingListener log = new AsyncBatchingListener(new LoggingExplorationListener(System.out, 100));
+        explorer.addListener(log);
 
         explorer.explore(API_CALL_SEQUENCE, patterns, (List<String> currentPattern) -> {
             String patternString = String.join(", ", currentPattern);
-            System.out.println(testName + " - Executing pattern: " + patternString);
-
-            MarketDataService mockMarketService = mock(MarketDataService.class);
-            StockTradingRepository mockRepository = mock(StockTradingRepository.class);
-            StockTradingService stockTradingService = new StockTradingService(mockRepository, mockMarketService);
-            StockTradingResource sut = new StockTradingResource(stockTradingService);
-
-            final AtomicInteger mdsGetPriceCallCount = new AtomicInteger(0);
-            final AtomicInteger repoGetPositionCallCount = new AtomicInteger(0);
-            final AtomicInteger repoGetBalanceCallCount = new AtomicInteger(0);
-            final AtomicInteger repoExecTradeCallCount = new AtomicInteger(0);
-            
-            when(mockMarketService.getRealtimePrice(anyString())).thenAnswer(inv -> {
-                int callNum = mdsGetPriceCallCount.incrementAndGet();
-                if (callNum == 1) { 
-                    if (!"normal".equals(currentPattern.get(0))) {
-                        System.out.println("  [Mock] MDS.getRealtimePrice (buy) throwing " + currentPattern.get(0));
-                        throw ExceptionReflectionUtils.createExceptionInstance(currentPattern.get(0), "Mocked for MDS.getRealtimePrice (buy)");
-                    }
-                    return 100.0; 
-                } else if (callNum == 2) { 
-                    if (!"normal".equals(currentPattern.get(5))) {
-                        System.out.println("  [Mock] MDS.getRealtimePrice (sell) throwing " + currentPattern.get(5));
-                        throw ExceptionReflectionUtils.createExceptionInstance(currentPattern.get(5), "Mocked for MDS.getRealtimePrice (sell)");
-                    }
-                    return 110.0; 
-                }
-                System.out.println("  [Mock] MDS.getRealtimePrice unexpected call " + callNum + ", returning default 100.0");
-                return 100.0;
-            });
-
-            when(mockRepository.getPosition(anyString())).thenAnswer(inv -> {
-                int callNum = repoGetPositionCallCount.incrementAndGet();
-                if (callNum == 1) { 
-                    if (!"normal".equals(currentPattern.get(1))) {
-                        System.out.println("  [Mock] Repo.getPosition (buy) throwing " + currentPattern.get(1));
-                        throw ExceptionReflectionUtils.createExceptionInstance(currentPattern.get(1), "Mocked for Repo.getPosition (buy)");
-                    }
-                    return 0; 
-                } else if (callNum == 2) { 
-                    if (!"normal".equals(currentPattern.get(4))) {
-                        System.out.println("  [Mock] Repo.getPosition (sell) throwing " + currentPattern.get(4));
-                        throw ExceptionReflectionUtils.createExceptionInstance(currentPattern.get(4), "Mocked for Repo.getPosition (sell)");
-                    }
-                    return TEST_QUANTITY + 10; 
-                }
-                System.out.println("  [Mock] Repo.getPosition unexpected call " + callNum + ", returning 0");
-                return 0;
-            });
-
-            when(mockRepository.getBalance()).thenAnswer(inv -> {
-                repoGetBalanceCallCount.incrementAndGet(); 
-                if (!"normal".equals(currentPattern.get(2))) {
-                    System.out.println("  [Mock] Repo.getBalance throwing " + currentPattern.get(2));
-                    throw ExceptionReflectionUtils.createExceptionInstance(currentPattern.get(2), "Mocked for Repo.getBalance");
-                }
-                return 100000.0; 
-            });
-
-            doAnswer(inv -> {
-                int callNum = repoExecTradeCallCount.incrementAndGet();
-                if (callNum == 1) { 
-                    if (!"normal".equals(currentPattern.get(3))) {
-                        System.out.println("  [Mock] Repo.executeTradeTransaction (buy) throwing " + currentPattern.get(3));
-                        throw ExceptionReflectionUtils.createExceptionInstance(currentPattern.get(3), "Mocked for Repo.executeTradeTransaction (buy)");
-                    }
-                } else if (callNum == 2) { 
-                    if (!"normal".equals(currentPattern.get(6))) {
-                        System.out.println("  [Mock] Repo.executeTradeTransaction (sell) throwing " + currentPattern.get(6));
-                        throw ExceptionReflectionUtils.createExceptionInstance(currentPattern.get(6), "Mocked for Repo.executeTradeTransaction (sell)");
-                    }
-                }
-                if (callNum > 2) {
-                     System.out.println("  [Mock] Repo.executeTradeTransaction unexpected call " + callNum);
-                }
-                return null;
-            }).when(mockRepository).executeTradeTransaction(anyString(), anyInt(), anyDouble(), anyString());
+            stub.reset(currentPattern);
 
             try {
-                System.out.println("  [SUT] Attempting to buy " + TEST_QUANTITY + " of " + TEST_STOCK_SYMBOL);
                 sut.buyStock(TEST_STOCK_SYMBOL, TEST_QUANTITY);
                 currentPatternReporter.addStat(testName, patternString + " -> buyStock OK", true); 
-                System.out.println("  [SUT] Buy stock successful.");
 
-                System.out.println("  [SUT] Attempting to sell " + TEST_QUANTITY + " of " + TEST_STOCK_SYMBOL);
                 sut.sellStock(TEST_STOCK_SYMBOL, TEST_QUANTITY);
                 currentPatternReporter.addStat(testName, patternString + " -> sellStock OK", true); 
-                System.out.println("  [SUT] Sell stock successful.");
 
                 currentPatternReporter.addStat(testName, patternString + " -> Full sequence OK", true); 
 
             } catch (Exception e) { 
                 String exceptionType = e.getClass().getName();
-                System.out.println("  [SUT Exception] Caught: " + exceptionType + " for pattern: " + patternString + " Message: " + e.getMessage());
                 currentPatternReporter.addExceptionStat(testName, exceptionType);
                 overallCoveredExceptions.add(exceptionType);
                 CoverageStatsReporter.ExceptionDetails details = buildSutExceptionDetailsChain(e, patternString); 
-                currentPatternReporter.addSutExceptionChain(testName, patternString, details);
+                currentPatternReporter.addSutExceptionChain(testName, currentPattern, details);
             }
         });
+        log.close(); // 停止后台投递线程
     }
 }
@@ -0,0 +1,156 @@
+package edu.unl.exceptionamplifier.testcases;
+
+import edu.unl.exceptionamplifier.builder.ExceptionalSpaceBuilder;
+import edu.unl.exceptionamplifier.llm.LLMPatternProvider;
+import edu.unl.exceptionamplifier.llm.LLMResponseCache;
+import edu.unl.exceptionamplifier.llm.LocalLLMStubServer;
+import edu.unl.exceptionamplifier.llm.PatternValidator;
+import edu.unl.exceptionamplifier.llm.StreamingPatternParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingPatternParserTest {
+    private static final List<String> API_CALLS = Arrays.asList(
+            "marketDataService.getRealtimePrice",
+            "stockTradingRepository.getBalance",
+            "stockTradingRepository.executeTradeTransaction"
+    );
+
+    private static final List<String> EXCEPTION_TYPES = Arrays.asList(
+            "java.io.IOException",
+            "java.sql.SQLException",
+            "edu.unl.stock.RemoteApiException"
+    );
+
+    private static final String RESPONSE = "Here are the patterns:\n```json\n[\n" +
+            "  [\"normal\", \"java.io.IOException\", \"normal\"],\n" +
+            "  [\"SQLException\", \"Normal\"],\n" +                                  // 简单名 + 长度不足
+            "  [\"normal\", \"normal\", \"java.lang.OutOfMemoryError\"],\n" +        // 未知异常
+            "  [\"normal\", \"normal\", \"RemoteApiException\", \"normal\"],\n" +    // 多余的 normal
+            "  [\"normal\", \"normal\", \"normal\", \"java.io.IOException\"],\n" +   // 越界的异常
+            "  [\"java.sql.SQLException\", [\"nested\"], \"normal\"],\n" +
+            "  [\"normal\", \"edu.unl.wallet.RemoteApiException\", \"normal\"]\n" + // 包名不同，按简单名修复
+            "]\n```\nLet me know if you need more.";
+
+    private static final List<List<String>> EXPECTED = Arrays.asList(
+            Arrays.asList("normal", "java.io.IOException", "normal"),
+            Arrays.asList("java.sql.SQLException", "normal", "normal"),
+            Arrays.asList("normal", "normal", "edu.unl.stock.RemoteApiException"),
+            Arrays.asList("normal", "edu.unl.stock.RemoteApiException", "normal")
+    );
+
+    @Test
+    public void testRowsEmittedIncrementallyAndRepaired() {
+        PatternValidator validator = new PatternValidator(API_CALLS.size(), EXCEPTION_TYPES);
+        List<List<String>> rows = new ArrayList<>();
+        StreamingPatternParser parser = new StreamingPatternParser(row -> {
+            List<String> pattern = validator.validate(row);
+            if (pattern != null) {
+                rows.add(pattern);
+            }
+        });
+
+        // 逐字符输入：第一行在其右括号到达时即被输出
+        int firstRowEnd = RESPONSE.indexOf(']', RESPONSE.indexOf('[', RESPONSE.indexOf('[') + 1));
+        for (int i = 0; i < RESPONSE.length(); i++) {
+            parser.feed(RESPONSE.substring(i, i + 1));
+            if (i == firstRowEnd - 1) {
+                assertTrue(rows.isEmpty());
+            } else if (i == firstRowEnd) {
+                assertEquals(1, rows.size());
+            }
+        }
+        assertTrue(parser.isFinished());
+        assertEquals(EXPECTED, rows);
+        assertEquals(4, validator.getAcceptedCount());
+        assertEquals(3, validator.getRepairedCount());
+        assertEquals(2, validator.getDroppedCount());
+    }
+
+    @Test
+    public void testIteratorYieldsRowsBeforeResponseEnds() throws Exception {
+        CountDownLatch resume = new CountDownLatch(1);
+        try (LocalLLMStubServer server = new LocalLLMStubServer(request -> RESPONSE, 0);
+             LLMPatternProvider provider = LLMPatternProvider.forEndpoint(server.getBaseUrl(), "test-key",
+                     ExceptionalSpaceBuilder.LLM_MODEL, 2)) {
+            // 流在第一行的右括号之后暂停，直到测试放行
+            int firstRowEnd = RESPONSE.indexOf(']', RESPONSE.indexOf('[', RESPONSE.indexOf('[') + 1));
+            server.setStreaming(16, 0);
+            server.pauseStreamAt(firstRowEnd + 1, resume);
+            ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+            builder.setLLMCache(null);
+            builder.setLLMProvider(provider);
+            AtomicReference<PatternValidator> validation = new AtomicReference<>();
+            builder.setValidationSink(validation::set);
+
+            Iterator<List<String>> patterns = builder.iterateMockingPatterns(API_CALLS, EXCEPTION_TYPES,
+                    ExceptionalSpaceBuilder.PatternGenerationStrategy.LLM_BASED, 0);
+            // 响应尚未结束，第一行已经可以取出；否则 hasNext 会一直阻塞到超时
+            assertTrue(assertTimeoutPreemptively(Duration.ofSeconds(30), patterns::hasNext));
+            assertEquals(EXPECTED.get(0), patterns.next());
+            assertEquals(1, resume.getCount());
+
+            resume.countDown();
+            List<List<String>> rows = new ArrayList<>();
+            rows.add(EXPECTED.get(0));
+            while (patterns.hasNext()) {
+                rows.add(patterns.next());
+            }
+            assertEquals(EXPECTED, rows);
+            // 校验统计交给调用方，在迭代结束前已报告
+            assertEquals(4, validation.get().getAcceptedCount());
+            assertEquals(3, validation.get().getRepairedCount());
+            assertEquals(2, validation.get().getDroppedCount());
+        } finally {
+            resume.countDown();
+        }
+    }
+
+    @Test
+    public void testCutStreamIsNotCached(@TempDir Path cacheDir) throws Exception {
+        try (LocalLLMStubServer server = new LocalLLMStubServer(request -> RESPONSE, 0);
+             LLMPatternProvider provider = LLMPatternProvider.forEndpoint(server.getBaseUrl(), "test-key",
+                     ExceptionalSpaceBuilder.LLM_MODEL, 2)) {
+            // 连接在第一行之后、外层数组结束之前断开
+            int firstRowEnd = RESPONSE.indexOf(']', RESPONSE.indexOf('[', RESPONSE.indexOf('[') + 1));
+            server.setStreaming(16, 0);
+            server.cutStreamAt(firstRowEnd + 1);
+
+            List<String> deltas = new ArrayList<>();
+            CompletableFuture<String> response = provider.streamAsync("prompt", deltas::add);
+            CompletionException failure = assertThrows(CompletionException.class, response::join);
+            assertNotNull(failure.getCause());
+            assertEquals(RESPONSE.substring(0, firstRowEnd + 1), String.join("", deltas));
+
+            ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+            builder.setLLMCache(new LLMResponseCache(cacheDir));
+            builder.setLLMProvider(provider);
+            Iterator<List<String>> patterns = builder.iterateMockingPatterns(API_CALLS, EXCEPTION_TYPES,
+                    ExceptionalSpaceBuilder.PatternGenerationStrategy.LLM_BASED, 0);
+            List<List<String>> rows = new ArrayList<>();
+            while (patterns.hasNext()) {
+                rows.add(patterns.next());
+            }
+            // 已收到的行照常使用，但截断的响应不写入缓存
+            assertEquals(EXPECTED.subList(0, 1), rows);
+            try (Stream<Path> entries = Files.list(cacheDir)) {
+                assertEquals(0, entries.count());
+            }
+        }
+    }
+}
@@ -0,0 +1,593 @@
+package edu.unl.exceptionamplifier.testcases;
+
+import edu.unl.exceptionamplifier.builder.ExceptionalSpaceBuilder;
+import edu.unl.exceptionamplifier.builder.ExhaustivePatternIterator;
+import edu.unl.exceptionamplifier.explorer.AsyncBatchingListener;
+import edu.unl.exceptionamplifier.explorer.BanditPatternScheduler;
+import edu.unl.exceptionamplifier.explorer.ExplorationJournal;
+import edu.unl.exceptionamplifier.explorer.ExplorationListener;
+import edu.unl.exceptionamplifier.explorer.ForkableTestLogic;
+import edu.unl.exceptionamplifier.explorer.ReportingTestLogic;
+import edu.unl.exceptionamplifier.explorer.ShardTask;
+import edu.unl.exceptionamplifier.explorer.ShardedExplorer;
+import edu.unl.exceptionamplifier.explorer.SqliteFileCheckpoint;
+import edu.unl.exceptionamplifier.explorer.SutCheckpoint;
+import edu.unl.exceptionamplifier.explorer.TestExplorer;
+import edu.unl.exceptionamplifier.explorer.ThrowingConsumer;
+import edu.unl.exceptionamplifier.model.PatternSpace;
+import edu.unl.exceptionamplifier.util.CoverageStatsReporter;
+import edu.unl.exceptionamplifier.util.ExceptionReflectionUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestExplorerTest {
+    private static final List<String> API_CALL_SEQUENCE = Collections.nCopies(7, "resource.call");
+
+    private static final List<String> EXCEPTION_TYPES = Arrays.asList(
+            "java.io.IOException",
+            "java.sql.SQLException",
+            "java.util.concurrent.TimeoutException"
+    );
+
+    /**
+     * 模拟被测逻辑：按顺序发起调用，遇到第一个注入的异常即中止
+     */
+    private static ThrowingConsumer<List<String>> sequentialSut(AtomicInteger executions) {
+        return pattern -> {
+            executions.incrementAndGet();
+            for (int i = 0; i < pattern.size(); i++) {
+                if (!"normal".equals(pattern.get(i))) {
+                    throw (Exception) ExceptionReflectionUtils.createExceptionInstance(pattern.get(i), "Mocked for call " + i);
+                }
+            }
+        };
+    }
+
+    /**
+     * 同上，但把结果写入传入的 reporter：每个模式记录一条路径，第一个失败的调用记录一条异常链
+     */
+    private static ReportingTestLogic reportingSut() {
+        return (pattern, reporter) -> {
+            reporter.addStat("sut", String.join(", ", pattern), true);
+            for (int i = 0; i < pattern.size(); i++) {
+                if (!"normal".equals(pattern.get(i))) {
+                    reporter.addExceptionStat("sut", pattern.get(i));
+                    reporter.addSutExceptionChain("sut", pattern, new CoverageStatsReporter.ExceptionDetails(
+                            pattern.get(i), "Mocked for call " + i,
+                            Collections.singletonList("Sut.call" + i), null, String.join(", ", pattern)));
+                    return;
+                }
+            }
+        };
+    }
+
+    /**
+     * 在第 0 个调用处捕获 IOException 并走恢复分支：恢复分支对后续每种注入组合都产生不同的异常链，
+     * 其他位置只会产生 (位置, 异常类型) 对应的一条链
+     */
+    private static ReportingTestLogic recoveringSut() {
+        return (pattern, reporter) -> {
+            String first = pattern.get(0);
+            if ("java.io.IOException".equals(first)) {
+                String suffix = String.join(",", pattern.subList(1, pattern.size()));
+                reporter.addSutExceptionChain("sut", pattern, new CoverageStatsReporter.ExceptionDetails(
+                        first, "recovered", Collections.singletonList("Sut.recover[" + suffix + "]"), null, suffix));
+                return;
+            }
+            for (int i = 0; i < pattern.size(); i++) {
+                if (!"normal".equals(pattern.get(i))) {
+                    reporter.addSutExceptionChain("sut", pattern, new CoverageStatsReporter.ExceptionDetails(
+                            pattern.get(i), "Mocked for call " + i,
+                            Collections.singletonList("Sut.call" + i), null, String.join(", ", pattern)));
+                    return;
+                }
+            }
+        };
+    }
+
+    /**
+     * recoveringSut，并在第 executions 次执行后记下当时的异常链数
+     */
+    private static ReportingTestLogic countingChains(int executions, AtomicInteger chainsAtBudget) {
+        AtomicInteger executed = new AtomicInteger();
+        ReportingTestLogic sut = recoveringSut();
+        return (pattern, reporter) -> {
+            sut.accept(pattern, reporter);
+            if (executed.incrementAndGet() == executions) {
+                chainsAtBudget.set(reporter.getDistinctChainCount());
+            }
+        };
+    }
+
+    @Test
+    public void testBanditSchedulerFindsMoreChainsUnderFixedBudget() {
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        List<String> apiCalls = API_CALL_SEQUENCE.subList(0, 5);
+        List<List<String>> candidates = new ArrayList<>();
+        builder.iterateExhaustivePatterns(apiCalls, EXCEPTION_TYPES, 5).forEachRemaining(p -> candidates.add(new ArrayList<>(p)));
+        Collections.shuffle(candidates, new Random(7));
+
+        AtomicInteger inGenerationOrder = new AtomicInteger(-1);
+        TestExplorer inOrder = new TestExplorer();
+        inOrder.setMaxExecutions(Integer.MAX_VALUE);
+        inOrder.explore(apiCalls, candidates.iterator(), countingChains(100, inGenerationOrder), new CoverageStatsReporter());
+
+        AtomicInteger scheduled = new AtomicInteger(-1);
+        TestExplorer byYield = new TestExplorer();
+        byYield.setMaxExecutions(Integer.MAX_VALUE);
+        BanditPatternScheduler scheduler = byYield.exploreByYield(apiCalls, candidates, EXCEPTION_TYPES,
+                countingChains(100, scheduled), new CoverageStatsReporter());
+
+        assertTrue(scheduled.get() > inGenerationOrder.get() + 20, "bandit " + scheduled + " vs in order " + inGenerationOrder);
+        assertTrue(scheduler.getMeanReward(0, "java.io.IOException") > scheduler.getMeanReward(3, "java.sql.SQLException"));
+    }
+
+    @Test
+    public void testBanditSchedulerOnlySettlesPatternsThatRan() {
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        List<String> apiCalls = API_CALL_SEQUENCE.subList(0, 4);
+        List<List<String>> candidates = new ArrayList<>();
+        builder.iterateExhaustivePatterns(apiCalls, EXCEPTION_TYPES, 4).forEachRemaining(p -> candidates.add(new ArrayList<>(p)));
+        TestExplorer explorer = new TestExplorer();
+        explorer.setMaxExecutions(Integer.MAX_VALUE);
+        explorer.setPrefixPruning(true);
+
+        AtomicInteger executions = new AtomicInteger();
+        ReportingTestLogic sut = recoveringSut();
+        BanditPatternScheduler scheduler = explorer.exploreByYield(apiCalls, candidates, EXCEPTION_TYPES, (pattern, reporter) -> {
+            executions.incrementAndGet();
+            sut.accept(pattern, reporter);
+        }, new CoverageStatsReporter());
+
+        // 被剪枝的模式没有执行，不计入任何臂
+        assertTrue(explorer.getPrunedCount() > 0);
+        assertEquals(candidates.size(), executions.get() + explorer.getPrunedCount());
+        assertEquals(executions.get(), scheduler.getSettledCount());
+        assertThrows(IllegalStateException.class, scheduler::skip);
+    }
+
+    private static void appendLine(Path file, String line) throws IOException {
+        Files.write(file, (line + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 分片子进程中运行的任务：4 个调用的穷尽空间上的 recoveringSut，每个模式在工作目录的 shard.db 中追加一行
+     */
+    public static class RecoveringShardTask implements ShardTask {
+        private final PatternSpace space = new PatternSpace(4, EXCEPTION_TYPES);
+
+        @Override
+        public long patternCount() {
+            return ExhaustivePatternIterator.spaceSize(space.radix(), space.length());
+        }
+
+        @Override
+        public Iterator<List<String>> patterns(long fromIndex, long toIndex) {
+            return new ExhaustivePatternIterator(space, space.length(), fromIndex, toIndex);
+        }
+
+        @Override
+        public ReportingTestLogic testLogic() {
+            ReportingTestLogic sut = recoveringSut();
+            return (pattern, reporter) -> {
+                Files.write(Paths.get("shard.db"), (pattern + "\n").getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                sut.accept(pattern, reporter);
+            };
+        }
+    }
+
+    @Test
+    public void testShardedExplorationMergesChildResults(@TempDir Path workDirectory) throws Exception {
+        ShardedExplorer sharded = new ShardedExplorer(3, workDirectory);
+        sharded.setChunkSize(20);
+        CoverageStatsReporter merged = sharded.explore(RecoveringShardTask.class);
+
+        RecoveringShardTask task = new RecoveringShardTask();
+        CoverageStatsReporter local = new CoverageStatsReporter();
+        TestExplorer explorer = new TestExplorer();
+        explorer.setMaxExecutions(Integer.MAX_VALUE);
+        explorer.explore(API_CALL_SEQUENCE.subList(0, 4), task.patterns(0, task.patternCount()), recoveringSut(), local);
+
+        assertEquals(256, sharded.getExecutedPatternCount());
+        assertEquals(explorer.getTotalExecutions(), sharded.getTotalExecutions());
+        assertEquals(local.getDistinctChainCount(), merged.getDistinctChainCount());
+        assertEquals(new HashSet<>(local.getChainSignatures()), new HashSet<>(merged.getChainSignatures()));
+        // 每个分片在自己的工作目录中运行
+        long[] expectedLines = {86, 85, 85};
+        for (int shard = 0; shard < 3; shard++) {
+            assertEquals(expectedLines[shard],
+                    Files.readAllLines(workDirectory.resolve("shard-" + shard).resolve("shard.db")).size());
+        }
+    }
+
+    @Test
+    public void testJournalResumesInterruptedExplorationWithoutRerunning(@TempDir Path directory) throws Exception {
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        List<String> calls = API_CALL_SEQUENCE.subList(0, 4);
+        Path file = directory.resolve("exploration.journal");
+
+        CoverageStatsReporter uninterrupted = new CoverageStatsReporter();
+        TestExplorer reference = new TestExplorer();
+        reference.setMaxExecutions(Integer.MAX_VALUE);
+        reference.explore(calls, builder.iterateExhaustivePatterns(calls, EXCEPTION_TYPES, 4), recoveringSut(), uninterrupted);
+
+        // 第一次运行在预算用完时"崩溃"，最后一条记录只写了一半
+        try (ExplorationJournal journal = ExplorationJournal.open(file)) {
+            journal.setSyncPolicy(16, 60_000);
+            TestExplorer first = new TestExplorer();
+            first.setMaxExecutions(150);
+            first.setJournal(journal);
+            first.explore(calls, builder.iterateExhaustivePatterns(calls, EXCEPTION_TYPES, 4),
+                    recoveringSut(), new CoverageStatsReporter());
+        }
+        long intact = Files.size(file);
+        Files.write(file, new byte[]{0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+        AtomicInteger executions = new AtomicInteger();
+        ReportingTestLogic sut = recoveringSut();
+        CoverageStatsReporter resumed = new CoverageStatsReporter();
+        try (ExplorationJournal journal = ExplorationJournal.open(file)) {
+            assertEquals(intact, Files.size(file));
+            int recovered = journal.getRecoveredCount();
+            assertTrue(recovered > 0 && recovered < 256, "recovered " + recovered);
+            TestExplorer second = new TestExplorer();
+            second.setMaxExecutions(Integer.MAX_VALUE);
+            second.setJournal(journal);
+            second.explore(calls, builder.iterateExhaustivePatterns(calls, EXCEPTION_TYPES, 4), (pattern, r) -> {
+                executions.incrementAndGet();
+                sut.accept(pattern, r);
+            }, resumed);
+            assertEquals(recovered, second.getResumedCount());
+            assertEquals(256 - recovered, executions.get());
+        }
+
+        assertEquals(uninterrupted.getDistinctChainCount(), resumed.getDistinctChainCount());
+        assertEquals(new HashSet<>(uninterrupted.getChainSignatures()), new HashSet<>(resumed.getChainSignatures()));
+        try (ExplorationJournal journal = ExplorationJournal.open(file)) {
+            assertEquals(256, journal.getRecoveredCount());
+        }
+    }
+
+    @Test
+    public void testCheckpointForkRunsSharedPrefixOnce(@TempDir Path directory) throws Exception {
+        Path database = directory.resolve("checkpoint-test.db");
+        Files.write(database, "init\n".getBytes(StandardCharsets.UTF_8));
+        AtomicInteger balance = new AtomicInteger(1000); // 内存中的替身状态
+        AtomicInteger prefixRuns = new AtomicInteger();
+        List<String> finalStates = new ArrayList<>();
+
+        // 前 3 个调用是"买入"，后 2 个是"卖出"；每个调用都会修改数据库文件和余额
+        ForkableTestLogic logic = new ForkableTestLogic() {
+            @Override
+            public void runPrefix(List<String> pattern, CoverageStatsReporter reporter) throws Exception {
+                prefixRuns.incrementAndGet();
+                for (int i = 0; i < 3; i++) {
+                    if (!"normal".equals(pattern.get(i))) {
+                        throw new IOException("Mocked for call " + i);
+                    }
+                    appendLine(database, "buy" + i);
+                    balance.addAndGet(-100);
+                }
+            }
+
+            @Override
+            public void runSuffix(List<String> pattern, CoverageStatsReporter reporter) throws Exception {
+                for (int i = 3; i < 5; i++) {
+                    if (!"normal".equals(pattern.get(i))) {
+                        throw new IOException("Mocked for call " + i);
+                    }
+                    appendLine(database, "sell" + i);
+                    balance.addAndGet(50);
+                }
+                finalStates.add(balance.get() + ":" + String.join(",", Files.readAllLines(database)));
+            }
+        };
+        SutCheckpoint fake = () -> {
+            int saved = balance.get();
+            return () -> balance.set(saved);
+        };
+
+        List<List<String>> patterns = new ArrayList<>();
+        new ExceptionalSpaceBuilder().iterateExhaustivePatterns(API_CALL_SEQUENCE.subList(0, 5),
+                Collections.singletonList("java.io.IOException"), 5).forEachRemaining(p -> patterns.add(new ArrayList<>(p)));
+        TestExplorer explorer = new TestExplorer();
+        explorer.setMaxExecutions(Integer.MAX_VALUE);
+        try {
+            explorer.exploreWithCheckpoints(API_CALL_SEQUENCE.subList(0, 5), patterns, 3,
+                    Arrays.asList(new SqliteFileCheckpoint(database), fake), logic, new CoverageStatsReporter());
+
+            // 8 个不同前缀各执行一次；7 个失败前缀的其余 3 个模式结果相同，被剪枝
+            assertEquals(8, prefixRuns.get());
+            assertEquals(7 * 3, explorer.getPrunedCount());
+            // 只有全 normal 的后缀完整执行，且它从检查点开始，而不是叠加在之前的后缀之上
+            assertEquals(Collections.singletonList("800:init,buy0,buy1,buy2,sell3,sell4"), finalStates);
+            assertEquals(Collections.singletonList("init"), Files.readAllLines(database));
+            assertEquals(1000, balance.get());
+
+            // 超时放弃的运行会在恢复检查点时继续修改状态，因此不允许
+            explorer.setPatternTimeout(1, TimeUnit.SECONDS);
+            assertThrows(IllegalStateException.class, () -> explorer.exploreWithCheckpoints(API_CALL_SEQUENCE.subList(0, 5),
+                    patterns, 3, Arrays.asList(new SqliteFileCheckpoint(database), fake), logic, new CoverageStatsReporter()));
+            assertEquals(8, prefixRuns.get());
+        } finally {
+            Files.deleteIfExists(database);
+        }
+    }
+
+    @Test
+    public void testPatternTimeoutAbandonsHangingPatterns() {
+        CountDownLatch release = new CountDownLatch(1);
+        List<List<String>> patterns = Arrays.asList(
+                Arrays.asList("java.io.IOException", "normal"),    // 可中断的阻塞
+                Arrays.asList("normal", "normal"),
+                Arrays.asList("java.sql.SQLException", "normal"),  // 忽略中断的阻塞，只能放弃
+                Arrays.asList("normal", "java.sql.SQLException"));
+        TestExplorer explorer = new TestExplorer();
+        explorer.setMaxExecutions(Integer.MAX_VALUE);
+        explorer.setPatternTimeout(200, TimeUnit.MILLISECONDS);
+        CoverageStatsReporter reporter = new CoverageStatsReporter();
+
+        long start = System.nanoTime();
+        try {
+            explorer.explore(API_CALL_SEQUENCE.subList(0, 2), patterns.iterator(), (pattern, r) -> {
+                if ("java.io.IOException".equals(pattern.get(0))) {
+                    Thread.sleep(60_000);
+                }
+                if ("java.sql.SQLException".equals(pattern.get(0))) {
+                    while (release.getCount() > 0) {
+                        try {
+                            release.await();
+                        } catch (InterruptedException ignored) {
+                            // 模拟不响应中断的阻塞调用
+                        }
+                    }
+                    r.addStat("sut", "released", true); // 被放弃后才写入，不能进入结果
+                }
+                r.addStat("sut", String.join(", ", pattern), true);
+            }, reporter);
+        } finally {
+            release.countDown();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < 5_000, "took " + elapsedMillis + " ms");
+        assertEquals(2, explorer.getTimedOutCount());
+        assertEquals(Arrays.asList("java.io.IOException, normal", "java.sql.SQLException, normal"),
+                reporter.getTimedOutPatterns());
+    }
+
+    @Test
+    public void testListenersReceivePatternEventsInOrder() {
+        List<List<String>> patterns = Arrays.asList(
+                Arrays.asList("normal", "normal"),
+                Arrays.asList("java.io.IOException", "normal"),
+                Arrays.asList("normal", "java.sql.SQLException"),
+                Arrays.asList("java.io.IOException", "java.sql.SQLException"));
+        TestExplorer explorer = new TestExplorer();
+        explorer.setMaxExecutions(Integer.MAX_VALUE);
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        Thread[] deliveredOn = new Thread[1];
+        ExplorationListener recorder = new ExplorationListener() {
+            @Override
+            public void patternStarted(List<String> pattern) {
+                deliveredOn[0] = Thread.currentThread();
+                events.add("start " + pattern);
+            }
+
+            @Override
+            public void callInjected(List<String> pattern, int position, String exceptionType) {
+                events.add("inject " + position + " " + exceptionType);
+            }
+
+            @Override
+            public void patternFinished(List<String> pattern, Outcome outcome, Throwable failure, long durationNanos) {
+                events.add("finish " + outcome + (failure == null ? "" : " " + failure.getMessage()));
+            }
+
+            @Override
+            public void explorationDone(Summary summary) {
+                events.add("done " + summary.getExecutedPatterns() + " " + summary.getInjectedExceptions());
+            }
+        };
+
+        try (AsyncBatchingListener async = new AsyncBatchingListener(recorder, 2, 50)) {
+            explorer.addListener(async);
+            explorer.explore(API_CALL_SEQUENCE.subList(0, 2), patterns, pattern -> {
+                if (!"normal".equals(pattern.get(1))) {
+                    throw new IllegalStateException("boom");
+                }
+            });
+            // explorationDone 返回前已投递完所有事件
+            assertEquals(Arrays.asList(
+                    "start [normal, normal]", "finish PASSED",
+                    "start [java.io.IOException, normal]", "inject 0 java.io.IOException", "finish PASSED",
+                    "start [normal, java.sql.SQLException]", "inject 1 java.sql.SQLException", "finish FAILED boom",
+                    "start [java.io.IOException, java.sql.SQLException]", "inject 0 java.io.IOException",
+                    "inject 1 java.sql.SQLException", "finish FAILED boom",
+                    "done 4 4"), events);
+            assertNotSame(Thread.currentThread(), deliveredOn[0]);
+        }
+
+        events.clear();
+        explorer.explore(API_CALL_SEQUENCE.subList(0, 2), patterns, pattern -> { });
+        assertTrue(events.isEmpty(), "closed listener still received " + events);
+    }
+
+    @Test
+    public void testAsyncListenerSurvivesListenerErrors() {
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        ExplorationListener failing = new ExplorationListener() {
+            @Override
+            public void patternStarted(List<String> pattern) {
+                throw new AssertionError("listener bug");
+            }
+
+            @Override
+            public void explorationDone(Summary summary) {
+                delivered.add("done " + summary.getExecutedPatterns());
+            }
+        };
+        // 队列只有 16 个位置；后台线程若因 Error 退出，生产者会永远阻塞
+        TestExplorer explorer = new TestExplorer();
+        explorer.setMaxExecutions(Integer.MAX_VALUE);
+        try (AsyncBatchingListener async = new AsyncBatchingListener(failing, 1, 10)) {
+            explorer.addListener(async);
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> explorer.explore(API_CALL_SEQUENCE.subList(0, 2),
+                    new ExceptionalSpaceBuilder().iterateExhaustivePatterns(API_CALL_SEQUENCE.subList(0, 2), EXCEPTION_TYPES, 2),
+                    pattern -> { }));
+        }
+        assertEquals(Collections.singletonList("done 16"), delivered);
+    }
+
+    @Test
+    public void testParallelExecutionMergesWorkerReporters() {
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        List<String> apiCalls = API_CALL_SEQUENCE.subList(0, 5);
+
+        TestExplorer sequential = new TestExplorer();
+        sequential.setMaxExecutions(Integer.MAX_VALUE);
+        CoverageStatsReporter expected = new CoverageStatsReporter();
+        sequential.explore(apiCalls, builder.iterateExhaustivePatterns(apiCalls, EXCEPTION_TYPES, 5), reportingSut(), expected);
+
+        TestExplorer parallel = new TestExplorer();
+        parallel.setMaxExecutions(Integer.MAX_VALUE);
+        parallel.setParallelism(4);
+        CoverageStatsReporter merged = new CoverageStatsReporter();
+        parallel.explore(apiCalls, builder.iterateExhaustivePatterns(apiCalls, EXCEPTION_TYPES, 5), reportingSut(), merged);
+
+        assertEquals(sequential.getTotalExecutions(), parallel.getTotalExecutions());
+        // 5 个位置 × 3 种异常
+        assertEquals(15, expected.getDistinctChainCount());
+        assertEquals(new HashSet<>(expected.getChainSignatures()), new HashSet<>(merged.getChainSignatures()));
+    }
+
+    @Test
+    public void testParallelExecutionRespectsBudget() {
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        TestExplorer explorer = new TestExplorer();
+        explorer.setMaxExecutions(500);
+        explorer.setParallelism(8);
+
+        AtomicInteger executions = new AtomicInteger();
+        explorer.explore(API_CALL_SEQUENCE,
+                builder.iterateExhaustivePatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES, 7),
+                sequentialSut(executions));
+
+        // 只有最后一个占用预算的模式可以超出，超出量小于单个模式的注入数
+        assertTrue(explorer.getTotalExecutions() >= 500);
+        assertTrue(explorer.getTotalExecutions() < 500 + API_CALL_SEQUENCE.size(), "total " + explorer.getTotalExecutions());
+        assertTrue(executions.get() < 16384);
+    }
+
+    @Test
+    public void testVirtualThreadModeRunsBlockedPatternsConcurrently() {
+        // java21 profile 下必须真正使用虚拟线程；更低版本的 JDK 上验证回退路径
+        if (Boolean.getBoolean("exceptionamplifier.virtualThreads")) {
+            assertTrue(TestExplorer.isVirtualThreadSupported());
+        }
+        List<List<String>> patterns = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            patterns.add(Collections.nCopies(3, "normal"));
+        }
+        TestExplorer explorer = new TestExplorer();
+        explorer.setMaxExecutions(Integer.MAX_VALUE);
+        explorer.setVirtualThreads(true, 1000);
+
+        AtomicInteger executions = new AtomicInteger();
+        AtomicInteger blocked = new AtomicInteger();
+        AtomicInteger peakBlocked = new AtomicInteger();
+        explorer.explore(API_CALL_SEQUENCE.subList(0, 3), patterns.iterator(), pattern -> {
+            executions.incrementAndGet();
+            peakBlocked.accumulateAndGet(blocked.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5); // 模拟阻塞在数据库/HTTP 替身上
+            } finally {
+                blocked.decrementAndGet();
+            }
+        });
+
+        assertEquals(300, executions.get());
+        if (TestExplorer.isVirtualThreadSupported()) {
+            assertTrue(peakBlocked.get() > 50, "peak " + peakBlocked.get());
+        } else {
+            // 回退到同样大小的平台线程池，模式仍然并发执行
+            assertTrue(peakBlocked.get() > 1, "peak " + peakBlocked.get());
+        }
+    }
+
+    @Test
+    public void testPrefixPruningSkipsEquivalentExhaustivePatterns() {
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        TestExplorer explorer = new TestExplorer();
+        explorer.setMaxExecutions(Integer.MAX_VALUE);
+        explorer.setPrefixPruning(true);
+
+        AtomicInteger executions = new AtomicInteger();
+        explorer.explore(API_CALL_SEQUENCE,
+                builder.iterateExhaustivePatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES, 7),
+                sequentialSut(executions));
+
+        // 每个位置 3 种首个异常 + 全 normal
+        assertEquals(7 * 3 + 1, executions.get());
+        assertEquals(16384 - 22, explorer.getPrunedCount());
+    }
+
+    @Test
+    public void testSkipSubtreeAfterSkippedIllegalPatterns() {
+        PatternSpace space = new PatternSpace(3, Arrays.asList("java.io.IOException", "java.sql.SQLException"));
+        // 位置 1、2 只允许 SQLException：每次 next() 后计数器已越过若干非法块
+        boolean[][] legal = {{true, true, true}, {false, true, false}, {false, true, false}};
+        ExhaustivePatternIterator patterns = new ExhaustivePatternIterator(space, 3, 0, 27, null, legal);
+
+        List<List<String>> emitted = new ArrayList<>();
+        while (patterns.hasNext()) {
+            emitted.add(new ArrayList<>(patterns.next()));
+            patterns.skipSubtree(0);
+        }
+
+        List<String> tail = Arrays.asList("java.sql.SQLException", "java.sql.SQLException");
+        List<List<String>> expected = new ArrayList<>();
+        for (String first : Arrays.asList("java.io.IOException", "java.sql.SQLException", "normal")) {
+            List<String> pattern = new ArrayList<>(Collections.singletonList(first));
+            pattern.addAll(tail);
+            expected.add(pattern);
+        }
+        assertEquals(expected, emitted);
+    }
+
+    @Test
+    public void testPrefixPruningOnMaterializedPatterns() {
+        ExceptionalSpaceBuilder builder = new ExceptionalSpaceBuilder();
+        TestExplorer explorer = new TestExplorer();
+        explorer.setMaxExecutions(Integer.MAX_VALUE);
+        explorer.setPrefixPruning(true);
+
+        List<List<String>> patterns = builder.generateTWisePatterns(API_CALL_SEQUENCE, EXCEPTION_TYPES, 2);
+        AtomicInteger executions = new AtomicInteger();
+        explorer.explore(API_CALL_SEQUENCE, patterns, sequentialSut(executions));
+
+        assertTrue(explorer.getPrunedCount() > 0);
+        assertEquals(patterns.size(), executions.get() + explorer.getPrunedCount());
+    }
+}
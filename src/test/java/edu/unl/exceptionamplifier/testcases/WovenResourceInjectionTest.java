@@ -0,0 +1,107 @@
+package edu.unl.exceptionamplifier.testcases;
+
+import edu.unl.exceptionamplifier.mocker.ResourceCallInjector;
+import edu.unl.order.MockProductPriceService;
+import edu.unl.order.OrderManagementService;
+import edu.unl.order.OrderRepository;
+import edu.unl.stock.MockMarketDataService;
+import edu.unl.stock.StockTradingRepository;
+import edu.unl.stock.StockTradingService;
+import edu.unl.wallet.WalletRepository;
+import edu.unl.wallet.WalletService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 织入后的真实服务：异常在服务调用资源的位置抛出，不经过 mock
+ * Needs the classes woven by aspectj-maven-plugin, i.e. run through mvn. Injected calls never reach
+ * the repositories, so these tests do not touch the databases.
+ */
+public class WovenResourceInjectionTest {
+
+    @AfterEach
+    public void tearDown() {
+        ResourceCallInjector.setEnabled(false);
+    }
+
+    @Test
+    public void testStockTradingServiceFailsAtTheInjectedCall() {
+        StockTradingService service = new StockTradingService(new StockTradingRepository(), new MockMarketDataService());
+
+        try (ResourceCallInjector.Activation activation = ResourceCallInjector.activate(Collections.singletonList("java.io.IOException"))) {
+            IOException e = assertThrows(IOException.class, () -> service.buyStock("AAPL", 1));
+            assertTrue(e.getMessage().contains("MarketDataService.getRealtimePrice"), e.getMessage());
+            assertThrownFrom(e, "edu.unl.stock.StockTradingService", "buyStock");
+            assertEquals(1, activation.getCallCount());
+        }
+
+        // getRealtimePrice 正常执行，在第二个调用 getPosition 处注入
+        try (ResourceCallInjector.Activation activation = ResourceCallInjector.activate(Arrays.asList("normal", "java.sql.SQLException"))) {
+            SQLException e = assertThrows(SQLException.class, () -> service.buyStock("AAPL", 1));
+            assertTrue(e.getMessage().contains("StockTradingRepository.getPosition"), e.getMessage());
+            assertThrownFrom(e, "edu.unl.stock.StockTradingService", "buyStock");
+            assertEquals(2, activation.getCallCount());
+        }
+    }
+
+    @Test
+    public void testOrderManagementServiceFailsAtTheInjectedCall() {
+        OrderManagementService service = new OrderManagementService(new OrderRepository(), new MockProductPriceService());
+
+        try (ResourceCallInjector.Activation activation = ResourceCallInjector.activate(Arrays.asList("normal", "java.sql.SQLException"))) {
+            SQLException e = assertThrows(SQLException.class, () -> service.placeOrder("book", 1));
+            assertTrue(e.getMessage().contains("OrderRepository.getInventory"), e.getMessage());
+            assertThrownFrom(e, "edu.unl.order.OrderManagementService", "placeOrder");
+            assertEquals(2, activation.getCallCount());
+        }
+    }
+
+    @Test
+    public void testWalletServiceInitIsNotCounted() {
+        WalletService service = new WalletService(new WalletRepository() {
+            @Override
+            public void initDatabase(java.util.Map<String, Double> initialBalances) {
+                // 不建库；织入点不应拦截这次调用
+            }
+        });
+
+        try (ResourceCallInjector.Activation activation = ResourceCallInjector.activate(Collections.singletonList("java.sql.SQLException"))) {
+            service.init(Collections.singletonMap("ETH", 100.0));
+            assertEquals(0, activation.getCallCount());
+            SQLException e = assertThrows(SQLException.class, () -> service.deposit("ETH", 1.0));
+            assertTrue(e.getMessage().contains("WalletRepository.updateBalance"), e.getMessage());
+            assertThrownFrom(e, "edu.unl.wallet.WalletService", "deposit");
+            assertEquals(1, activation.getCallCount());
+        }
+    }
+
+    @Test
+    public void testNoInjectionWithoutActivation() throws Exception {
+        ResourceCallInjector.setEnabled(true);
+        StockTradingService service = new StockTradingService(new StockTradingRepository() {
+            @Override
+            public int getPosition(String symbol) {
+                return 0;
+            }
+        }, new MockMarketDataService());
+        // 没有激活的模式时调用照常执行
+        assertThrows(IllegalArgumentException.class, () -> service.buyStock("AAPL", 0));
+        assertEquals(0, service.getPosition("AAPL"));
+    }
+
+    private static void assertThrownFrom(Throwable e, String className, String methodName) {
+        for (StackTraceElement frame : e.getStackTrace()) {
+            if (frame.getClassName().equals(className) && frame.getMethodName().equals(methodName)) {
+                return;
+            }
+        }
+        fail("No frame " + className + "." + methodName + " in " + Arrays.toString(e.getStackTrace()));
+    }
+}